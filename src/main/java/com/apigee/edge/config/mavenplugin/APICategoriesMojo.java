@@ -24,13 +24,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 
@@ -89,7 +88,7 @@ public class APICategoriesMojo extends GatewayAbstractMojo
 
 	}
 
-	protected void doUpdate(List<String> categories) 
+	protected void doUpdate(List<ConfigEntity> categories) 
             throws MojoFailureException {
 		try {
 			Map<String, String> existingCategories = null;
@@ -103,11 +102,14 @@ public class APICategoriesMojo extends GatewayAbstractMojo
                     serverProfile.getEnvironment());
 			existingCategories = getCategories(serverProfile);
 
-	        for (String category : categories) {
+	        for (ConfigEntity entry : categories) {
+	        	// the entries are the names of the categories
+	        	String category = entry.getPayloadAsString();
 	        	if (existingCategories != null && existingCategories.keySet()!=null 
 	        			&& existingCategories.keySet().contains(category)) {
                     switch (buildOption) {
                         case update:
+                        case sync:
                         	logger.info("API Category \"" + category + 
 									"\" already exists. Skipping.");
                         	break;
@@ -119,13 +121,6 @@ public class APICategoriesMojo extends GatewayAbstractMojo
                             logger.info("API Category \"" + category + 
                                         "\" already exists. Deleting.");
                             deleteAPICategory(serverProfile, existingCategories.get(category));
-                            break;
-                        case sync:
-                            logger.info("API Category \"" + category + 
-                                        "\" already exists. Deleting and recreating.");
-                            deleteAPICategory(serverProfile, existingCategories.get(category));
-                            logger.info("Creating API Category - " + category);
-                            createAPICategory(serverProfile, category);
                             break;
 	        		}
 	        	} else {
@@ -178,7 +173,7 @@ public class APICategoriesMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			List categories = getOrgConfig(logger, "apiCategories");
+			List<ConfigEntity> categories = getOrgEntities(logger, "apiCategories");
 			if (categories == null || categories.size() == 0) {
 				logger.info("No API Categories found.");
                 return;
@@ -197,7 +192,7 @@ public class APICategoriesMojo extends GatewayAbstractMojo
      **/
     public static String createAPICategory(ServerProfile profile, String category)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
     	String payload = "{\"name\": \""+category+"\"}";
         HttpResponse response = restUtil.createOrgConfig(profile, 
         												"sites/"+profile.getPortalSiteId()+"/apicategories",
@@ -220,7 +215,7 @@ public class APICategoriesMojo extends GatewayAbstractMojo
     public static String deleteAPICategory(ServerProfile profile,
                                             String categoryId)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteOrgConfig(profile, 
                                                         "sites/"+profile.getPortalSiteId()+"/apicategories", 
                                                         categoryId);
@@ -242,31 +237,19 @@ public class APICategoriesMojo extends GatewayAbstractMojo
     public static Map<String, String> getCategories(ServerProfile profile)
             throws IOException {
     	Map<String, String> categoryMap = new HashMap<String, String>();
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, "sites/"+profile.getPortalSiteId()+"/apicategories");
         if(response == null) return categoryMap;
-        JSONArray categories = null;
         try {
             logger.debug("output " + response.getContentType());
-            String payload = response.parseAsString();
-            logger.debug(payload);
-
-            JSONParser parser = new JSONParser();                
-            JSONObject obj    = (JSONObject)parser.parse(payload);
-            categories    = (JSONArray)obj.get("data");
-            for (int i = 0; categories != null && i < categories.size(); i++) {
-           	 JSONObject a = (JSONObject) categories.get(i);
-           	 categoryMap.put((String)a.get("name"), (String)a.get("id"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readMap(response, "data", "name", "id");
+        } catch (JsonProcessingException pe){
             logger.error("Get Categories parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Categories error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return categoryMap;
     }	
 
 }
@@ -27,13 +27,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
@@ -80,21 +79,18 @@ public class APIDocsMojo extends GatewayAbstractMojo
         public List<String> categories;
     }
 	
-	protected String getAPIDocName(String payload) throws MojoFailureException {
-		Gson gson = new Gson();
+	protected String getAPIDocName(ConfigEntity apiDoc) throws MojoFailureException {
 		try {
-			APIDoc apiDoc = gson.fromJson(payload, APIDoc.class);
-			return apiDoc.title;
+			return apiDoc.as(APIDoc.class).title;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 	
-	protected String updatePayloadWithCategoryId(String payload, ServerProfile profile) throws MojoFailureException, IOException {
-		Gson gson = new Gson();
+	protected String updatePayloadWithCategoryId(ConfigEntity apiDoc, ServerProfile profile) throws MojoFailureException, IOException {
+		String payload = apiDoc.getPayloadAsString();
 		try {
-			APIDoc apiDoc = gson.fromJson(payload, APIDoc.class);
-			List<String> categories = apiDoc.categories;
+			List<String> categories = apiDoc.as(APIDoc.class).categories;
 			if(categories!=null && categories.size()>0) {
 				//Fetch existing categories and its id from portal
 				Map<String, String> existingCategoryMap = getCategories(profile);
@@ -148,7 +144,7 @@ public class APIDocsMojo extends GatewayAbstractMojo
 
 	}
 
-	protected void doUpdate(List<String> apiDocs) 
+	protected void doUpdate(List<ConfigEntity> apiDocs) 
             throws MojoFailureException {
 		try {
 			Map<String, String> existingDocs = null;
@@ -162,19 +158,20 @@ public class APIDocsMojo extends GatewayAbstractMojo
                     serverProfile.getEnvironment());
 			existingDocs = getAPIDocs(serverProfile);
 
-	        for (String apiDoc : apiDocs) {
-	        	//update category with categoryId
-	        	apiDoc = updatePayloadWithCategoryId(apiDoc, serverProfile);
-	        	logger.debug("updated doc: "+ apiDoc);
-	        	String apiDocName = getAPIDocName(apiDoc);
+	        for (ConfigEntity entry : apiDocs) {
+	        	String apiDocName = getAPIDocName(entry);
 	        	 if (apiDocName == null) {
 	        		throw new IllegalArgumentException(
-	        		   "API Doc does not have a title.\n" + apiDoc + "\n");
+	        		   "API Doc does not have a title.\n" + entry + "\n");
 	        	}
+	        	//update category with categoryId
+	        	String apiDoc = updatePayloadWithCategoryId(entry, serverProfile);
+	        	logger.debug("updated doc: "+ apiDoc);
 	        	if (existingDocs != null && existingDocs.keySet()!=null 
 	        			&& existingDocs.keySet().contains(apiDocName)) {
                     switch (buildOption) {
                         case update:
+                        case sync:
                         	logger.info("Updating API Doc - " + apiDocName);
                         	updateAPIDoc(serverProfile, existingDocs.get(apiDocName), apiDoc);
                         	createAPIDocSpec(serverProfile, existingDocs.get(apiDocName), apiDoc);
@@ -187,14 +184,6 @@ public class APIDocsMojo extends GatewayAbstractMojo
                             logger.info("API Doc \"" + apiDocName + 
                                         "\" already exists. Deleting.");
                             deleteAPIDoc(serverProfile, existingDocs.get(apiDocName));
-                            break;
-                        case sync:
-                            logger.info("API Doc \"" + apiDocName + 
-                                        "\" already exists. Deleting and recreating.");
-                            deleteAPIDoc(serverProfile, existingDocs.get(apiDocName));
-                            logger.info("Creating API Doc - " + apiDoc);
-                            String apiDocId = createAPIDoc(serverProfile, apiDoc);
-                            createAPIDocSpec(serverProfile, apiDocId, apiDoc);
                             break;
 	        		}
 	        	} else {
@@ -248,7 +237,7 @@ public class APIDocsMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			List apiDocs = getOrgConfig(logger, "apiDocs");
+			List<ConfigEntity> apiDocs = getOrgEntities(logger, "apiDocs");
 			if (apiDocs == null || apiDocs.size() == 0) {
 				logger.info("No API Docs found.");
                 return;
@@ -268,7 +257,7 @@ public class APIDocsMojo extends GatewayAbstractMojo
      **/
     public static String createAPIDoc(ServerProfile profile, String apiDocPayload)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         try {
         	JsonElement jsonObj= new Gson().fromJson(apiDocPayload, JsonElement.class);
         	jsonObj.getAsJsonObject().remove("oasDocumentation");
@@ -293,7 +282,7 @@ public class APIDocsMojo extends GatewayAbstractMojo
     
     public static String createAPIDocSpec(ServerProfile profile, String apiDocId, String apiDocPayload)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         try {
         	logger.info("API Documentation");
         	String specPayload = updatePayloadWithSpecContents(apiDocPayload);
@@ -318,7 +307,7 @@ public class APIDocsMojo extends GatewayAbstractMojo
 							            String apiDocId, 
 							            String apiDocPayload)
 	throws IOException {
-	RestUtil restUtil = new RestUtil(profile);
+	RestUtil restUtil = RestUtil.forProfile(profile);
 	try {
 		JsonElement jsonObj= new Gson().fromJson(apiDocPayload, JsonElement.class);
     	jsonObj.getAsJsonObject().remove("oasDocumentation");
@@ -342,7 +331,7 @@ public class APIDocsMojo extends GatewayAbstractMojo
     public static String deleteAPIDoc(ServerProfile profile,
                                             String apiDocId)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteOrgConfig(profile, 
                                                         "sites/"+profile.getPortalSiteId()+"/apidocs", 
                                                         apiDocId);
@@ -364,61 +353,37 @@ public class APIDocsMojo extends GatewayAbstractMojo
     public static Map<String, String> getAPIDocs(ServerProfile profile)
             throws IOException {
     	Map<String, String> apiDocMap = new HashMap<String, String>();
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, "sites/"+profile.getPortalSiteId()+"/apidocs?pageSize=100");
         if(response == null) return apiDocMap;
-        JSONArray apiDocs = null;
         try {
             logger.debug("output " + response.getContentType());
-            String payload = response.parseAsString();
-            logger.debug(payload);
-
-            JSONParser parser = new JSONParser();                
-            JSONObject obj    = (JSONObject)parser.parse(payload);
-            apiDocs    = (JSONArray)obj.get("data");
-            for (int i = 0; apiDocs != null && i < apiDocs.size(); i++) {
-           	 JSONObject a = (JSONObject) apiDocs.get(i);
-           	 apiDocMap.put((String)a.get("title"), (String)a.get("id"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readMap(response, "data", "title", "id");
+        } catch (JsonProcessingException pe){
             logger.error("Get API Doc parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get API Doc error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return apiDocMap;
     }	
     
     public static Map<String, String> getCategories(ServerProfile profile)
             throws IOException {
     	Map<String, String> categoryMap = new HashMap<String, String>();
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, "sites/"+profile.getPortalSiteId()+"/apicategories");
         if(response == null) return categoryMap;
-        JSONArray categories = null;
         try {
             logger.debug("output " + response.getContentType());
-            String payload = response.parseAsString();
-            logger.debug(payload);
-
-            JSONParser parser = new JSONParser();                
-            JSONObject obj    = (JSONObject)parser.parse(payload);
-            categories    = (JSONArray)obj.get("data");
-            for (int i = 0; categories != null && i < categories.size(); i++) {
-           	 JSONObject a = (JSONObject) categories.get(i);
-           	 categoryMap.put((String)a.get("name"), (String)a.get("id"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readMap(response, "data", "name", "id");
+        } catch (JsonProcessingException pe){
             logger.error("Get Categories parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Categories error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return categoryMap;
     }
     
     public static String updatePayloadWithSpecContents(String payload) throws IOException {
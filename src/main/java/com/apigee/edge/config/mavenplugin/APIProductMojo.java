@@ -24,17 +24,20 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.reconcile.Reconciler;
+import com.apigee.edge.config.reconcile.RemoteState;
+import com.apigee.edge.config.reconcile.ResourceAdapter;
+import com.apigee.edge.config.rest.JsonResponseReader;
+import com.apigee.edge.config.rest.PagedListReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -60,6 +63,9 @@ public class APIProductMojo extends GatewayAbstractMojo
 
 	private ServerProfile serverProfile;
 
+	/** compares a product with the existing one */
+	static final JsonComparator COMPARATOR = new JsonComparator();
+
     public static class APIProduct {
         @Key
         public String name;
@@ -93,21 +99,18 @@ public class APIProductMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getAPIProductName(String payload) 
+	protected String getAPIProductName(ConfigEntity product) 
             throws MojoFailureException {
-		Gson gson = new Gson();
 		try {
-			APIProduct product = gson.fromJson(payload, APIProduct.class);
-			return product.name;
+			return product.as(APIProduct.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doUpdate(List<String> products) 
+	protected void doUpdate(List<ConfigEntity> products) 
             throws MojoFailureException {
 		try {
-			//List existingAPIProducts = null;
 			if (buildOption != OPTIONS.update && 
 				buildOption != OPTIONS.create &&
                 buildOption != OPTIONS.delete &&
@@ -115,62 +118,68 @@ public class APIProductMojo extends GatewayAbstractMojo
 				return;
 			}
 
-			//Commenting due to https://github.com/apigee/apigee-config-maven-plugin/issues/130
-			//logger.info("Retrieving existing API Products");
-			//existingAPIProducts = getAPIProduct(serverProfile);
-
-	        for (String product : products) {
-	        	String productName = getAPIProductName(product);
-	        	if (productName == null) {
-	        		throw new IllegalArgumentException(
-	        			"API Product does not have a name.\n" + product + "\n");
-	        	}
-
-	        	if (doesAPIProductExist(serverProfile, productName)) {
-                    switch (buildOption) {
-                        case update:
-    						logger.info("API Product \"" + productName + 
-			           					"\" exists. Updating.");
-	          				updateAPIProduct(serverProfile, productName, product);
-                            break;
-                        case create:
-        			        logger.info("API Product \"" + productName + 
-    									"\" already exists. Skipping.");
-                            break;
-                        case delete:
-                            logger.info("API Product \"" + productName + 
-                                        "\" already exists. Deleting.");
-                            deleteAPIProduct(serverProfile, productName);
-                            break;
-                        case sync:
-                            logger.info("API Product \"" + productName + 
-                                        "\" already exists. Deleting and recreating.");
-                            deleteAPIProduct(serverProfile, productName);
-                            logger.info("Creating API Product - " + productName);
-                            createAPIProduct(serverProfile, product);
-                            break;
-	        		}
-	        	} else {
-                    switch (buildOption) {
-                        case create:
-                        case sync:
-                        case update:
-                            logger.info("Creating API Product - " + productName);
-                            createAPIProduct(serverProfile, product);
-                            break;
-                        case delete:
-                            logger.info("API Product \"" + productName + 
-                                        "\" does not exist. Skipping.");
-                            break;
-                    }
-	        	}
+			if (buildOption == OPTIONS.update) {
+				products = removeUnchanged(logger, "apiproducts", products, this::getAPIProductName);
+			}
+			if (products.isEmpty()) {
+				return;
 			}
+
+			// the existing products are fetched in one go and compared with
+			// the config locally, only the needed writes are made
+			Reconciler reconciler = new Reconciler(serverProfile, new APIProductAdapter())
+					.setPrune(isPrune());
+			reconciler.reconcile(products,
+					Reconciler.Option.valueOf(buildOption.name()));
 		
 		} catch (IOException e) {
 			throw new MojoFailureException("Apigee network call error " +
 														 e.getMessage());
 		} catch (RuntimeException e) {
 			throw e;
+		} finally {
+			saveManifest();
+		}
+	}
+
+	/**
+	 * API Products as seen by the {@link Reconciler}.
+	 */
+	class APIProductAdapter implements ResourceAdapter {
+
+		public String getType() {
+			return "API Product";
+		}
+
+		public String getName(ConfigEntity entity) {
+			return entity.getName();
+		}
+
+		public JsonComparator getComparator() {
+			return COMPARATOR;
+		}
+
+		public RemoteState fetchAll() throws IOException {
+			return getAPIProducts(serverProfile, this);
+		}
+
+		public ConfigEntity fetch(String productName) throws IOException {
+			return getAPIProduct(serverProfile, productName);
+		}
+
+		public void create(String productName, ConfigEntity product) throws IOException {
+			createAPIProduct(serverProfile, product);
+			markApplied("apiproducts", productName, product);
+		}
+
+		public void update(String productName, ConfigEntity product) throws IOException {
+			updateAPIProduct(serverProfile, productName, product);
+			markApplied("apiproducts", productName, product);
+		}
+
+		public void delete(String productName) throws IOException {
+			deleteAPIProduct(serverProfile, productName);
+			markDeleted("apiproducts", productName);
 		}
 	}
 
@@ -200,7 +209,7 @@ public class APIProductMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			List products = getOrgConfig(logger, "apiProducts");
+			List<ConfigEntity> products = getOrgEntities(logger, "apiProducts");
 			if (products == null || products.size() == 0) {
 				logger.info("No API Products found.");
                 return;
@@ -220,10 +229,16 @@ public class APIProductMojo extends GatewayAbstractMojo
      **/
     public static String createAPIProduct(ServerProfile profile, String product)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return createAPIProduct(profile, ConfigEntity.of("apiProducts", product));
+    }
+
+    public static String createAPIProduct(ServerProfile profile, ConfigEntity product)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createOrgConfig(profile, 
                                                          "apiproducts",
-                                                         product);
+                                                         product,
+                                                         false);
         try {
 
             logger.info("Response " + response.getContentType() + "\n" +
@@ -243,7 +258,14 @@ public class APIProductMojo extends GatewayAbstractMojo
                                         String productName, 
                                         String product)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return updateAPIProduct(profile, productName, ConfigEntity.of("apiProducts", product));
+    }
+
+    public static String updateAPIProduct(ServerProfile profile, 
+                                        String productName, 
+                                        ConfigEntity product)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.updateOrgConfig(profile, 
                                                         "apiproducts", 
                                                         productName,
@@ -266,7 +288,7 @@ public class APIProductMojo extends GatewayAbstractMojo
     public static String deleteAPIProduct(ServerProfile profile,
                                             String productName)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteOrgConfig(profile, 
                                                         "apiproducts", 
                                                         productName);
@@ -287,42 +309,67 @@ public class APIProductMojo extends GatewayAbstractMojo
 
     public static List getAPIProduct(ServerProfile profile)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                                     "apiproducts");
         if(response == null) return new ArrayList();
-        JSONArray products = new JSONArray();
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            JSONArray productsArray    = (JSONArray)obj.get("apiProduct");
-            for (int i = 0; productsArray != null && i < productsArray.size(); i++) {
-             	 JSONObject a = (JSONObject) productsArray.get(i);
-             	 products.add(a.get("name"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readList(response, "apiProduct", "name");
+        } catch (JsonProcessingException pe){
             logger.error("Get API Product parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get API Product error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return products;
     }
     
+    /**
+     * Fetches the existing API Products with their details, page by page.
+     */
+    public static RemoteState getAPIProducts(ServerProfile profile, ResourceAdapter adapter)
+            throws IOException {
+    	RemoteState state = new RemoteState(adapter);
+        try {
+            state.setComplete(new PagedListReader(profile, "apiproducts", "apiProduct", "name")
+                    .readAll(product -> state.add(new ConfigEntity("apiProducts", product))));
+        } catch (JsonProcessingException pe){
+            logger.error("Get API Product parse error " + pe.getMessage());
+            throw new IOException(pe.getMessage());
+        } catch (HttpResponseException e) {
+            logger.error("Get API Product error " + e.getMessage());
+            throw new IOException(e.getMessage());
+        }
+        return state;
+    }
+
+    /**
+     * @return the API Product, null if it does not exist
+     */
+    public static ConfigEntity getAPIProduct(ServerProfile profile, String apiProduct)
+            throws IOException {
+        try {
+        	RestUtil restUtil = RestUtil.forProfile(profile);
+        	logger.info("Checking if APIProduct - " +apiProduct + " exist");
+            HttpResponse response = restUtil.getOrgConfig(profile, "apiproducts/"+URLEncoder.encode(apiProduct, "UTF-8"));
+            if(response == null) 
+            	return null;
+            return ConfigEntity.of("apiProducts", response.parseAsString());
+        } catch (HttpResponseException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
     public static boolean doesAPIProductExist(ServerProfile profile, String apiProduct)
             throws IOException {
         try {
-        	RestUtil restUtil = new RestUtil(profile);
+        	RestUtil restUtil = RestUtil.forProfile(profile);
         	logger.info("Checking if APIProduct - " +apiProduct + " exist");
             HttpResponse response = restUtil.getOrgConfig(profile, "apiproducts/"+URLEncoder.encode(apiProduct, "UTF-8"));
             if(response == null) 
             	return false;
+            response.ignore(); // hands the connection back to the pool
         } catch (HttpResponseException e) {
             throw new IOException(e.getMessage());
         }
@@ -32,6 +32,7 @@ import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
@@ -129,7 +130,7 @@ public class AliasMojo extends GatewayAbstractMojo
 	/**
 	 * create alias values
 	 */
-	protected void doUpdate(List<String> aliases) throws MojoFailureException {
+	protected void doUpdate(List<ConfigEntity> aliases) throws MojoFailureException {
 		try {
 			List existingAliases = null;
 			if (buildOption != OPTIONS.update && 
@@ -139,8 +140,9 @@ public class AliasMojo extends GatewayAbstractMojo
 				return;
 			}
 
-	        for (String alias : aliases) {
+	        for (ConfigEntity entity : aliases) {
 	        	
+	        	String alias = entity.getPayloadAsString();
 	        	Alias a = getAliasObj(alias);
 	        	if (a.alias == null) {
 	        		throw new IllegalArgumentException(
@@ -156,6 +158,7 @@ public class AliasMojo extends GatewayAbstractMojo
         		if (existingAliases.contains(a.alias)) {
                     switch (buildOption) {
                         case update:
+                        case sync:
                         	logger.info("Alias \"" + a.alias + 
                                     "\" already exists. Updating.");
                         	updateAlias(serverProfile, alias);
@@ -169,13 +172,6 @@ public class AliasMojo extends GatewayAbstractMojo
                                                 "\" already exists. Deleting.");
                             deleteAlias(serverProfile, alias);
                             break;
-                        case sync:
-                            logger.info("Alias \"" + a.alias + 
-                                                "\" already exists. Deleting and recreating.");
-                            deleteAlias(serverProfile, alias);
-                            logger.info("Creating Alias - " + a.alias);
-                            createAlias(serverProfile, alias);
-                            break;
                     }
 	        	} else {
                     switch (buildOption) {
@@ -227,7 +223,7 @@ public class AliasMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			List aliases = getEnvConfig(logger, "aliases");
+			List<ConfigEntity> aliases = getEnvEntities(logger, "aliases");
 			if (aliases == null || aliases.size() == 0) {
 				logger.info("No alias config found.");
                 return;
@@ -252,7 +248,7 @@ public class AliasMojo extends GatewayAbstractMojo
     	validateAlias(alias);
     	    	
     	// Call rest helper
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
     	HttpResponse response = null;
     	//For selfsignedcert, pass the JSON payload
     	if(alias.format!=null && alias.format.equalsIgnoreCase("selfsignedcert")) {
@@ -308,7 +304,7 @@ public class AliasMojo extends GatewayAbstractMojo
     	validateAlias(alias);
     	    	
     	// Call rest helper
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
     	HttpResponse response = null;
     	//update is not supported for selfsignedcert, keycertjar or pkcs12 format
     	if(alias.format!=null && (alias.format.equalsIgnoreCase("selfsignedcert") || alias.format.equalsIgnoreCase("keycertjar") || alias.format.equalsIgnoreCase("pkcs12"))) {
@@ -364,7 +360,7 @@ public class AliasMojo extends GatewayAbstractMojo
                                         String aliasPayload)
             throws IOException, MojoFailureException {
     	Alias alias = getAliasObj(aliasPayload);
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteEnvConfig(profile, "keystores/"+URLEncoder.encode(alias.keystorename, "UTF-8")+"/aliases", alias.alias);
         try {
             
@@ -383,7 +379,7 @@ public class AliasMojo extends GatewayAbstractMojo
 
     public static List getAlias(ServerProfile profile, String keystore)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getEnvConfig(profile, "keystores/"+URLEncoder.encode(keystore, "UTF-8")+"/aliases");
         if(response == null) return new ArrayList();
         JSONArray aliases = null;
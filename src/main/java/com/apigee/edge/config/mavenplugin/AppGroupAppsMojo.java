@@ -25,17 +25,15 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
@@ -97,18 +95,16 @@ public class AppGroupAppsMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getAppGroupAppName(String payload) 
+	protected String getAppGroupAppName(ConfigEntity app) 
             throws MojoFailureException {
-		Gson gson = new Gson();
 		try {
-			AppGroupApp app = gson.fromJson(payload, AppGroupApp.class);
-			return app.name;
+			return app.as(AppGroupApp.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doUpdate(Map<String, List<String>> appGroupApps) 
+	protected void doUpdate(Map<String, List<ConfigEntity>> appGroupApps) 
             throws MojoFailureException {
 		try {
 			if (buildOption != OPTIONS.update && 
@@ -118,19 +114,20 @@ public class AppGroupAppsMojo extends GatewayAbstractMojo
 				return;
 			}
 
-            for (Map.Entry<String, List<String>> entry : appGroupApps.entrySet()) {
+            for (Map.Entry<String, List<ConfigEntity>> entry : appGroupApps.entrySet()) {
                 String appGroupId = URLEncoder.encode(entry.getKey(), "UTF-8");
                 
-    	        for (String appGroupApp : entry.getValue()) {
+    	        for (ConfigEntity appGroupApp : entry.getValue()) {
     	        	String appGroupAppName = getAppGroupAppName(appGroupApp);
     	        	if (appGroupAppName == null) {
     	        		throw new IllegalArgumentException(
-    	        			"App Group App does not have a name.\n" + appGroupApp + "\n");
+    	        			"App Group App does not have a name.\n" + appGroupApp.getPayloadAsString() + "\n");
     	        	}
 
     	        	if (doesAppGroupAppExist(serverProfile, appGroupId, appGroupAppName)) {
                         switch (buildOption) {
                             case update:
+                            case sync:
                                 logger.info("App Group App \"" + appGroupAppName + 
                                                         "\" exists. Updating.");
                                 updateAppGroupApp(serverProfile, appGroupId,
@@ -145,13 +142,6 @@ public class AppGroupAppsMojo extends GatewayAbstractMojo
                                                 "\" already exists. Deleting.");
                                 deleteAppGroupApp(serverProfile, appGroupId, appGroupAppName);
                                 break;
-                            case sync:
-                                logger.info("App Group App \"" + appGroupAppName + 
-                                                "\" already exists. Deleting and recreating.");
-                                deleteAppGroupApp(serverProfile, appGroupId, appGroupAppName);
-                                logger.info("Creating App Group App - " + appGroupAppName);
-                                createAppGroupApp(serverProfile, appGroupId, appGroupApp);
-                                break;
                         }
     	        	} else {
                         switch (buildOption) {
@@ -204,7 +194,7 @@ public class AppGroupAppsMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			Map<String, List<String>> appGroupApps = getOrgConfigWithId(logger, "appGroupApps");
+			Map<String, List<ConfigEntity>> appGroupApps = getOrgEntitiesWithId(logger, "appGroupApps");
 			if (appGroupApps == null || appGroupApps.size() == 0) {
 				logger.info("No App Group apps found.");
                 return;
@@ -227,10 +217,18 @@ public class AppGroupAppsMojo extends GatewayAbstractMojo
                                     String appGroupId,
                                     String app)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return createAppGroupApp(profile, appGroupId, ConfigEntity.of("appGroupApps", app));
+    }
+
+    public static String createAppGroupApp(ServerProfile profile, 
+                                    String appGroupId,
+                                    ConfigEntity app)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createOrgConfig(profile, 
                                         "appgroups/" + appGroupId + "/apps",
-                                         app);
+                                         app,
+                                         false);
         try {
 
             logger.debug("Response " + response.getContentType() + "\n" +
@@ -251,7 +249,16 @@ public class AppGroupAppsMojo extends GatewayAbstractMojo
                                     String appGroupAppName, 
                                     String appGroupApp)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return updateAppGroupApp(profile, appGroupId, appGroupAppName,
+                ConfigEntity.of("appGroupApps", appGroupApp));
+    }
+
+    public static String updateAppGroupApp(ServerProfile profile,
+                                    String appGroupId, 
+                                    String appGroupAppName, 
+                                    ConfigEntity appGroupApp)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.updateOrgConfig(profile, 
                                         "appgroups/" + appGroupId + "/apps", 
                                         appGroupAppName,
@@ -275,7 +282,7 @@ public class AppGroupAppsMojo extends GatewayAbstractMojo
                                     String appGroupId, 
                                     String appGroupAppName)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteOrgConfig(profile, 
                                         "appgroups/" + appGroupId + "/apps", 
                                         appGroupAppName);
@@ -296,33 +303,21 @@ public class AppGroupAppsMojo extends GatewayAbstractMojo
 
     public static List getAppGroupApp(ServerProfile profile, String appGroupId)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                         "appgroups/" + appGroupId + "/apps");
         if(response == null) return new ArrayList();
 
-        JSONArray apps = new JSONArray();
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            JSONArray appsArray    = (JSONArray)obj.get("appGroupApps");
-            for (int i = 0; appsArray != null && i < appsArray.size(); i++) {
-             	 JSONObject a = (JSONObject) appsArray.get(i);
-             	 apps.add(a.get("appId"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readList(response, "appGroupApps", "appId");
+        } catch (JsonProcessingException pe){
             logger.error("Get App parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Apps error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return apps;
     }
     
     //Method to remove the apiProducts from App payload for config update option so that it does not create credentials everytime
@@ -338,15 +333,23 @@ public class AppGroupAppsMojo extends GatewayAbstractMojo
 		}else
 			return appPayload; 	
 	}
+
+    public static ConfigEntity removeApiProductFromApp(ServerProfile profile, ConfigEntity app) {
+        if (!Boolean.TRUE.equals(profile.getIgnoreProductsForApp())) {
+            return app;
+        }
+        return ConfigEntity.of(app.getScope(), removeApiProductFromApp(profile, app.getPayloadAsString()));
+    }
     
     public static boolean doesAppGroupAppExist(ServerProfile profile, String appGroupId, String appGroupAppName)
             throws IOException {
         try {
-        	RestUtil restUtil = new RestUtil(profile);
+        	RestUtil restUtil = RestUtil.forProfile(profile);
         	logger.info("Checking if appGroupApp - " +appGroupAppName + " exist");
             HttpResponse response = restUtil.getOrgConfig(profile, "appgroups/"+appGroupId+"/apps/"+appGroupAppName);
             if(response == null) 
             	return false;
+            response.ignore(); // hands the connection back to the pool
         } catch (HttpResponseException e) {
             throw new IOException(e.getMessage());
         }
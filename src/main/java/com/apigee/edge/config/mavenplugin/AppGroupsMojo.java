@@ -24,17 +24,16 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -60,6 +59,10 @@ public class AppGroupsMojo extends GatewayAbstractMojo
 
 	private ServerProfile serverProfile;
 
+	/** compares an App Group with the existing one */
+	static final JsonComparator COMPARATOR = new JsonComparator(
+			"appGroupId", "organization", "status");
+
     public static class AppGroup {
         @Key
         public String name;
@@ -93,18 +96,16 @@ public class AppGroupsMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getAppGroupName(String payload) 
+	protected String getAppGroupName(ConfigEntity appGroup) 
             throws MojoFailureException {
-		Gson gson = new Gson();
 		try {
-			AppGroup appGroup = gson.fromJson(payload, AppGroup.class);
-			return appGroup.name;
+			return appGroup.as(AppGroup.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doUpdate(List<String> appGroups) 
+	protected void doUpdate(List<ConfigEntity> appGroups) 
             throws MojoFailureException {
 		try {
 			//List existingAppGroups = null;
@@ -115,16 +116,25 @@ public class AppGroupsMojo extends GatewayAbstractMojo
 				return;
 			}
 
-	        for (String appGroup : appGroups) {
+	        for (ConfigEntity appGroup : appGroups) {
 	        	String appGroupName = getAppGroupName(appGroup);
 	        	if (appGroupName == null) {
 	        		throw new IllegalArgumentException(
-	        			"App Group does not have a name.\n" + appGroup + "\n");
+	        			"App Group does not have a name.\n" + appGroup.getPayloadAsString() + "\n");
 	        	}
 
-	        	if (doesAppGroupExist(serverProfile, appGroupName)) {
+	        	// the existing App Group, fetched in the same call as the
+	        	// existence check so update can compare it
+	        	ConfigEntity existing = getAppGroup(serverProfile, appGroupName);
+	        	if (existing != null) {
                     switch (buildOption) {
                         case update:
+                        case sync:
+                            if (COMPARATOR.isUnchanged(appGroup, existing)) {
+                                logger.info("App Group \"" + appGroupName + 
+                                            "\" is unchanged. Skipping.");
+                                break;
+                            }
     						logger.info("App Group \"" + appGroupName + 
 			           					"\" exists. Updating.");
 	          				updateAppGroup(serverProfile, appGroupName, appGroup);
@@ -137,13 +147,6 @@ public class AppGroupsMojo extends GatewayAbstractMojo
                             logger.info("App Group \"" + appGroupName + 
                                         "\" already exists. Deleting.");
                             deleteAppGroup(serverProfile, appGroupName);
-                            break;
-                        case sync:
-                            logger.info("App Group \"" + appGroupName + 
-                                        "\" already exists. Deleting and recreating.");
-                            deleteAppGroup(serverProfile, appGroupName);
-                            logger.info("Creating App Group - " + appGroupName);
-                            createAppGroup(serverProfile, appGroup);
                             break;
 	        		}
 	        	} else {
@@ -196,7 +199,7 @@ public class AppGroupsMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			List appGroups = getOrgConfig(logger, "appGroups");
+			List<ConfigEntity> appGroups = getOrgEntities(logger, "appGroups");
 			if (appGroups == null || appGroups.size() == 0) {
 				logger.info("No App Groups found.");
                 return;
@@ -216,10 +219,16 @@ public class AppGroupsMojo extends GatewayAbstractMojo
      **/
     public static String createAppGroup(ServerProfile profile, String appGroup)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return createAppGroup(profile, ConfigEntity.of("appGroups", appGroup));
+    }
+
+    public static String createAppGroup(ServerProfile profile, ConfigEntity appGroup)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createOrgConfig(profile, 
                                                          "appgroups",
-                                                         appGroup);
+                                                         appGroup,
+                                                         false);
         try {
 
             logger.info("Response " + response.getContentType() + "\n" +
@@ -239,7 +248,14 @@ public class AppGroupsMojo extends GatewayAbstractMojo
                                         String appGroupName, 
                                         String appGroup)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return updateAppGroup(profile, appGroupName, ConfigEntity.of("appGroups", appGroup));
+    }
+
+    public static String updateAppGroup(ServerProfile profile, 
+                                        String appGroupName, 
+                                        ConfigEntity appGroup)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.updateOrgConfig(profile, 
                                                         "appgroups", 
                                                         appGroupName,
@@ -262,7 +278,7 @@ public class AppGroupsMojo extends GatewayAbstractMojo
     public static String deleteAppGroup(ServerProfile profile,
                                             String appGroupName)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteOrgConfig(profile, 
                                                         "appgroups", 
                                                         appGroupName);
@@ -283,42 +299,48 @@ public class AppGroupsMojo extends GatewayAbstractMojo
 
     public static List getAppGroup(ServerProfile profile)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                                     "appgroups");
         if(response == null) return new ArrayList();
-        JSONArray appGroups = new JSONArray();
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            JSONArray appGroupsArray    = (JSONArray)obj.get("appGroups");
-            for (int i = 0; appGroupsArray != null && i < appGroupsArray.size(); i++) {
-             	 JSONObject a = (JSONObject) appGroupsArray.get(i);
-             	appGroups.add(a.get("name"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readList(response, "appGroups", "name");
+        } catch (JsonProcessingException pe){
             logger.error("Get App Group parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get App Group error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return appGroups;
     }
     
+    /**
+     * @return the App Group, null if it does not exist
+     */
+    public static ConfigEntity getAppGroup(ServerProfile profile, String appGroup)
+            throws IOException {
+        try {
+        	RestUtil restUtil = RestUtil.forProfile(profile);
+        	logger.info("Checking if App Group - " +appGroup + " exist");
+            HttpResponse response = restUtil.getOrgConfig(profile, "appgroups/"+URLEncoder.encode(appGroup, "UTF-8"));
+            if(response == null) 
+            	return null;
+            return ConfigEntity.of("appGroups", response.parseAsString());
+        } catch (HttpResponseException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
     public static boolean doesAppGroupExist(ServerProfile profile, String appGroup)
             throws IOException {
         try {
-        	RestUtil restUtil = new RestUtil(profile);
+        	RestUtil restUtil = RestUtil.forProfile(profile);
         	logger.info("Checking if App Group - " +appGroup + " exist");
             HttpResponse response = restUtil.getOrgConfig(profile, "appgroups/"+URLEncoder.encode(appGroup, "UTF-8"));
             if(response == null) 
             	return false;
+            response.ignore(); // hands the connection back to the pool
         } catch (HttpResponseException e) {
             throw new IOException(e.getMessage());
         }
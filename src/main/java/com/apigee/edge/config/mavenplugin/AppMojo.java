@@ -18,24 +18,30 @@ package com.apigee.edge.config.mavenplugin;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.reconcile.Reconciler;
+import com.apigee.edge.config.reconcile.RemoteState;
+import com.apigee.edge.config.reconcile.ResourceAdapter;
+import com.apigee.edge.config.rest.JsonResponseReader;
+import com.apigee.edge.config.rest.PagedListReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
@@ -64,6 +70,10 @@ public class AppMojo extends GatewayAbstractMojo
 
 	private ServerProfile serverProfile;
 
+	/** compares an app with the existing one, its products aside */
+	static final JsonComparator COMPARATOR = new JsonComparator(
+			"appId", "developerId", "credentials", "status", "appFamily");
+
     public static class App {
         @Key
         public String name;
@@ -97,21 +107,18 @@ public class AppMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getAppName(String payload) 
+	protected String getAppName(ConfigEntity app) 
             throws MojoFailureException {
-		Gson gson = new Gson();
 		try {
-			App app = gson.fromJson(payload, App.class);
-			return app.name;
+			return app.as(App.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doUpdate(Map<String, List<String>> devApps) 
+	protected void doUpdate(Map<String, List<ConfigEntity>> devApps) 
             throws MojoFailureException {
 		try {
-			//List existingApps = null;
 			if (buildOption != OPTIONS.update && 
                 buildOption != OPTIONS.create &&
 				buildOption != OPTIONS.delete &&
@@ -119,59 +126,26 @@ public class AppMojo extends GatewayAbstractMojo
 				return;
 			}
 
-            for (Map.Entry<String, List<String>> entry : devApps.entrySet()) {
-
-            	//logger.info("Retrieving Apps of " + entry.getKey());
-                String developerId = URLEncoder.encode(entry.getKey(), "UTF-8");
-                //existingApps = getApp(serverProfile, developerId);
-
-    	        for (String app : entry.getValue()) {
-    	        	String appName = getAppName(app);
-    	        	if (appName == null) {
-    	        		throw new IllegalArgumentException(
-    	        			"App does not have a name.\n" + app + "\n");
-    	        	}
-
-    	        	if (doesDeveloperAppExist(serverProfile, developerId, appName)) {
-                        switch (buildOption) {
-                            case update:
-                                logger.info("App \"" + appName + 
-                                                        "\" exists. Updating.");
-                                updateApp(serverProfile, developerId,
-                                                        appName, app);
-                                break;
-                            case create:
-                                logger.info("App \"" + appName + 
-                                                "\" already exists. Skipping.");
-                                break;
-                            case delete:
-                                logger.info("App \"" + appName + 
-                                                "\" already exists. Deleting.");
-                                deleteApp(serverProfile, developerId, appName);
-                                break;
-                            case sync:
-                                logger.info("App \"" + appName + 
-                                                "\" already exists. Deleting and recreating.");
-                                deleteApp(serverProfile, developerId, appName);
-                                logger.info("Creating App - " + appName);
-                                createApp(serverProfile, developerId, app);
-                                break;
-                        }
-    	        	} else {
-                        switch (buildOption) {
-                            case create:
-                            case sync:
-                            case update:
-                                logger.info("Creating App - " + appName);
-                                createApp(serverProfile, developerId, app);
-                                break;
-                            case delete:
-                                logger.info("App \"" + appName + 
-                                                "\" does not exist. Skipping.");
-                                break;
-                        }
-    	        	}
-    			}
+            for (Map.Entry<String, List<ConfigEntity>> entry : devApps.entrySet()) {
+
+                String developerEmail = entry.getKey();
+                String developerId = URLEncoder.encode(developerEmail, "UTF-8");
+                String resource = "developers/" + developerId + "/apps";
+                List<ConfigEntity> apps = entry.getValue();
+                if (buildOption == OPTIONS.update) {
+                    apps = removeUnchanged(logger, resource, apps, this::getAppName);
+                }
+                if (apps.isEmpty()) {
+                    continue;
+                }
+
+                // which apps exist comes from the developer index, listed
+                // once per build
+                Reconciler reconciler = new Reconciler(serverProfile,
+                        new AppAdapter(developerEmail, developerId, resource))
+                        .setPrune(isPrune());
+                reconciler.reconcile(apps,
+                        Reconciler.Option.valueOf(buildOption.name()));
             }
 		
 		} catch (IOException e) {
@@ -179,6 +153,104 @@ public class AppMojo extends GatewayAbstractMojo
 														 e.getMessage());
 		} catch (RuntimeException e) {
 			throw e;
+		} finally {
+			saveManifest();
+		}
+	}
+
+	/**
+	 * The apps of a developer as seen by the {@link Reconciler}.
+	 */
+	class AppAdapter implements ResourceAdapter {
+
+		private final String developerEmail;
+		private final String developerId;
+		private final String resource;
+
+		AppAdapter(String developerEmail, String developerId, String resource) {
+			this.developerEmail = developerEmail;
+			this.developerId = developerId;
+			this.resource = resource;
+		}
+
+		public String getType() {
+			return "App";
+		}
+
+		public String getName(ConfigEntity entity) {
+			return entity.getName();
+		}
+
+		public JsonComparator getComparator() {
+			return COMPARATOR;
+		}
+
+		/**
+		 * The products of an app are not a field of the existing app but
+		 * those of its credentials, an app is unchanged if its credentials
+		 * cover its products.
+		 */
+		@SuppressWarnings("unchecked")
+		public boolean isUnchanged(ConfigEntity app, ConfigEntity remote) throws IOException {
+			Object desired = app.getTree();
+			Object actual = remote.getTree();
+			if (!(desired instanceof Map) || !(actual instanceof Map)) {
+				return COMPARATOR.isUnchanged(desired, actual);
+			}
+			Map<String, Object> fields = new TreeMap<String, Object>((Map<String, Object>) desired);
+			Object products = fields.remove("apiProducts");
+			if (products instanceof List && !Boolean.TRUE.equals(serverProfile.getIgnoreProductsForApp())
+					&& !getCredentialProducts((Map<String, Object>) actual).containsAll((List<Object>) products)) {
+				return false;
+			}
+			return COMPARATOR.isUnchanged(fields, actual);
+		}
+
+		/**
+		 * Which apps exist comes from the developer index. Their content is
+		 * only needed to compare them in update and sync mode, it is then
+		 * listed for the developer in one go.
+		 */
+		public RemoteState fetchAll() throws IOException {
+			RemoteState state = new RemoteState(this);
+			Set<String> appNames = getDeveloperIndex().getApps(developerEmail);
+			if (!getDeveloperIndex().isComplete() && !getDeveloperIndex().hasDeveloper(developerEmail)) {
+				// the developer may not have been listed, nor its apps
+				state.setComplete(false);
+			}
+			if ((buildOption == OPTIONS.update || buildOption == OPTIONS.sync) && !appNames.isEmpty()) {
+				if (!new PagedListReader(serverProfile, resource, "app", "name")
+						.readAll(app -> state.add(new ConfigEntity(resource, app)))) {
+					state.setComplete(false);
+				}
+			}
+			for (String appName : appNames) {
+				if (!state.contains(appName)) {
+					state.addName(appName);
+				}
+			}
+			return state;
+		}
+
+		public ConfigEntity fetch(String appName) throws IOException {
+			return getDeveloperApp(serverProfile, developerId, appName);
+		}
+
+		public void create(String appName, ConfigEntity app) throws IOException {
+			createApp(serverProfile, developerId, app);
+			markApplied(resource, appName, app);
+			getDeveloperIndex().appCreated(developerEmail, appName);
+		}
+
+		public void update(String appName, ConfigEntity app) throws IOException {
+			updateApp(serverProfile, developerId, appName, app);
+			markApplied(resource, appName, app);
+		}
+
+		public void delete(String appName) throws IOException {
+			deleteApp(serverProfile, developerId, appName);
+			markDeleted(resource, appName);
+			getDeveloperIndex().appDeleted(developerEmail, appName);
 		}
 	}
 
@@ -208,7 +280,7 @@ public class AppMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			Map<String, List<String>> apps = getOrgConfigWithId(logger, "developerApps");
+			Map<String, List<ConfigEntity>> apps = getOrgEntitiesWithId(logger, "developerApps");
 			if (apps == null || apps.size() == 0) {
 				logger.info("No developers apps found.");
                 return;
@@ -231,10 +303,18 @@ public class AppMojo extends GatewayAbstractMojo
                                     String developerId,
                                     String app)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return createApp(profile, developerId, ConfigEntity.of("developerApps", app));
+    }
+
+    public static String createApp(ServerProfile profile, 
+                                    String developerId,
+                                    ConfigEntity app)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createOrgConfig(profile, 
                                         "developers/" + developerId + "/apps",
-                                         app);
+                                         app,
+                                         false);
         try {
 
             logger.debug("Response " + response.getContentType() + "\n" +
@@ -255,7 +335,15 @@ public class AppMojo extends GatewayAbstractMojo
                                     String appName, 
                                     String app)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return updateApp(profile, developerId, appName, ConfigEntity.of("developerApps", app));
+    }
+
+    public static String updateApp(ServerProfile profile,
+                                    String developerId, 
+                                    String appName, 
+                                    ConfigEntity app)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.updateOrgConfig(profile, 
                                         "developers/" + developerId + "/apps", 
                                         appName,
@@ -279,7 +367,7 @@ public class AppMojo extends GatewayAbstractMojo
                                     String developerId, 
                                     String appName)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteOrgConfig(profile, 
                                         "developers/" + developerId + "/apps", 
                                         appName);
@@ -300,33 +388,21 @@ public class AppMojo extends GatewayAbstractMojo
 
     public static List getApp(ServerProfile profile, String developerId)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                         "developers/" + developerId + "/apps");
         if(response == null) return new ArrayList();
 
-        JSONArray apps = new JSONArray();
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            JSONArray appsArray    = (JSONArray)obj.get("app");
-            for (int i = 0; appsArray != null && i < appsArray.size(); i++) {
-             	 JSONObject a = (JSONObject) appsArray.get(i);
-             	 apps.add(a.get("appId"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readList(response, "app", "appId");
+        } catch (JsonProcessingException pe){
             logger.error("Get App parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Apps error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return apps;
     }
     
     //Method to remove the apiProducts from App payload for config update option so that it does not create credentials everytime
@@ -342,15 +418,62 @@ public class AppMojo extends GatewayAbstractMojo
 		}else
 			return appPayload; 	
 	}
+
+    public static ConfigEntity removeApiProductFromApp(ServerProfile profile, ConfigEntity app) {
+        if (!Boolean.TRUE.equals(profile.getIgnoreProductsForApp())) {
+            return app;
+        }
+        return ConfigEntity.of(app.getScope(), removeApiProductFromApp(profile, app.getPayloadAsString()));
+    }
     
+    /**
+     * @return the App, null if it does not exist
+     */
+    public static ConfigEntity getDeveloperApp(ServerProfile profile, String developerId, String appName)
+            throws IOException {
+        try {
+        	RestUtil restUtil = RestUtil.forProfile(profile);
+            HttpResponse response = restUtil.getOrgConfig(profile, "developers/" + developerId + "/apps/"
+                                        + URLEncoder.encode(appName, "UTF-8"));
+            if(response == null) 
+            	return null;
+            return ConfigEntity.of("developers/" + developerId + "/apps", response.parseAsString());
+        } catch (HttpResponseException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the products of all the credentials of the app
+     */
+    @SuppressWarnings("unchecked")
+    static Set<Object> getCredentialProducts(Map<String, Object> app) {
+        Set<Object> products = new HashSet<Object>();
+        Object credentials = app.get("credentials");
+        if (credentials instanceof List) {
+            for (Object credential : (List<Object>) credentials) {
+                Object credentialProducts = (credential instanceof Map)
+                        ? ((Map<String, Object>) credential).get("apiProducts") : null;
+                if (credentialProducts instanceof List) {
+                    for (Object product : (List<Object>) credentialProducts) {
+                        products.add((product instanceof Map) ? ((Map<String, Object>) product).get("apiproduct")
+                                : product);
+                    }
+                }
+            }
+        }
+        return products;
+    }
+
     public static boolean doesDeveloperAppExist(ServerProfile profile, String developerEmail, String appName)
             throws IOException {
         try {
-        	RestUtil restUtil = new RestUtil(profile);
+        	RestUtil restUtil = RestUtil.forProfile(profile);
         	logger.info("Checking if developerApp - " +appName + " exist");
             HttpResponse response = restUtil.getOrgConfig(profile, "developers/"+developerEmail+"/apps/"+appName);
             if(response == null) 
             	return false;
+            response.ignore(); // hands the connection back to the pool
         } catch (HttpResponseException e) {
             throw new IOException(e.getMessage());
         }
@@ -24,17 +24,20 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.reconcile.DeveloperIndex;
+import com.apigee.edge.config.reconcile.Reconciler;
+import com.apigee.edge.config.reconcile.RemoteState;
+import com.apigee.edge.config.reconcile.ResourceAdapter;
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -60,6 +63,10 @@ public class DeveloperMojo extends GatewayAbstractMojo
 
 	private ServerProfile serverProfile;
 
+	/** compares a developer with the existing one */
+	static final JsonComparator COMPARATOR = new JsonComparator(
+			"developerId", "organizationName", "apps", "status");
+
     public static class Developer {
         @Key
         public String email;
@@ -93,85 +100,101 @@ public class DeveloperMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getDeveloperName(String payload) 
+	protected String getDeveloperName(ConfigEntity developer) 
             throws MojoFailureException {
-		Gson gson = new Gson();
 		try {
-			Developer developer = gson.fromJson(payload, Developer.class);
-			return developer.email;
+			return developer.as(Developer.class).email;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doUpdate(List<String> developers) 
+	protected void doUpdate(List<ConfigEntity> developers) 
             throws MojoFailureException {
 		try {
-			//List existingDevelopers = null;
 			if (buildOption != OPTIONS.update && 
 				buildOption != OPTIONS.create && 
                 buildOption != OPTIONS.delete && 
                 buildOption != OPTIONS.sync) {
 				return;
 			}
-			
-			//Commenting due to https://github.com/apigee/apigee-config-maven-plugin/issues/130
-			//logger.info("Retrieving existing Developers");
-			//existingDevelopers = getDeveloper(serverProfile);
-
-	        for (String developer : developers) {
-	        	String developerEmail = getDeveloperName(developer);
-	        	if (developerEmail == null) {
-	        		throw new IllegalArgumentException(
-	        				"Developer does not have an email.\n" + developer + "\n");
-	        	}
-
-	        	if (doesDeveloperExist(serverProfile, developerEmail)) {
-                    switch (buildOption) {
-                        case update:
-                            logger.info("Developer \"" + developerEmail + 
-                                                    "\" exists. Updating.");
-                            updateDeveloper(serverProfile,
-                            		developerEmail, developer);
-                            break;
-                        case create:
-                            logger.info("Developer \"" + developerEmail + 
-                                                "\" already exists. Skipping.");
-                            break;
-                        case delete:
-                            logger.info("Developer \"" + developerEmail + 
-                                    "\" already exists. Deleting.");
-                            deleteDeveloper(serverProfile, developerEmail);
-                            break;
-                        case sync:
-                            logger.info("Developer \"" + developerEmail + 
-                                    "\" already exists. Deleting and recreating.");
-                            deleteDeveloper(serverProfile, developerEmail);
-                            logger.info("Creating Developer - " + developerEmail);
-                            createDeveloper(serverProfile, developer);
-                                break;
-                    }
-	        	} else {
-                    switch (buildOption) {
-                        case create:
-                        case sync:
-                        case update:
-                            logger.info("Creating Developer - " + developerEmail);
-                            createDeveloper(serverProfile, developer);
-                            break;
-                        case delete:
-                            logger.info("Developer \"" + developerEmail + 
-                                        "\" does not exist. Skipping.");
-                            break;
-                    }
-	        	}
+
+			if (buildOption == OPTIONS.update) {
+				developers = removeUnchanged(logger, "developers", developers, this::getDeveloperName);
 			}
+			if (developers.isEmpty()) {
+				return;
+			}
+
+			// the existing developers come from the developer index, listed
+			// once per build, and are compared with the config locally; only
+			// the needed writes are made
+			Reconciler reconciler = new Reconciler(serverProfile, new DeveloperAdapter())
+					.setPrune(isPrune());
+			reconciler.reconcile(developers,
+					Reconciler.Option.valueOf(buildOption.name()));
 		
 		} catch (IOException e) {
 			throw new MojoFailureException("Apigee network call error " +
 														 e.getMessage());
 		} catch (RuntimeException e) {
 			throw e;
+		} finally {
+			saveManifest();
+		}
+	}
+
+	/**
+	 * Developers as seen by the {@link Reconciler}, matched on their email
+	 * whatever its case.
+	 */
+	class DeveloperAdapter implements ResourceAdapter {
+
+		public String getType() {
+			return "Developer";
+		}
+
+		public String getName(ConfigEntity entity) {
+			return entity.as(Developer.class).email;
+		}
+
+		public String getKey(String developerEmail) {
+			return DeveloperIndex.key(developerEmail);
+		}
+
+		public JsonComparator getComparator() {
+			return COMPARATOR;
+		}
+
+		public RemoteState fetchAll() throws IOException {
+			RemoteState state = new RemoteState(this);
+			for (ConfigEntity developer : getDeveloperIndex().getDevelopers().values()) {
+				state.add(developer);
+			}
+			state.setComplete(getDeveloperIndex().isComplete());
+			return state;
+		}
+
+		public ConfigEntity fetch(String developerEmail) throws IOException {
+			return getDeveloper(serverProfile, developerEmail);
+		}
+
+		public void create(String developerEmail, ConfigEntity developer) throws IOException {
+			createDeveloper(serverProfile, developer);
+			markApplied("developers", developerEmail, developer);
+			getDeveloperIndex().developerApplied(developerEmail, developer);
+		}
+
+		public void update(String developerEmail, ConfigEntity developer) throws IOException {
+			updateDeveloper(serverProfile, developerEmail, developer);
+			markApplied("developers", developerEmail, developer);
+			getDeveloperIndex().developerApplied(developerEmail, developer);
+		}
+
+		public void delete(String developerEmail) throws IOException {
+			deleteDeveloper(serverProfile, developerEmail);
+			markDeleted("developers", developerEmail);
+			getDeveloperIndex().developerDeleted(developerEmail);
 		}
 	}
 
@@ -201,7 +224,7 @@ public class DeveloperMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			List developers = getOrgConfig(logger, "developers");
+			List<ConfigEntity> developers = getOrgEntities(logger, "developers");
 			if (developers == null || developers.size() == 0) {
 				logger.info("No Developers found.");
                 return;
@@ -221,10 +244,16 @@ public class DeveloperMojo extends GatewayAbstractMojo
      **/
     public static String createDeveloper(ServerProfile profile, String developer)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return createDeveloper(profile, ConfigEntity.of("developers", developer));
+    }
+
+    public static String createDeveloper(ServerProfile profile, ConfigEntity developer)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createOrgConfig(profile, 
                                                          "developers",
-                                                         developer);
+                                                         developer,
+                                                         false);
         try {
 
             logger.info("Response " + response.getContentType() + "\n" +
@@ -244,7 +273,14 @@ public class DeveloperMojo extends GatewayAbstractMojo
                                         String developerId, 
                                         String developer)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return updateDeveloper(profile, developerId, ConfigEntity.of("developers", developer));
+    }
+
+    public static String updateDeveloper(ServerProfile profile, 
+                                        String developerId, 
+                                        ConfigEntity developer)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.updateOrgConfig(profile, 
                                                         "developers", 
                                                         developerId,
@@ -267,7 +303,7 @@ public class DeveloperMojo extends GatewayAbstractMojo
     public static String deleteDeveloper(ServerProfile profile, 
                                         String developerId)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteOrgConfig(profile, 
                                                         "developers", 
                                                         developerId);
@@ -288,41 +324,47 @@ public class DeveloperMojo extends GatewayAbstractMojo
 
     public static List getDeveloper(ServerProfile profile)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, "developers");
         if(response == null) return new ArrayList();
-        JSONArray developers = new JSONArray();
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            JSONArray developersArray    = (JSONArray)obj.get("developer");
-            for (int i = 0; developersArray != null && i < developersArray.size(); i++) {
-             	 JSONObject a = (JSONObject) developersArray.get(i);
-             	 developers.add(a.get("email"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readList(response, "developer", "email");
+        } catch (JsonProcessingException pe){
             logger.error("Get Developer parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Developer error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return developers;
     }	
     
+    /**
+     * @return the Developer, null if it does not exist
+     */
+    public static ConfigEntity getDeveloper(ServerProfile profile, String developerEmail)
+            throws IOException {
+        try {
+        	RestUtil restUtil = RestUtil.forProfile(profile);
+        	logger.info("Checking if developer - " +developerEmail + " exist");
+            HttpResponse response = restUtil.getOrgConfig(profile, "developers/"+URLEncoder.encode(developerEmail, "UTF-8"));
+            if(response == null) 
+            	return null;
+            return ConfigEntity.of("developers", response.parseAsString());
+        } catch (HttpResponseException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
     public static boolean doesDeveloperExist(ServerProfile profile, String developerEmail)
             throws IOException {
         try {
-        	RestUtil restUtil = new RestUtil(profile);
+        	RestUtil restUtil = RestUtil.forProfile(profile);
         	logger.info("Checking if developer - " +developerEmail + " exist");
             HttpResponse response = restUtil.getOrgConfig(profile, "developers/"+URLEncoder.encode(developerEmail, "UTF-8"));
             if(response == null) 
             	return false;
+            response.ignore(); // hands the connection back to the pool
         } catch (HttpResponseException e) {
             throw new IOException(e.getMessage());
         }
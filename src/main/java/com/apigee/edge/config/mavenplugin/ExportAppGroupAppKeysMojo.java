@@ -28,13 +28,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
@@ -105,18 +104,16 @@ public class ExportAppGroupAppKeysMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getAppGroupAppName(String payload) 
+	protected String getAppGroupAppName(ConfigEntity app) 
             throws MojoFailureException {
-		Gson gson = new Gson();
 		try {
-			AppGroupApp app = gson.fromJson(payload, AppGroupApp.class);
-			return app.name;
+			return app.as(AppGroupApp.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doExport(Map<String, List<String>> apps) 
+	protected void doExport(Map<String, List<ConfigEntity>> apps) 
             throws MojoFailureException {
 		if(exportDir==null || exportDir ==""){
     		throw new MojoFailureException("Please provide the directory where the appGroupAppKeys.json file should be exported (-Dapigee.config.exportDir)");
@@ -124,7 +121,7 @@ public class ExportAppGroupAppKeysMojo extends GatewayAbstractMojo
 		try {
 			List<String> existingApps = null;
 			List<AppGroupApp> appGroupApps = new ArrayList<AppGroupApp>();
-            for (Map.Entry<String, List<String>> entry : apps.entrySet()) {
+            for (Map.Entry<String, List<ConfigEntity>> entry : apps.entrySet()) {
 
                 String appGroupId = URLEncoder.encode(entry.getKey(), "UTF-8");
                 logger.info("Retrieving App Group Apps of " + appGroupId);
@@ -193,7 +190,7 @@ public class ExportAppGroupAppKeysMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			Map<String, List<String>> apps = getOrgConfigWithId(logger, "appGroupApps");
+			Map<String, List<ConfigEntity>> apps = getOrgEntitiesWithId(logger, "appGroupApps");
 			if (apps == null || apps.size() == 0) {
 				logger.info("No App Group apps found.");
                 return;
@@ -215,35 +212,25 @@ public class ExportAppGroupAppKeysMojo extends GatewayAbstractMojo
 	
 	public static List getAppGroupApp(ServerProfile profile, String appGroupId)
             throws IOException, MojoFailureException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                         "appgroups/" + appGroupId + "/apps");
         if(response == null) return new ArrayList<String>();
-       JSONArray appsList = new JSONArray();
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            JSONArray appsArray    = (JSONArray)obj.get("appGroupApps");
-            for (int i = 0; appsArray != null && i < appsArray.size(); i++) {
-             	 JSONObject a = (JSONObject) appsArray.get(i);
-             	appsList.add(a.get("name"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readList(response, "appGroupApps", "name");
+        } catch (JsonProcessingException pe){
             logger.error("Get App parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Apps error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-        return appsList;
     }	
     
     public static AppGroupApp getAppGroupAppDetails(ServerProfile profile, String appGroupId, String app)
             throws IOException, MojoFailureException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                         "appgroups/" + appGroupId + "/apps/"+app);
         AppGroupApp appObj = null;
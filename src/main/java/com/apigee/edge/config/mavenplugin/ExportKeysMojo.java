@@ -28,13 +28,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
@@ -105,18 +104,16 @@ public class ExportKeysMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getAppName(String payload) 
+	protected String getAppName(ConfigEntity app) 
             throws MojoFailureException {
-		Gson gson = new Gson();
 		try {
-			App app = gson.fromJson(payload, App.class);
-			return app.name;
+			return app.as(App.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doExport(Map<String, List<String>> apps) 
+	protected void doExport(Map<String, List<ConfigEntity>> apps) 
             throws MojoFailureException {
 		if(exportDir==null || exportDir ==""){
     		throw new MojoFailureException("Please provide the directory where the devAppKeys.json file should be exported (-Dapigee.config.exportDir)");
@@ -124,7 +121,7 @@ public class ExportKeysMojo extends GatewayAbstractMojo
 		try {
 			List<String> existingApps = null;
 			List<App> devApps = new ArrayList<App>();
-            for (Map.Entry<String, List<String>> entry : apps.entrySet()) {
+            for (Map.Entry<String, List<ConfigEntity>> entry : apps.entrySet()) {
 
                 String developerId = URLEncoder.encode(entry.getKey(), "UTF-8");
                 logger.info("Retrieving Apps of " + developerId);
@@ -193,7 +190,7 @@ public class ExportKeysMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			Map<String, List<String>> apps = getOrgConfigWithId(logger, "developerApps");
+			Map<String, List<ConfigEntity>> apps = getOrgEntitiesWithId(logger, "developerApps");
 			if (apps == null || apps.size() == 0) {
 				logger.info("No developers apps found.");
                 return;
@@ -215,35 +212,25 @@ public class ExportKeysMojo extends GatewayAbstractMojo
 
     public static List getApp(ServerProfile profile, String developerId)
             throws IOException, MojoFailureException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                         "developers/" + developerId + "/apps");
         if(response == null) return new ArrayList<String>();
-       JSONArray appsList = new JSONArray();
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            JSONArray appsArray    = (JSONArray)obj.get("app");
-            for (int i = 0; appsArray != null && i < appsArray.size(); i++) {
-             	 JSONObject a = (JSONObject) appsArray.get(i);
-             	appsList.add(a.get("appId"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readList(response, "app", "appId");
+        } catch (JsonProcessingException pe){
             logger.error("Get App parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Apps error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-        return appsList;
     }	
     
     public static App getAppDetails(ServerProfile profile, String developerId, String app)
             throws IOException, MojoFailureException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                         "developers/" + developerId + "/apps/"+app);
        App appObj = null;
@@ -29,11 +29,11 @@ import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -94,11 +94,9 @@ public class FlowHookMojo extends GatewayAbstractMojo
 
 	}
 
-	protected FlowHook getFlowhookName(String payload) throws MojoFailureException {
-		Gson gson = new Gson();
+	protected FlowHook getFlowhookName(ConfigEntity flowhook) throws MojoFailureException {
 		try {
-			FlowHook flowHook = gson.fromJson(payload, FlowHook.class);
-			return flowHook;
+			return flowhook.as(FlowHook.class);
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
@@ -107,7 +105,7 @@ public class FlowHookMojo extends GatewayAbstractMojo
 	/**
 	 * FlowHooks
 	 */
-	protected void doUpdate(List<String> flowhooks) throws MojoFailureException {
+	protected void doUpdate(List<ConfigEntity> flowhooks) throws MojoFailureException {
 		try {
 			//List existingFlowhooks = null;
 			if (buildOption != OPTIONS.update && 
@@ -117,13 +115,13 @@ public class FlowHookMojo extends GatewayAbstractMojo
 				return;
 			}
 
-	        for (String flowhook : flowhooks) {
+	        for (ConfigEntity flowhook : flowhooks) {
 	        	FlowHook fk = getFlowhookName(flowhook);
 	        	String flowhookName = fk.flowHookPoint;
 	        	String sharedFlow = fk.sharedFlow;
 	        	if (flowhookName == null) {
 	        		throw new IllegalArgumentException(
-	        			"Flowhook does not have a flowHookPoint.\n" + flowhook + "\n");
+	        			"Flowhook does not have a flowHookPoint.\n" + flowhook.getPayloadAsString() + "\n");
 	        	}
                 switch (buildOption) {
                     case update:
@@ -181,7 +179,7 @@ public class FlowHookMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			List flowhooks = getEnvConfig(logger, "flowhooks");
+			List<ConfigEntity> flowhooks = getEnvEntities(logger, "flowhooks");
 			if (flowhooks == null || flowhooks.size() == 0) {
 				logger.info("No flowhooks config found.");
                 return;
@@ -202,7 +200,12 @@ public class FlowHookMojo extends GatewayAbstractMojo
 	
 	public static String createUpdateFlowhook(ServerProfile profile, String flowhookName, String flowhook, String sharedFlow, String operation)
 			throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		return createUpdateFlowhook(profile, flowhookName, ConfigEntity.of("flowhooks", flowhook), sharedFlow, operation);
+	}
+
+	public static String createUpdateFlowhook(ServerProfile profile, String flowhookName, ConfigEntity flowhook, String sharedFlow, String operation)
+			throws IOException {
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		try {
 			if(operation.equals("Create") && (sharedFlow == null || sharedFlow.equals(""))) {
 				logger.info("Skipping the creation as sharedFlow is empty");
@@ -230,7 +233,7 @@ public class FlowHookMojo extends GatewayAbstractMojo
                                         String flowhookName,
                                         String flowhook)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteEnvConfig(profile, "flowhooks", 
         		flowhookName, flowhook);
         try {
@@ -250,7 +253,7 @@ public class FlowHookMojo extends GatewayAbstractMojo
 
     public static List getFlowhook(ServerProfile profile)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getEnvConfig(profile, "flowhooks");
         if(response == null) return new ArrayList();
         JSONArray flowhooks = null;
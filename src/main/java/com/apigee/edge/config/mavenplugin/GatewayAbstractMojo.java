@@ -19,25 +19,26 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.http.HttpHost;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Proxy;
 import org.apache.maven.settings.Settings;
@@ -51,9 +52,19 @@ import org.codehaus.plexus.context.Context;
 import org.codehaus.plexus.context.ContextException;
 import org.codehaus.plexus.personality.plexus.lifecycle.phase.Contextualizable;
 
+import com.apigee.edge.config.reconcile.DeveloperIndex;
+import com.apigee.edge.config.rest.AsyncRestUtil;
+import com.apigee.edge.config.rest.HttpClientPool;
+import com.apigee.edge.config.utils.ApplyManifest;
+import com.apigee.edge.config.utils.ConfigCache;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.ConfigFileIndex;
 import com.apigee.edge.config.utils.ConfigReader;
 import com.apigee.edge.config.utils.ConsolidatedConfigReader;
+import com.apigee.edge.config.utils.GitChangeSet;
+import com.apigee.edge.config.utils.PlaceholderResolver;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.apigee.edge.config.utils.SessionScope;
 
 public abstract class GatewayAbstractMojo extends AbstractMojo implements Contextualizable {
 	
@@ -205,6 +216,13 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
  	 */
 	private String configDir;
 	
+	/**
+	 * Read edge.json as a token stream, copying out only the entities of the
+	 * goal, instead of parsing (and caching) the whole document
+	 * @parameter property="apigee.config.streaming" default-value="false"
+ 	 */
+	private boolean streaming;
+	
 	/**
 	 * Export dir for Apigee Dev App Keys
 	 * 
@@ -291,6 +309,108 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
  	 */
 	private String ignoreProductsForApp;
 	
+	/**
+	 * Max number of pooled connections kept open to the management API host
+	 * @parameter property="apigee.config.maxConnectionsPerRoute" default-value="20"
+ 	 */
+	private int maxConnectionsPerRoute;
+	
+	/**
+	 * Seconds a pooled connection can stay idle before it is evicted
+	 * @parameter property="apigee.config.connectionIdleTimeout" default-value="30"
+ 	 */
+	private int connectionIdleTimeout;
+	
+	/**
+	 * HTTP transport used for the management API: apache, nethttp or http2 (Java 11+)
+	 * @parameter property="apigee.config.transport" default-value="apache"
+ 	 */
+	private String transport;
+	
+	/**
+	 * Max number of management API calls a goal runs at the same time
+	 * @parameter property="apigee.config.concurrency" default-value="1"
+ 	 */
+	private int concurrency;
+	
+	/**
+	 * Max requests per second sent to the management API, 0 for no ceiling
+	 * @parameter property="apigee.config.maxRps" default-value="0"
+ 	 */
+	private double maxRps;
+	
+	/**
+	 * Attempts per idempotent management API call, including the first one
+	 * @parameter property="apigee.config.retry.maxAttempts" default-value="3"
+ 	 */
+	private int retryMaxAttempts;
+	
+	/**
+	 * Cap in ms of the first retry delay; it doubles with each attempt
+	 * @parameter property="apigee.config.retry.baseDelay" default-value="500"
+ 	 */
+	private long retryBaseDelay;
+	
+	/**
+	 * Max delay in ms before a retry
+	 * @parameter property="apigee.config.retry.maxDelay" default-value="20000"
+ 	 */
+	private long retryMaxDelay;
+	
+	/**
+	 * Total number of retries allowed in the build
+	 * @parameter property="apigee.config.retry.budget" default-value="100"
+ 	 */
+	private int retryBudget;
+	
+	/**
+	 * How much of each request is logged: headers, body-truncated:<bytes> or full
+	 * @parameter property="apigee.config.logVerbosity" default-value="full"
+ 	 */
+	private String logVerbosity;
+	
+	/**
+	 * Only apply the config that changed since this git ref, e.g. origin/main
+	 * or HEAD~1: the files of apigee.config.dir, or the entries of edge.json,
+	 * that differ between the ref and the working tree
+	 * @parameter property="apigee.config.since"
+ 	 */
+	private String since;
+	
+	/**
+	 * Substitute the ${...} placeholders of the config entries with the -D
+	 * properties, apigee.config.values, the project properties or, for
+	 * ${env.NAME}, the environment variables
+	 * @parameter property="apigee.config.placeholders" default-value="false"
+ 	 */
+	private boolean placeholders;
+	
+	/**
+	 * Properties file with the placeholder values, e.g. of the environment
+	 * @parameter property="apigee.config.values"
+ 	 */
+	private File values;
+	
+	/**
+	 * Skip the entities whose content has not changed since they were last
+	 * applied, as recorded in apigee.config.manifest
+	 * @parameter property="apigee.config.incremental" default-value="false"
+ 	 */
+	private boolean incremental;
+	
+	/**
+	 * Hashes of the applied entities used by apigee.config.incremental
+	 * @parameter property="apigee.config.manifest" default-value="${project.build.directory}/apigee-config-manifest.json"
+ 	 */
+	private File manifest;
+	
+	/**
+	 * With apigee.config.options=sync, also delete the entities that exist
+	 * but are not in the config
+	 * @parameter property="apigee.config.prune" default-value="false"
+ 	 */
+	private boolean prune;
+	
 	// TODO set resources/edge as default value
 
 	public String getKvmOverride() {
@@ -350,9 +470,6 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 		Proxy mavenProxy = getProxy(settings, hostURL);
 		if (mavenProxy != null) {
 			logger.info("set proxy to " + mavenProxy.getHost() + ":" + mavenProxy.getPort());
-			
-			HttpClientBuilder builder = HttpClientBuilder.create();
-			HttpHost proxy = new HttpHost(mavenProxy.getHost(), mavenProxy.getPort());
 						
 			if (isNotBlank(mavenProxy.getNonProxyHosts())) {
 				//System.setProperty("http.nonProxyHosts", mavenProxy.getNonProxyHosts().replaceAll("[,;]", "|"));
@@ -360,16 +477,9 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 			}
 			if (isNotBlank(mavenProxy.getUsername()) && isNotBlank(mavenProxy.getPassword())) {
 				logger.debug("set proxy credentials");
-
-				CredentialsProvider credsProvider = new BasicCredentialsProvider();
-				credsProvider.setCredentials(new AuthScope(mavenProxy.getHost(), mavenProxy.getPort()), 
-						new UsernamePasswordCredentials(mavenProxy.getUsername(), mavenProxy.getPassword()));
-				builder.setDefaultCredentialsProvider(credsProvider);
 				buildProfile.setProxyUsername(mavenProxy.getUsername());
 				buildProfile.setProxyPassword(mavenProxy.getPassword());
 			}
-			builder.setProxy(proxy);
-			buildProfile.setApacheHttpClient(builder.build());
 			
 			//Set Proxy configurations
 			buildProfile.setHasProxy(true);
@@ -377,6 +487,21 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 			buildProfile.setProxyServer(mavenProxy.getHost());
 			buildProfile.setProxyPort(mavenProxy.getPort());
 		}
+		
+		// connections (and the proxy) are pooled once for the whole build
+		// every concurrent call needs its own connection
+		this.buildProfile.setMaxConnectionsPerRoute(Math.max(this.maxConnectionsPerRoute, this.concurrency));
+		this.buildProfile.setConnectionIdleTimeout(this.connectionIdleTimeout);
+		this.buildProfile.setTransport(this.transport);
+		this.buildProfile.setHttpClientPool(HttpClientPool.forSession(session));
+		this.buildProfile.setConcurrency(this.concurrency);
+		this.buildProfile.setAsyncRestUtil(AsyncRestUtil.forSession(session, this.buildProfile));
+		this.buildProfile.setMaxRps(this.maxRps);
+		this.buildProfile.setRetryMaxAttempts(this.retryMaxAttempts);
+		this.buildProfile.setRetryBaseDelay(this.retryBaseDelay);
+		this.buildProfile.setRetryMaxDelay(this.retryMaxDelay);
+		this.buildProfile.setRetryBudget(this.retryBudget);
+		this.buildProfile.setLogVerbosity(this.logVerbosity);
 		return buildProfile;
 	}
 
@@ -471,7 +596,7 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 	}*/
 	
 	/**
-	 * finds all the files for a given operation. For example kvms.json, kvms*.json
+	 * finds all the files for a given operation. For example kvms.json, kvms-*.json
 	 * @param scope
 	 * @param config
 	 * @return
@@ -479,41 +604,21 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 	 */
 	private List<File> findConfigFiles(String scope, String config)
 			throws MojoExecutionException {
-		List<File> configFiles = new ArrayList<File>();
-		File[] listOfFiles = new File(configDir + File.separator + scope).listFiles();
-		if(listOfFiles!=null && listOfFiles.length>0) {
-			for (File file : listOfFiles) {
-			    if (file.isFile() && file.getName().startsWith(config)) {
-			    	configFiles.add(file);
-			    }
-			}
-		}
-		return configFiles;
+		return ConfigFileIndex.forSession(session, configDir).getFiles(scope, config);
 	}
 
-	protected List getAPIConfig(Logger logger, String config, String api)
+	/*
+	 * Config entries as entities, parsed at most once per type by the goals
+	 */
+	protected List<ConfigEntity> getAPIEntities(Logger logger, String config, String api)
 			throws MojoExecutionException {
 		File configFile;
-		List<File> configFiles;
 		String scope = "api" + File.separator + api;
-		ArrayList apiConfig = new ArrayList();
 
 		/* configDir takes precedence over edge.json */
 		if (configDir != null && configDir.length() > 0) {
-			configFiles = findConfigFiles(scope, config);
-			for (File cfgFile : configFiles) {
-				if (cfgFile == null) {
-					logger.info("Config file " + scope + File.separator + cfgFile.getName() + " not found.");
-					return null;
-				}
-				logger.info("Retrieving config from " + scope + File.separator + cfgFile.getName());
-				try {
-					apiConfig.addAll(ConfigReader.getAPIConfig(cfgFile));
-				} catch (Exception e) {
-					throw new MojoExecutionException(e.getMessage());
-				}
-			}
-			return apiConfig;
+			return readConfigFiles(logger, scope, config,
+					file -> ConfigReader.getEntities("apiConfig." + api + "." + config, file, false));
 		}
 
 		/* consolidated edge.json in CWD as fallback */
@@ -526,10 +631,15 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 
 		logger.info("Retrieving config from " + configFile.getAbsolutePath());
 		try {
-
-			return ConsolidatedConfigReader.getAPIConfig(configFile,
+			if (streaming) {
+				return readConfigFile(logger, configFile, config,
+						file -> ConsolidatedConfigReader.streamEntities(file, "apiConfig", api, config));
+			}
+			return readConfigFile(logger, configFile, config,
+					file -> ConsolidatedConfigReader.getEntities(ConfigCache.forSession(session), file,
+					"apiConfig",
 					api,
-					config);
+					config));
 		} catch (Exception e) {
 			throw new MojoExecutionException(e.getMessage());
 		}
@@ -543,8 +653,20 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 		/* configDir takes precedence over edge.json */
 		if (configDir != null && configDir.length() > 0) {
 			logger.info("Retrieving API list from " + scope);
+			GitChangeSet changes = getChangeSet(new File(configDir));
 			try {
-				return ConfigReader.getAPIList(scope);
+				Set<String> apis = ConfigFileIndex.forSession(session, configDir).getAPIList();
+				if (changes == null || apis == null) {
+					return apis;
+				}
+				Set<String> changed = new TreeSet<String>();
+				for (String api : apis) {
+					if (changes.isChangedUnder(new File(scope, api))) {
+						changed.add(api);
+					}
+				}
+				logger.info(changed.size() + " of " + apis.size() + " APIs changed since " + changes.getRef());
+				return changed;
 			} catch (Exception e) {
 				throw new MojoExecutionException(e.getMessage());
 			}
@@ -559,8 +681,20 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 		}
 
 		logger.info("Retrieving config from " + configFile.getAbsolutePath());
+		GitChangeSet changes = getChangeSet(configFile);
 		try {
-			return ConsolidatedConfigReader.getAPIList(configFile);
+			if (changes != null) {
+				if (!changes.isChanged(configFile)) {
+					logger.info(configFile.getName() + " has not changed since " + changes.getRef());
+					return new TreeSet<String>();
+				}
+				return ConsolidatedConfigReader.getChangedAPIList(ConfigCache.forSession(session), configFile,
+						changes.getPrevious(configFile));
+			}
+			if (streaming) {
+				return ConsolidatedConfigReader.streamKeys(configFile, "apiConfig");
+			}
+			return ConsolidatedConfigReader.getAPIList(ConfigCache.forSession(session), configFile);
 		} catch (Exception e) {
 			throw new MojoExecutionException(e.getMessage());
 		}
@@ -569,29 +703,16 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 	/*
 	*  env picked from maven profile
 	*  No support for maven profile names itself */
-	protected List getEnvConfig(Logger logger, String config)
+	protected List<ConfigEntity> getEnvEntities(Logger logger, String config)
 			throws MojoExecutionException {
 		File configFile;
-		List<File> configFiles;
-		String scope = "env" + File.separator + this.buildProfile.getEnvironment();
-		ArrayList envConfig = new ArrayList();
+		String env = this.buildProfile.getEnvironment();
+		String scope = "env" + File.separator + env;
 		
 		/* configDir takes precedence over edge.json */
 		if (configDir != null && configDir.length() > 0) {
-			configFiles = findConfigFiles(scope, config);
-			for (File cfgFile : configFiles) {
-				if (cfgFile == null) {
-					logger.info("Config file " + scope + File.separator + cfgFile.getName() + " not found.");
-					return null;
-				}
-				logger.info("Retrieving config from " + scope + File.separator + cfgFile.getName());
-				try {
-					envConfig.addAll(ConfigReader.getEnvConfig(this.buildProfile.getEnvironment(), cfgFile));
-				} catch (Exception e) {
-					throw new MojoExecutionException(e.getMessage());
-				}
-			}
-			return envConfig;
+			return readConfigFiles(logger, scope, config,
+					cfgFile -> ConfigReader.getEntities("envConfig." + env + "." + config, cfgFile, false));
 		}
 
 
@@ -605,40 +726,31 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 
 		logger.info("Retrieving config from " + configFile.getAbsolutePath());
 		try {
-			List envConfigs = ConsolidatedConfigReader.getEnvConfig(
-					this.buildProfile.getEnvironment(),
-							configFile,
+			if (streaming) {
+				return readConfigFile(logger, configFile, config,
+						file -> ConsolidatedConfigReader.streamEntities(file, "envConfig", env, config));
+			}
+			return readConfigFile(logger, configFile, config,
+					file -> ConsolidatedConfigReader.getEntities(
+							ConfigCache.forSession(session),
+							file,
 							"envConfig",
-							config);
-			return envConfigs;
+							env,
+							config));
 		} catch (Exception e) {
 			throw new MojoExecutionException(e.getMessage());
 		}
 	}
 
-	protected List getOrgConfig(Logger logger, String config)
+	protected List<ConfigEntity> getOrgEntities(Logger logger, String config)
 			throws MojoExecutionException {
 		File configFile;
-		List<File> configFiles;
 		String scope = "org";
-		ArrayList orgConfig = new ArrayList();
 
 		/* configDir takes precedence over edge.json */
 		if (configDir != null && configDir.length() > 0) {
-			configFiles = findConfigFiles(scope, config);
-			for (File cfgFile : configFiles) {
-				if (cfgFile == null) {
-					logger.info("Config file " + scope + File.separator + cfgFile.getName() + " not found.");
-					return null;
-				}
-				logger.info("Retrieving config from " + scope + File.separator + cfgFile.getName());
-				try {
-					orgConfig.addAll(ConfigReader.getOrgConfig(cfgFile));
-				} catch (Exception e) {
-					throw new MojoExecutionException(e.getMessage());
-				}
-			}
-			return orgConfig;
+			return readConfigFiles(logger, scope, config,
+					file -> ConfigReader.getEntities("orgConfig." + config, file, true));
 		}
 
 		/* consolidated edge.json in CWD as fallback */
@@ -651,35 +763,56 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 
 		logger.info("Retrieving config from " + configFile.getAbsolutePath());
 		try {
-			return ConsolidatedConfigReader.getOrgConfig(configFile,
+			if (streaming) {
+				return readConfigFile(logger, configFile, config,
+						file -> ConsolidatedConfigReader.streamEntities(file, "orgConfig", config));
+			}
+			return readConfigFile(logger, configFile, config,
+					file -> ConsolidatedConfigReader.getEntities(ConfigCache.forSession(session), file,
 															"orgConfig",
-															config);
+															config));
 		} catch (Exception e) {
 			throw new MojoExecutionException(e.getMessage());
 		}
 	}
 
-	protected Map getOrgConfigWithId(Logger logger, String config)
+	protected Map<String, List<ConfigEntity>> getOrgEntitiesWithId(Logger logger, String config)
 			throws MojoExecutionException {
 		File configFile;
 		List<File> configFiles;
 		String scope = "org";
-		Map<String, List<String>> orgConfig = new HashMap<String, List<String>> ();
+		Map<String, List<ConfigEntity>> orgConfig = new HashMap<String, List<ConfigEntity>> ();
 		
 		/* configDir takes precedence over edge.json */
 		if (configDir != null && configDir.length() > 0) {			
-			configFiles = findConfigFiles(scope, config);
-			for (File cfgFile : configFiles) {
-				if (cfgFile == null) {
-					logger.info("Config file " + scope + File.separator + cfgFile.getName() + " not found.");
-					return null;
+			GitChangeSet changes = getChangeSet(new File(configDir));
+			ConfigFileIndex.FileReader<Map<String, List<ConfigEntity>>> reader =
+					withMapPlaceholders(file -> ConfigReader.getEntitiesWithId("orgConfig." + config, file));
+			try {
+				configFiles = findConfigFiles(scope, config);
+				if (changes != null) {
+					configFiles = changes.getChanged(configFiles);
 				}
-				logger.info("Retrieving config from " + scope + File.separator + cfgFile.getName());
-				try {
-					orgConfig.putAll(ConfigReader.getOrgConfigWithId(cfgFile));
-				} catch (Exception e) {
-					throw new MojoExecutionException(e.getMessage());
+				for (File cfgFile : configFiles) {
+					logger.info("Retrieving config from " + scope + File.separator + cfgFile.getName());
+				}
+				for (Map<String, List<ConfigEntity>> configs : ConfigFileIndex.readAll(configFiles, reader)) {
+					if (configs != null) {
+						mergeById(orgConfig, configs);
+					}
 				}
+				if (changes != null) {
+					Map<String, List<ConfigEntity>> previous = new HashMap<String, List<ConfigEntity>>();
+					for (Map<String, List<ConfigEntity>> configs : ConfigFileIndex.readAll(
+							getPreviousFiles(changes, configFiles), reader)) {
+						if (configs != null) {
+							mergeById(previous, configs);
+						}
+					}
+					return changedEntries(logger, config, orgConfig, previous);
+				}
+			} catch (Exception e) {
+				throw new MojoExecutionException(e.getMessage());
 			}
 			return orgConfig;
 		}
@@ -693,13 +826,323 @@ public abstract class GatewayAbstractMojo extends AbstractMojo implements Contex
 		}
 
 		logger.info("Retrieving config from " + configFile.getAbsolutePath());
+		ConfigFileIndex.FileReader<Map<String, List<ConfigEntity>>> reader = withMapPlaceholders(streaming
+				? file -> ConsolidatedConfigReader.streamEntityMap(file, "orgConfig", config)
+				: file -> ConsolidatedConfigReader.getEntitiesWithId(ConfigCache.forSession(session), file,
+						"orgConfig",
+						config));
+		GitChangeSet changes = getChangeSet(configFile);
+		try {
+			Map<String, List<ConfigEntity>> configs = reader.read(configFile);
+			if (changes == null || configs == null) {
+				return configs;
+			}
+			if (!changes.isChanged(configFile)) {
+				logger.info(configFile.getName() + " has not changed since " + changes.getRef());
+				return orgConfig;
+			}
+			File previousFile = changes.getPrevious(configFile);
+			Map<String, List<ConfigEntity>> previous = (previousFile != null) ? reader.read(previousFile) : null;
+			return changedEntries(logger, config, configs,
+					(previous != null) ? previous : orgConfig);
+		} catch (Exception e) {
+			throw new MojoExecutionException(e.getMessage());
+		}
+	}
+
+	/*
+	 * Reads the files of a config of the config dir. With apigee.config.since
+	 * only the files changed since the ref are read, and only their entries
+	 * that are not in the version of the ref are returned.
+	 */
+	private List<ConfigEntity> readConfigFiles(Logger logger, String scope, String config,
+			ConfigFileIndex.FileReader<List<ConfigEntity>> reader) throws MojoExecutionException {
+		reader = withPlaceholders(reader);
+		GitChangeSet changes = getChangeSet(new File(configDir));
+		List<ConfigEntity> configList = new ArrayList<ConfigEntity>();
 		try {
-			return ConsolidatedConfigReader.getOrgConfigWithId(configFile,
-					"orgConfig",
-					config);
+			List<File> configFiles = findConfigFiles(scope, config);
+			if (changes != null) {
+				configFiles = changes.getChanged(configFiles);
+			}
+			for (File cfgFile : configFiles) {
+				logger.info("Retrieving config from " + scope + File.separator + cfgFile.getName());
+			}
+			for (List<ConfigEntity> configs : ConfigFileIndex.readAll(configFiles, reader)) {
+				if (configs != null) {
+					configList.addAll(configs);
+				}
+			}
+			if (changes != null) {
+				List<ConfigEntity> previous = new ArrayList<ConfigEntity>();
+				for (List<ConfigEntity> configs : ConfigFileIndex.readAll(getPreviousFiles(changes, configFiles), reader)) {
+					if (configs != null) {
+						previous.addAll(configs);
+					}
+				}
+				return changedEntries(logger, config, configList, previous);
+			}
 		} catch (Exception e) {
 			throw new MojoExecutionException(e.getMessage());
 		}
+		return configList;
+	}
+
+	/*
+	 * Reads a config of edge.json; with apigee.config.since only the entries
+	 * that are not in the version of the ref
+	 */
+	private List<ConfigEntity> readConfigFile(Logger logger, File configFile, String config,
+			ConfigFileIndex.FileReader<List<ConfigEntity>> reader) throws Exception {
+		reader = withPlaceholders(reader);
+		List<ConfigEntity> configs = reader.read(configFile);
+		GitChangeSet changes = getChangeSet(configFile);
+		if (changes == null || configs == null) {
+			return configs;
+		}
+		if (!changes.isChanged(configFile)) {
+			logger.info(configFile.getName() + " has not changed since " + changes.getRef());
+			return new ArrayList<ConfigEntity>();
+		}
+		File previousFile = changes.getPrevious(configFile);
+		List<ConfigEntity> previous = (previousFile != null) ? reader.read(previousFile) : null;
+		return changedEntries(logger, config, configs,
+				(previous != null) ? previous : new ArrayList<ConfigEntity>());
+	}
+
+	/*
+	 * With apigee.config.placeholders, the entries read are rendered with the
+	 * values of the build. Entries are substituted after they are parsed, so
+	 * the placeholders must be within JSON strings.
+	 */
+	private ConfigFileIndex.FileReader<List<ConfigEntity>> withPlaceholders(
+			ConfigFileIndex.FileReader<List<ConfigEntity>> reader) throws MojoExecutionException {
+		PlaceholderResolver resolver = getPlaceholderResolver();
+		if (resolver == null) {
+			return reader;
+		}
+		return file -> {
+			try {
+				return resolver.render(file, reader.read(file));
+			} catch (IOException e) {
+				throw new IOException(e.getMessage() + " in " + file.getName(), e);
+			}
+		};
+	}
+
+	private ConfigFileIndex.FileReader<Map<String, List<ConfigEntity>>> withMapPlaceholders(
+			ConfigFileIndex.FileReader<Map<String, List<ConfigEntity>>> reader) throws MojoExecutionException {
+		PlaceholderResolver resolver = getPlaceholderResolver();
+		if (resolver == null) {
+			return reader;
+		}
+		return file -> {
+			try {
+				return resolver.render(file, reader.read(file));
+			} catch (IOException e) {
+				throw new IOException(e.getMessage() + " in " + file.getName(), e);
+			}
+		};
+	}
+
+	private PlaceholderResolver getPlaceholderResolver() throws MojoExecutionException {
+		if (!placeholders) {
+			return null;
+		}
+		String key = PlaceholderResolver.class.getName() + ":" + ((project != null) ? project.getId() : "")
+				+ ":" + ((values != null) ? values.getAbsolutePath() : "");
+		try {
+			return SessionScope.get(session, key, () -> {
+				Properties valuesFile;
+				try {
+					valuesFile = (values != null) ? PlaceholderResolver.loadValues(values) : null;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return new PlaceholderResolver(Arrays.asList(
+						(session != null) ? session.getUserProperties() : null,
+						valuesFile,
+						(project != null) ? project.getProperties() : null,
+						System.getProperties()));
+			});
+		} catch (UncheckedIOException e) {
+			throw new MojoExecutionException("Cannot read the placeholder values " + values + ": "
+					+ e.getCause().getMessage());
+		}
+	}
+
+	/*
+	 * Changes of the config dir or file since apigee.config.since, null when
+	 * the option is not set
+	 */
+	private GitChangeSet getChangeSet(File path) throws MojoExecutionException {
+		if (isBlank(since)) {
+			return null;
+		}
+		try {
+			return GitChangeSet.forSession(session, path, since.trim());
+		} catch (IOException e) {
+			throw new MojoExecutionException("Cannot compare the config with " + since + ": " + e.getMessage());
+		}
+	}
+
+	/*
+	 * The apps of a developer may be spread over several files (or shards)
+	 */
+	private static void mergeById(Map<String, List<ConfigEntity>> configs, Map<String, List<ConfigEntity>> more) {
+		for (Map.Entry<String, List<ConfigEntity>> entry : more.entrySet()) {
+			configs.computeIfAbsent(entry.getKey(), k -> new ArrayList<ConfigEntity>()).addAll(entry.getValue());
+		}
+	}
+
+	private static List<File> getPreviousFiles(GitChangeSet changes, List<File> configFiles) throws IOException {
+		List<File> previousFiles = new ArrayList<File>(configFiles.size());
+		for (File cfgFile : configFiles) {
+			File previous = changes.getPrevious(cfgFile);
+			if (previous != null) {
+				previousFiles.add(previous);
+			}
+		}
+		return previousFiles;
+	}
+
+	private List<ConfigEntity> changedEntries(Logger logger, String config, List<ConfigEntity> configs,
+			List<ConfigEntity> previous) {
+		Set<String> before = new HashSet<String>();
+		for (ConfigEntity entry : previous) {
+			before.add(entryHash(entry));
+		}
+		List<ConfigEntity> changed = new ArrayList<ConfigEntity>();
+		for (ConfigEntity entry : configs) {
+			if (!before.contains(entryHash(entry))) {
+				changed.add(entry);
+			}
+		}
+		logger.info(changed.size() + " of " + configs.size() + " " + config + " entries changed since " + since);
+		return changed;
+	}
+
+	private Map<String, List<ConfigEntity>> changedEntries(Logger logger, String config,
+			Map<String, List<ConfigEntity>> configs, Map<String, List<ConfigEntity>> previous) {
+		Map<String, List<ConfigEntity>> changed = new HashMap<String, List<ConfigEntity>>();
+		for (Map.Entry<String, List<ConfigEntity>> entry : configs.entrySet()) {
+			List<ConfigEntity> before = previous.get(entry.getKey());
+			List<ConfigEntity> entries = changedEntries(logger, config + " of " + entry.getKey(), entry.getValue(),
+					(before != null) ? before : new ArrayList<ConfigEntity>());
+			if (!entries.isEmpty()) {
+				changed.put(entry.getKey(), entries);
+			}
+		}
+		return changed;
+	}
+
+	/*
+	 * Entries are compared on their canonical form, so reformatting a file
+	 * does not count as a change
+	 */
+	private static String entryHash(ConfigEntity entry) {
+		try {
+			return entry.getHash();
+		} catch (IOException e) {
+			// not JSON, e.g. the name of a company
+			return entry.getPayloadAsString();
+		}
+	}
+	
+	/*
+	 * Incremental mode: an entity applied before with the same content is
+	 * skipped. The resource is the path of its collection under the org,
+	 * e.g. environments/test/targetservers.
+	 */
+	protected boolean isUnchanged(String resource, String name, ConfigEntity entity) throws IOException {
+		if (!incremental || name == null) {
+			return false;
+		}
+		return getManifest().isUnchanged(this.buildProfile, resource, name, entity);
+	}
+
+	/**
+	 * Names a config entry of a goal.
+	 */
+	protected interface EntryNamer<T> {
+		String getName(T entry) throws MojoFailureException;
+	}
+
+	/*
+	 * @return the entries that changed since they were last applied, all of
+	 * them when the incremental mode is off
+	 */
+	protected <T> List<T> removeUnchanged(Logger logger, String resource, List<T> entries,
+			EntryNamer<T> namer) throws MojoFailureException, IOException {
+		if (!incremental || entries == null) {
+			return entries;
+		}
+		List<T> changed = new ArrayList<T>(entries.size());
+		for (T entry : entries) {
+			String name = namer.getName(entry);
+			ConfigEntity entity = (entry instanceof ConfigEntity) ? (ConfigEntity) entry
+					: ConfigEntity.of(resource, entry.toString());
+			if (isUnchanged(resource, name, entity)) {
+				logger.info("\"" + name + "\" in " + resource + " is unchanged since the last apply. Skipping.");
+			} else {
+				changed.add(entry);
+			}
+		}
+		logger.info((entries.size() - changed.size()) + " of " + entries.size()
+				+ " entries of " + resource + " unchanged, " + changed.size() + " to apply");
+		return changed;
+	}
+
+	protected void markApplied(String resource, String name, ConfigEntity entity) throws IOException {
+		if (incremental && name != null) {
+			getManifest().applied(this.buildProfile, resource, name, entity);
+		}
+	}
+
+	protected void markDeleted(String resource, String name) {
+		if (incremental && name != null) {
+			getManifest().deleted(this.buildProfile, resource, name);
+		}
+	}
+
+	/*
+	 * Writes the manifest once the goal has applied its entities, also when
+	 * it failed half way so the entities already applied are not sent again
+	 */
+	protected void saveManifest() throws MojoFailureException {
+		if (incremental) {
+			try {
+				getManifest().save();
+			} catch (IOException e) {
+				throw new MojoFailureException("Cannot write the manifest " + e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * Prune mode: sync deletes the entities that are not in the config. Not
+	 * with apigee.config.since, whose config only holds the changed entries.
+	 */
+	protected boolean isPrune() {
+		if (prune && !isBlank(since)) {
+			logger.warn("apigee.config.prune is ignored with apigee.config.since, the config is not complete");
+			return false;
+		}
+		return prune;
+	}
+
+	/*
+	 * @return the developers of the org and their app names, listed once
+	 * per build
+	 */
+	protected DeveloperIndex getDeveloperIndex() throws IOException {
+		return DeveloperIndex.forSession(session, this.buildProfile);
+	}
+
+	private ApplyManifest getManifest() {
+		File file = (manifest != null) ? manifest
+				: new File(buildDirectory, "apigee-config-manifest.json");
+		return ApplyManifest.forSession(session, file);
 	}
 	
 	/**
@@ -25,13 +25,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
@@ -99,22 +98,25 @@ public class ImportAppGroupAppKeysMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getAppName(String payload) 
+	protected String getAppName(ConfigEntity payload) 
             throws MojoFailureException {
-		Gson gson = new Gson();
 		try {
-			AppGroupApp app = gson.fromJson(payload, AppGroupApp.class);
-			return app.name;
+			return payload.as(AppGroupApp.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 	
 	public static String getApiProducts(String payload) 
+            throws IOException {
+		return getApiProducts(ConfigEntity.of("importAppGroupAppKeys", payload));
+	}
+	
+	public static String getApiProducts(ConfigEntity payload) 
             throws IOException {
 		Gson gson = new Gson();
 		try {
-			AppGroupApp app = gson.fromJson(payload, AppGroupApp.class);
+			AppGroupApp app = payload.as(AppGroupApp.class);
 			ApiProducts products = new ApiProducts();
 			products.apiProducts = app.apiProducts;
 			return gson.toJson(products);
@@ -125,10 +127,13 @@ public class ImportAppGroupAppKeysMojo extends GatewayAbstractMojo
 	
 	public static String getAppKey(String payload) 
             throws IOException {
-		Gson gson = new Gson();
+		return getAppKey(ConfigEntity.of("importAppGroupAppKeys", payload));
+	}
+	
+	public static String getAppKey(ConfigEntity payload) 
+            throws IOException {
 		try {
-			AppGroupApp app = gson.fromJson(payload, AppGroupApp.class);
-			return app.consumerKey;
+			return payload.as(AppGroupApp.class).consumerKey;
 		} catch (JsonParseException e) {
 		  throw new IOException(e.getMessage());
 		}
@@ -136,10 +141,15 @@ public class ImportAppGroupAppKeysMojo extends GatewayAbstractMojo
 	
 	
 	public static String getAppCreds(String payload) 
+            throws IOException {
+		return getAppCreds(ConfigEntity.of("importAppGroupAppKeys", payload));
+	}
+	
+	public static String getAppCreds(ConfigEntity payload) 
             throws IOException {
 		Gson gson = new Gson();
 		try {
-			AppGroupApp app = gson.fromJson(payload, AppGroupApp.class);
+			AppGroupApp app = payload.as(AppGroupApp.class);
 			AppCreds creds = new AppCreds();
 			creds.consumerKey = app.consumerKey;
 			creds.consumerSecret = app.consumerSecret;
@@ -149,12 +159,12 @@ public class ImportAppGroupAppKeysMojo extends GatewayAbstractMojo
 		}
 	}
 
-	protected void doImport(Map<String, List<String>> appGroupApps) 
+	protected void doImport(Map<String, List<ConfigEntity>> appGroupApps) 
             throws MojoFailureException {
 		try {
-            for (Map.Entry<String, List<String>> entry : appGroupApps.entrySet()) {
+            for (Map.Entry<String, List<ConfigEntity>> entry : appGroupApps.entrySet()) {
                 String appGroupId = URLEncoder.encode(entry.getKey(), "UTF-8");
-    	        for (String app : entry.getValue()) {
+    	        for (ConfigEntity app : entry.getValue()) {
     	        	String appName = getAppName(app);
     	        	if (appName == null) {
     	        		throw new IllegalArgumentException(
@@ -203,7 +213,7 @@ public class ImportAppGroupAppKeysMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			Map<String, List<String>> apps = getOrgConfigWithId(logger, "importAppGroupAppKeys");
+			Map<String, List<ConfigEntity>> apps = getOrgEntitiesWithId(logger, "importAppGroupAppKeys");
 			if (apps == null || apps.size() == 0) {
 				logger.info("No import Keys found.");
                 return;
@@ -225,8 +235,13 @@ public class ImportAppGroupAppKeysMojo extends GatewayAbstractMojo
 	
 	 public static String createConsumerKeyAndSecret(ServerProfile profile, String appGroupId, String appName, String app)
             		 throws IOException {
+		 return createConsumerKeyAndSecret(profile, appGroupId, appName, ConfigEntity.of("importAppGroupAppKeys", app));
+	 }
+
+	 public static String createConsumerKeyAndSecret(ServerProfile profile, String appGroupId, String appName, ConfigEntity app)
+            		 throws IOException {
 		 String creds = getAppCreds(app);
-		 RestUtil restUtil = new RestUtil(profile);
+		 RestUtil restUtil = RestUtil.forProfile(profile);
 		 HttpResponse response = restUtil.createOrgConfig(profile, 
                  "appgroups/" + appGroupId + "/apps/"+appName+"/keys",
                  creds);
@@ -248,12 +263,17 @@ public class ImportAppGroupAppKeysMojo extends GatewayAbstractMojo
 	 
 	 public static String associateAPIProductToKey(ServerProfile profile, String appGroupId, String appName, String app)
 	    		 throws IOException {
+		 return associateAPIProductToKey(profile, appGroupId, appName, ConfigEntity.of("importAppGroupAppKeys", app));
+	 }
+
+	 public static String associateAPIProductToKey(ServerProfile profile, String appGroupId, String appName, ConfigEntity app)
+	    		 throws IOException {
 		 String apiProducts = getApiProducts(app);
 		 String appKey = getAppKey(app);
-		 RestUtil restUtil = new RestUtil(profile);
+		 RestUtil restUtil = RestUtil.forProfile(profile);
 		 HttpResponse response = restUtil.createOrgConfig(profile, 
                  "appgroups/" + appGroupId + "/apps/"+appName+"/keys/"+appKey,
-                 apiProducts);
+                 apiProducts, true); // updates the key, safe to retry
 		try {
 		
 			logger.info("Response " + response.getContentType() + "\n" +
@@ -271,43 +291,32 @@ public class ImportAppGroupAppKeysMojo extends GatewayAbstractMojo
 
 	 public static List getApp(ServerProfile profile, String appGroupId)
 	            throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                         "appgroups/" + appGroupId + "/apps");
         if(response == null) return new ArrayList();
 
-        JSONArray apps = new JSONArray();
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            JSONArray appsArray    = (JSONArray)obj.get("appGroups");
-            for (int i = 0; appsArray != null && i < appsArray.size(); i++) {
-             	 JSONObject a = (JSONObject) appsArray.get(i);
-             	 apps.add(a.get("name"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readList(response, "appGroups", "name");
+        } catch (JsonProcessingException pe){
             logger.error("Get App parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Apps error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return apps;
     }
 	 
 	 public static boolean doesAppGroupAppExist(ServerProfile profile, String appGroupId, String appName)
             throws IOException {
         try {
-        	RestUtil restUtil = new RestUtil(profile);
+        	RestUtil restUtil = RestUtil.forProfile(profile);
         	logger.info("Checking if App Group App - " +appName + " exist");
             HttpResponse response = restUtil.getOrgConfig(profile, "appgroups/"+appGroupId+"/apps/"+appName);
             if(response == null) 
             	return false;
+            response.ignore(); // hands the connection back to the pool
         } catch (HttpResponseException e) {
             throw new IOException(e.getMessage());
         }
@@ -25,13 +25,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
@@ -99,22 +98,25 @@ public class ImportKeysMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getAppName(String payload) 
+	protected String getAppName(ConfigEntity payload) 
             throws MojoFailureException {
-		Gson gson = new Gson();
 		try {
-			App app = gson.fromJson(payload, App.class);
-			return app.name;
+			return payload.as(App.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 	
 	public static String getApiProducts(String payload) 
+            throws IOException {
+		return getApiProducts(ConfigEntity.of("importKeys", payload));
+	}
+	
+	public static String getApiProducts(ConfigEntity payload) 
             throws IOException {
 		Gson gson = new Gson();
 		try {
-			App app = gson.fromJson(payload, App.class);
+			App app = payload.as(App.class);
 			ApiProducts products = new ApiProducts();
 			products.apiProducts = app.apiProducts;
 			return gson.toJson(products);
@@ -125,10 +127,13 @@ public class ImportKeysMojo extends GatewayAbstractMojo
 	
 	public static String getAppKey(String payload) 
             throws IOException {
-		Gson gson = new Gson();
+		return getAppKey(ConfigEntity.of("importKeys", payload));
+	}
+	
+	public static String getAppKey(ConfigEntity payload) 
+            throws IOException {
 		try {
-			App app = gson.fromJson(payload, App.class);
-			return app.consumerKey;
+			return payload.as(App.class).consumerKey;
 		} catch (JsonParseException e) {
 		  throw new IOException(e.getMessage());
 		}
@@ -136,10 +141,15 @@ public class ImportKeysMojo extends GatewayAbstractMojo
 	
 	
 	public static String getAppCreds(String payload) 
+            throws IOException {
+		return getAppCreds(ConfigEntity.of("importKeys", payload));
+	}
+	
+	public static String getAppCreds(ConfigEntity payload) 
             throws IOException {
 		Gson gson = new Gson();
 		try {
-			App app = gson.fromJson(payload, App.class);
+			App app = payload.as(App.class);
 			AppCreds creds = new AppCreds();
 			creds.consumerKey = app.consumerKey;
 			creds.consumerSecret = app.consumerSecret;
@@ -149,15 +159,15 @@ public class ImportKeysMojo extends GatewayAbstractMojo
 		}
 	}
 
-	protected void doImport(Map<String, List<String>> devApps) 
+	protected void doImport(Map<String, List<ConfigEntity>> devApps) 
             throws MojoFailureException {
 		try {
 			//List existingApps = null;
-            for (Map.Entry<String, List<String>> entry : devApps.entrySet()) {
+            for (Map.Entry<String, List<ConfigEntity>> entry : devApps.entrySet()) {
             	//logger.info("Retrieving Apps of " + entry.getKey());
                 String developerId = URLEncoder.encode(entry.getKey(), "UTF-8");
                 //existingApps = getApp(serverProfile, developerId);
-    	        for (String app : entry.getValue()) {
+    	        for (ConfigEntity app : entry.getValue()) {
     	        	String appName = getAppName(app);
     	        	if (appName == null) {
     	        		throw new IllegalArgumentException(
@@ -206,7 +216,7 @@ public class ImportKeysMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			Map<String, List<String>> apps = getOrgConfigWithId(logger, "importKeys");
+			Map<String, List<ConfigEntity>> apps = getOrgEntitiesWithId(logger, "importKeys");
 			if (apps == null || apps.size() == 0) {
 				logger.info("No import Keys found.");
                 return;
@@ -228,8 +238,13 @@ public class ImportKeysMojo extends GatewayAbstractMojo
 	
 	 public static String createConsumerKeyAndSecret(ServerProfile profile, String developerId, String appName, String app)
             		 throws IOException {
+		 return createConsumerKeyAndSecret(profile, developerId, appName, ConfigEntity.of("importKeys", app));
+	 }
+
+	 public static String createConsumerKeyAndSecret(ServerProfile profile, String developerId, String appName, ConfigEntity app)
+            		 throws IOException {
 		 String creds = getAppCreds(app);
-		 RestUtil restUtil = new RestUtil(profile);
+		 RestUtil restUtil = RestUtil.forProfile(profile);
 		 HttpResponse response = restUtil.createOrgConfig(profile, 
                  "developers/" + developerId + "/apps/"+appName+"/keys/create",
                  creds);
@@ -251,12 +266,17 @@ public class ImportKeysMojo extends GatewayAbstractMojo
 	 
 	 public static String associateAPIProductToKey(ServerProfile profile, String developerId, String appName, String app)
 	    		 throws IOException {
+		 return associateAPIProductToKey(profile, developerId, appName, ConfigEntity.of("importKeys", app));
+	 }
+
+	 public static String associateAPIProductToKey(ServerProfile profile, String developerId, String appName, ConfigEntity app)
+	    		 throws IOException {
 		 String apiProducts = getApiProducts(app);
 		 String appKey = getAppKey(app);
-		 RestUtil restUtil = new RestUtil(profile);
+		 RestUtil restUtil = RestUtil.forProfile(profile);
 		 HttpResponse response = restUtil.createOrgConfig(profile, 
                  "developers/" + developerId + "/apps/"+appName+"/keys/"+appKey,
-                 apiProducts);
+                 apiProducts, true); // updates the key, safe to retry
 		try {
 		
 			logger.info("Response " + response.getContentType() + "\n" +
@@ -274,43 +294,32 @@ public class ImportKeysMojo extends GatewayAbstractMojo
 
 	 public static List getApp(ServerProfile profile, String developerId)
 	            throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
                                         "developers/" + developerId + "/apps");
         if(response == null) return new ArrayList();
 
-        JSONArray apps = new JSONArray();
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            JSONArray appsArray    = (JSONArray)obj.get("app");
-            for (int i = 0; appsArray != null && i < appsArray.size(); i++) {
-             	 JSONObject a = (JSONObject) appsArray.get(i);
-             	 apps.add(a.get("appId"));
-           }
-        } catch (ParseException pe){
+            return JsonResponseReader.readList(response, "app", "appId");
+        } catch (JsonProcessingException pe){
             logger.error("Get App parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Apps error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return apps;
     }
 	 
 	 public static boolean doesDeveloperAppExist(ServerProfile profile, String developerEmail, String appName)
             throws IOException {
         try {
-        	RestUtil restUtil = new RestUtil(profile);
+        	RestUtil restUtil = RestUtil.forProfile(profile);
         	logger.info("Checking if developerApp - " +appName + " exist");
             HttpResponse response = restUtil.getOrgConfig(profile, "developers/"+developerEmail+"/apps/"+appName);
             if(response == null) 
             	return false;
+            response.ignore(); // hands the connection back to the pool
         } catch (HttpResponseException e) {
             throw new IOException(e.getMessage());
         }
@@ -43,7 +43,7 @@ public class InitMfaMojo extends GatewayAbstractMojo
 	 * Entry point for the mojo.
 	 */
 	public void execute() throws MojoExecutionException, MojoFailureException {
-		RestUtil restUtil = new RestUtil(this.getProfile());
+		RestUtil restUtil = RestUtil.forProfile(this.getProfile());
 		try {
 			restUtil.initMfa(this.getProfile());
 		} catch (RuntimeException e) {
@@ -17,6 +17,7 @@ package com.apigee.edge.config.mavenplugin;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -24,22 +25,20 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
 import com.apigee.edge.config.mavenplugin.kvm.Kvm;
 import com.apigee.edge.config.mavenplugin.kvm.KvmApi;
 import com.apigee.edge.config.mavenplugin.kvm.KvmEnv;
 import com.apigee.edge.config.mavenplugin.kvm.KvmOrg;
 import com.apigee.edge.config.mavenplugin.kvm.KvmValueObject;
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -113,24 +112,21 @@ public class KVMMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getKVMName(String payload) throws MojoFailureException {
-		Gson gson = new Gson();
+	protected String getKVMName(ConfigEntity kvm) throws MojoFailureException {
 		try {
-			KVM kvm = gson.fromJson(payload, KVM.class);
-			return kvm.name;
+			return kvm.as(KVM.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 	
 	//Apigee API does not allow "/" in the key name, so need to check before create/update operation
-	protected void checkForInvalidKey(List<String> kvms) throws MojoFailureException {
+	protected void checkForInvalidKey(List<ConfigEntity> kvms) throws MojoFailureException {
 		if (buildOption == OPTIONS.delete) //This check is not needed for delete option
 			return;
-		Gson gson = new Gson();
 		try {
-			for (String kvmString : kvms) {
-				KVM kvm = gson.fromJson(kvmString, KVM.class);
+			for (ConfigEntity entity : kvms) {
+				KVM kvm = entity.as(KVM.class);
 				if(kvm!=null && kvm.entry!=null && kvm.entry.size()>0) {
 					for (KVMEntry kvmEntry : kvm.entry) {
 						if(kvmEntry!=null && kvmEntry.name!=null && kvmEntry.name.contains("/"))
@@ -143,7 +139,7 @@ public class KVMMojo extends GatewayAbstractMojo
 		}
 	}
 
-    protected void doOrgUpdate(List<String> kvms, String scope)
+    protected void doOrgUpdate(List<ConfigEntity> kvms, String scope)
                                                  throws MojoFailureException {
         try {
             List existingKVM = getOrgKVM(serverProfile);
@@ -154,12 +150,15 @@ public class KVMMojo extends GatewayAbstractMojo
                 return;
             }
 
-            for (String kvm : kvms) {
-                String kvmName = getKVMName(kvm);
+            Set<String> kvmNames = new HashSet<String>();
+            for (ConfigEntity entity : kvms) {
+                String kvmName = getKVMName(entity);
+                String kvm = entity.getPayloadAsString();
                 if (kvmName == null) {
                     throw new IllegalArgumentException(
                        "KVM does not have a name.\n" + kvm + "\n");
                 }
+                kvmNames.add(kvmName);
 
                 if (existingKVM.contains(kvmName)) {
                     switch (buildOption) {
@@ -179,11 +178,9 @@ public class KVMMojo extends GatewayAbstractMojo
                             break;
                         case sync:
                             logger.info("Org KVM \"" + kvmName + 
-                                "\" already exists. Deleting and recreating.");
-                            deleteOrgKVM(serverProfile, kvmName);
-                            logger.info("Creating Org KVM - " + kvmName);
-                            createOrgKVM(serverProfile, kvmName);
+                                                    "\" exists. Updating.");
                             kvmOrg.update(new KvmValueObject(serverProfile, kvmName, kvm));
+                            kvmOrg.deleteStaleEntries(new KvmValueObject(serverProfile, kvmName, kvm));
                             break;
                     }
                 } else {
@@ -202,6 +199,18 @@ public class KVMMojo extends GatewayAbstractMojo
                     }
                 }
             }
+
+            // prune: the existing KVMs that are not in the config
+            if (buildOption == OPTIONS.sync && isPrune()) {
+                for (Object existing : existingKVM) {
+                    String kvmName = (String) existing;
+                    if (!kvmNames.contains(kvmName)) {
+                        logger.info("Org KVM \"" + kvmName + 
+                                "\" is not in the config. Deleting.");
+                        deleteOrgKVM(serverProfile, kvmName);
+                    }
+                }
+            }
         
         } catch (IOException e) {
             throw new MojoFailureException("Apigee network call error " +
@@ -211,7 +220,7 @@ public class KVMMojo extends GatewayAbstractMojo
         }
     }
 
-    protected void doEnvUpdate(List<String> kvms, String scope)
+    protected void doEnvUpdate(List<ConfigEntity> kvms, String scope)
                                                  throws MojoFailureException {
         try {
             List existingKVM = getEnvKVM(serverProfile);
@@ -222,12 +231,15 @@ public class KVMMojo extends GatewayAbstractMojo
                 return;
             }
 
-            for (String kvm : kvms) {
-                String kvmName = getKVMName(kvm);
+            Set<String> kvmNames = new HashSet<String>();
+            for (ConfigEntity entity : kvms) {
+                String kvmName = getKVMName(entity);
+                String kvm = entity.getPayloadAsString();
                 if (kvmName == null) {
                     throw new IllegalArgumentException(
                        "KVM does not have a name.\n" + kvm + "\n");
                 }
+                kvmNames.add(kvmName);
 
                 if (existingKVM.contains(kvmName)) {
                     switch (buildOption) {
@@ -247,11 +259,9 @@ public class KVMMojo extends GatewayAbstractMojo
                             break;
                         case sync:
                             logger.info("Env KVM \"" + kvmName + 
-                                "\" already exists. Deleting and recreating.");
-                            deleteEnvKVM(serverProfile, kvmName);
-                            logger.info("Creating Env KVM - " + kvmName);
-                            createEnvKVM(serverProfile, kvmName);
+                                                    "\" exists. Updating.");
                             kvmEnv.update(new KvmValueObject(serverProfile, kvmName, kvm));
+                            kvmEnv.deleteStaleEntries(new KvmValueObject(serverProfile, kvmName, kvm));
                             break;
                     }
                 } else {
@@ -271,6 +281,18 @@ public class KVMMojo extends GatewayAbstractMojo
                 }
             }
 
+            // prune: the existing KVMs that are not in the config
+            if (buildOption == OPTIONS.sync && isPrune()) {
+                for (Object existing : existingKVM) {
+                    String kvmName = (String) existing;
+                    if (!kvmNames.contains(kvmName)) {
+                        logger.info("Env KVM \"" + kvmName + 
+                                "\" is not in the config. Deleting.");
+                        deleteEnvKVM(serverProfile, kvmName);
+                    }
+                }
+            }
+
         } catch (IOException e) {
             throw new MojoFailureException("Apigee network call error " +
                                                          e.getMessage());
@@ -279,7 +301,7 @@ public class KVMMojo extends GatewayAbstractMojo
         }
     }
 
-	protected void doAPIUpdate(String api, List<String> kvms)
+	protected void doAPIUpdate(String api, List<ConfigEntity> kvms)
                                                  throws MojoFailureException {
 		try {
 			List existingKVM = getAPIKVM(serverProfile, api);
@@ -290,12 +312,15 @@ public class KVMMojo extends GatewayAbstractMojo
 				return;
 			}
 
-	        for (String kvm : kvms) {
-	        	String kvmName = getKVMName(kvm);
+	        Set<String> kvmNames = new HashSet<String>();
+	        for (ConfigEntity entity : kvms) {
+	        	String kvmName = getKVMName(entity);
+	        	String kvm = entity.getPayloadAsString();
 	        	if (kvmName == null) {
 	        		throw new IllegalArgumentException(
 	        		   "KVM does not have a name.\n" + kvm + "\n");
 	        	}
+	        	kvmNames.add(kvmName);
 
         		if (existingKVM.contains(kvmName)) {
                     switch (buildOption) {
@@ -315,11 +340,9 @@ public class KVMMojo extends GatewayAbstractMojo
                             break;
                         case sync:
                             logger.info("API KVM \"" + kvmName + 
-                                            "\" already exists. Deleting and recreating.");
-                            deleteAPIKVM(serverProfile, api, kvmName);
-                            logger.info("Creating API KVM - " + kvmName);
-                            createAPIKVM(serverProfile, api, kvmName);
+                                                    "\" exists. Updating.");
                             kvmApi.update(new KvmValueObject(serverProfile, api, kvmName, kvm));
+                            kvmApi.deleteStaleEntries(new KvmValueObject(serverProfile, api, kvmName, kvm));
                             break;
                     }
 	        	} else {
@@ -338,6 +361,18 @@ public class KVMMojo extends GatewayAbstractMojo
                     }
 	        	}
 			}
+
+			// prune: the existing KVMs that are not in the config
+			if (buildOption == OPTIONS.sync && isPrune()) {
+				for (Object existing : existingKVM) {
+					String kvmName = (String) existing;
+					if (!kvmNames.contains(kvmName)) {
+						logger.info("API KVM \"" + kvmName + 
+								"\" is not in the config. Deleting.");
+						deleteAPIKVM(serverProfile, api, kvmName);
+					}
+				}
+			}
 		
 		} catch (IOException e) {
 			throw new MojoFailureException("Apigee network call error " +
@@ -375,7 +410,7 @@ public class KVMMojo extends GatewayAbstractMojo
 
             /* org scoped KVMs */
             String scope = "orgConfig";
-			List kvms = getOrgConfig(logger, "kvms");
+			List<ConfigEntity> kvms = getOrgEntities(logger, "kvms");
 			if (kvms == null || kvms.size() == 0) {
 				logger.info("No org scoped KVM config found.");
 			} else {
@@ -384,7 +419,7 @@ public class KVMMojo extends GatewayAbstractMojo
             }
 
             /* env scoped KVMs */
-            kvms = getEnvConfig(logger, "kvms");
+            kvms = getEnvEntities(logger, "kvms");
             if (kvms == null || kvms.size() == 0) {
                 logger.info("No env scoped KVM config found.");
             } else {
@@ -400,7 +435,7 @@ public class KVMMojo extends GatewayAbstractMojo
             }
 
             for (String api : apis) {
-                kvms = getAPIConfig(logger, "kvms", api);
+                kvms = getAPIEntities(logger, "kvms", api);
                 if (kvms == null || kvms.size() == 0) {
                     logger.info(
                         "No API scoped KVM config found for " + api);
@@ -423,7 +458,7 @@ public class KVMMojo extends GatewayAbstractMojo
     public static String createOrgKVM(ServerProfile profile, String kvmName)
             throws IOException {
     	String payload = "{\"name\": \""+kvmName+"\", \"encrypted\": true}";
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createOrgConfig(profile,
                                                             "keyvaluemaps", 
                                                             payload);
@@ -444,7 +479,7 @@ public class KVMMojo extends GatewayAbstractMojo
 
     public static String deleteOrgKVM(ServerProfile profile, String kvmEntry)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteOrgConfig(profile,
                                                             "keyvaluemaps", 
                                                             kvmEntry);
@@ -465,39 +500,25 @@ public class KVMMojo extends GatewayAbstractMojo
 
     public static List getOrgKVM(ServerProfile profile)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, "keyvaluemaps");
         if(response == null) return new ArrayList();
-        JSONArray kvms = null;
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-
-            /* Parsers fail to parse a string array.
-             * converting it to an JSON object as a workaround */
-            String obj = "{ \"kvms\": " + payload + "}";
-
-            JSONParser parser = new JSONParser();                
-            JSONObject obj1     = (JSONObject)parser.parse(obj);
-            kvms    = (JSONArray)obj1.get("kvms");
-
-        } catch (ParseException pe){
+            return JsonResponseReader.readStrings(response);
+        } catch (JsonProcessingException pe){
             logger.error("Get KVM parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get KVM error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return kvms;
     }   
 
     public static String createEnvKVM(ServerProfile profile, String kvmName)
             throws IOException {
     	String payload = "{\"name\": \""+kvmName+"\", \"encrypted\": true}";
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createEnvConfig(profile,
                                                     "keyvaluemaps", 
                                                     payload);
@@ -519,7 +540,7 @@ public class KVMMojo extends GatewayAbstractMojo
     public static String deleteEnvKVM(ServerProfile profile, 
                                         String kvmEntry)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteEnvConfig(profile,
                                                     "keyvaluemaps", 
                                                     kvmEntry);
@@ -540,33 +561,19 @@ public class KVMMojo extends GatewayAbstractMojo
 
     public static List getEnvKVM(ServerProfile profile)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getEnvConfig(profile, "keyvaluemaps");
         if(response == null) return new ArrayList();
-        JSONArray kvms = null;
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-
-            /* Parsers fail to parse a string array.
-             * converting it to an JSON object as a workaround */
-            String obj = "{ \"kvms\": " + payload + "}";
-
-            JSONParser parser = new JSONParser();                
-            JSONObject obj1     = (JSONObject)parser.parse(obj);
-            kvms    = (JSONArray)obj1.get("kvms");
-
-        } catch (ParseException pe){
+            return JsonResponseReader.readStrings(response);
+        } catch (JsonProcessingException pe){
             logger.error("Get KVM parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get KVM error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return kvms;
     }   
 
     public static String createAPIKVM(ServerProfile profile, 
@@ -574,7 +581,7 @@ public class KVMMojo extends GatewayAbstractMojo
                                         String kvmName)
             throws IOException {
     	String payload = "{\"name\": \""+kvmName+"\", \"encrypted\": true}";
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createAPIConfig(profile,
                                                             api,
                                                             "keyvaluemaps", 
@@ -598,7 +605,7 @@ public class KVMMojo extends GatewayAbstractMojo
                                         String api,
                                         String kvmEntry)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteAPIConfig(profile,
                                                             api,
                                                             "keyvaluemaps", 
@@ -620,34 +627,20 @@ public class KVMMojo extends GatewayAbstractMojo
 
     public static List getAPIKVM(ServerProfile profile, String api)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getAPIConfig(profile, api,
                                                         "keyvaluemaps");
         if(response == null) return new ArrayList();
-        JSONArray kvms = null;
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-
-            /* Parsers fail to parse a string array.
-             * converting it to an JSON object as a workaround */
-            String obj = "{ \"kvms\": " + payload + "}";
-
-            JSONParser parser = new JSONParser();                
-            JSONObject obj1     = (JSONObject)parser.parse(obj);
-            kvms    = (JSONArray)obj1.get("kvms");
-
-        } catch (ParseException pe){
+            return JsonResponseReader.readStrings(response);
+        } catch (JsonProcessingException pe){
             logger.error("Get KVM parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get KVM error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return kvms;
     }   
 
 }
@@ -29,11 +29,11 @@ import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -92,17 +92,15 @@ public class KeystoresMojo extends GatewayAbstractMojo
 
     }
 
-    protected String getKeystoreName(String payload) throws MojoFailureException {
-        Gson gson = new Gson();
+    protected String getKeystoreName(ConfigEntity keystore) throws MojoFailureException {
         try {
-            Keystore keystor = gson.fromJson(payload, Keystore.class);
-            return keystor.name;
+            return keystore.as(Keystore.class).name;
         } catch (JsonParseException e) {
             throw new MojoFailureException(e.getMessage());
         }
     }
 
-    protected void doExecute(List<String> keystores) throws MojoFailureException {
+    protected void doExecute(List<ConfigEntity> keystores) throws MojoFailureException {
         try {
             List existingKeystores = null;
             if (buildOption != OPTIONS.update &&
@@ -116,11 +114,11 @@ public class KeystoresMojo extends GatewayAbstractMojo
                     serverProfile.getEnvironment());
             existingKeystores = getKeystores(serverProfile);
 
-            for (String keystore : keystores) {
+            for (ConfigEntity keystore : keystores) {
                 String keystoreName = getKeystoreName(keystore);
                 if (keystoreName == null) {
                     throw new IllegalArgumentException(
-                            "Keystore does not have a name.\n" + keystore + "\n");
+                            "Keystore does not have a name.\n" + keystore.getPayloadAsString() + "\n");
                 }
 
                 if (existingKeystores.contains(keystoreName)) {
@@ -195,7 +193,7 @@ public class KeystoresMojo extends GatewayAbstractMojo
                         "Apigee environment not found in profile");
             }
 
-            List keystores = getEnvConfig(logger, "keystores");
+            List<ConfigEntity> keystores = getEnvEntities(logger, "keystores");
             if (keystores == null || keystores.size() == 0) {
                 logger.info(
                         "No Keystores config found.");
@@ -216,7 +214,12 @@ public class KeystoresMojo extends GatewayAbstractMojo
      **/
     public static String createKeystore(ServerProfile profile, String keystore)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return createKeystore(profile, ConfigEntity.of("keystores", keystore));
+    }
+
+    public static String createKeystore(ServerProfile profile, ConfigEntity keystore)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createEnvConfig(profile, 
         		"keystores",
                 keystore);
@@ -238,7 +241,7 @@ public class KeystoresMojo extends GatewayAbstractMojo
     public static String deleteKeystore(ServerProfile profile,
                                      String keystoreName)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteEnvConfig(profile,
                 "keystores",
                 keystoreName);
@@ -259,7 +262,7 @@ public class KeystoresMojo extends GatewayAbstractMojo
 
     public static List getKeystores(ServerProfile profile)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getEnvConfig(profile, "keystores");
         if(response == null) return new ArrayList();
         JSONArray keystores = null;
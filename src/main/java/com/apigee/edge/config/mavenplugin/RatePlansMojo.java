@@ -31,11 +31,11 @@ import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -98,16 +98,19 @@ public class RatePlansMojo extends GatewayAbstractMojo
 	
 	public static String getRatePlanProductName(String payload) 
             throws MojoFailureException {
-		Gson gson = new Gson();
+		return getRatePlanProductName(ConfigEntity.of("ratePlans", payload));
+	}
+
+	public static String getRatePlanProductName(ConfigEntity ratePlan) 
+            throws MojoFailureException {
 		try {
-			RatePlan ratePlan = gson.fromJson(payload, RatePlan.class);
-			return ratePlan.apiproduct;
+			return ratePlan.as(RatePlan.class).apiproduct;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doUpdate(List<String> ratePlans) 
+	protected void doUpdate(List<ConfigEntity> ratePlans) 
             throws MojoFailureException {
 		try {
 			if (buildOption != OPTIONS.update && 
@@ -126,8 +129,9 @@ public class RatePlansMojo extends GatewayAbstractMojo
 				return;
 			}
 
-	        for (String ratePlan : ratePlans) {
-	        	String apiProductName = getRatePlanProductName(ratePlan);
+	        for (ConfigEntity entity : ratePlans) {
+	        	String apiProductName = getRatePlanProductName(entity);
+	        	String ratePlan = entity.getPayloadAsString();
                 switch (buildOption) {
                     case create:
                     	createRatePlan(serverProfile, apiProductName, ratePlan);
@@ -179,7 +183,7 @@ public class RatePlansMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			List rateplans = getOrgConfig(logger, "ratePlans");
+			List<ConfigEntity> rateplans = getOrgEntities(logger, "ratePlans");
 			if (rateplans == null || rateplans.size() == 0) {
 				logger.info("No Rate Plans found.");
                 return;
@@ -199,7 +203,7 @@ public class RatePlansMojo extends GatewayAbstractMojo
      **/
     public static String createRatePlan(ServerProfile profile, String apiProduct, String ratePlan)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createOrgConfig(profile, 
                                                          "apiproducts", apiProduct,
                                                          "rateplans", ratePlan);
@@ -220,7 +224,7 @@ public class RatePlansMojo extends GatewayAbstractMojo
 
     public static void deleteRatePlan(ServerProfile profile, String apiProduct)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
     	List<String> ratePlans = getAllRatePlans(profile, apiProduct);
     	for (String ratePlanName : ratePlans) {
     		try {
@@ -240,13 +244,13 @@ public class RatePlansMojo extends GatewayAbstractMojo
 		}
     }	
     
-    public static void syncRatePlan(ServerProfile profile, List<String> ratePlans)
+    public static void syncRatePlan(ServerProfile profile, List<ConfigEntity> ratePlans)
             throws IOException, MojoFailureException {
     	if(ratePlans == null || ratePlans.size()==0)
     		return;
     	//extract API Products
     	Set<String> products = new HashSet<String>(ratePlans.size());
-    	for (String ratePlan : ratePlans) {
+    	for (ConfigEntity ratePlan : ratePlans) {
     		String apiProductName = getRatePlanProductName(ratePlan);
     		products.add(apiProductName);
 		}
@@ -255,15 +259,15 @@ public class RatePlansMojo extends GatewayAbstractMojo
     		deleteRatePlan(profile, product);
 		}
     	//create rate plans for each product
-    	for (String ratePlan : ratePlans) {
+    	for (ConfigEntity ratePlan : ratePlans) {
     		String apiProductName = getRatePlanProductName(ratePlan);
-    		createRatePlan(profile, apiProductName, ratePlan);
+    		createRatePlan(profile, apiProductName, ratePlan.getPayloadAsString());
 		}
     }
     
     public static List<String> getAllRatePlans(ServerProfile profile, String apiProduct)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getOrgConfig(profile, 
         												"apiproducts", apiProduct,
         												"rateplans");
@@ -16,8 +16,13 @@
 package com.apigee.edge.config.mavenplugin;
 
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,12 +33,15 @@ import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -59,6 +67,9 @@ public class ReferencesMojo extends GatewayAbstractMojo
 
     private ServerProfile serverProfile;
 
+    /** compares a reference with the existing one */
+    static final JsonComparator COMPARATOR = new JsonComparator();
+
     public static class Reference {
         @Key
         public String name;
@@ -92,19 +103,17 @@ public class ReferencesMojo extends GatewayAbstractMojo
 
     }
 
-    protected String getReferenceName(String payload) throws MojoFailureException {
-        Gson gson = new Gson();
+    protected String getReferenceName(ConfigEntity ref) throws MojoFailureException {
         try {
-            Reference ref = gson.fromJson(payload, Reference.class);
-            return ref.name;
+            return ref.as(Reference.class).name;
         } catch (JsonParseException e) {
             throw new MojoFailureException(e.getMessage());
         }
     }
 
-    protected void doUpdate(List<String> refs) throws MojoFailureException {
+    protected void doUpdate(List<ConfigEntity> refs) throws MojoFailureException {
         try {
-            List existingRefs = null;
+            Map<String, ConfigEntity> existingRefs = null;
             if (buildOption != OPTIONS.update &&
                     buildOption != OPTIONS.create &&
                     buildOption != OPTIONS.delete &&
@@ -112,23 +121,46 @@ public class ReferencesMojo extends GatewayAbstractMojo
                 return;
             }
 
+            String resource = "environments/" + serverProfile.getEnvironment() + "/references";
+            if (buildOption == OPTIONS.update) {
+                refs = removeUnchanged(logger, resource, refs, this::getReferenceName);
+                if (refs.isEmpty()) {
+                    return;
+                }
+            }
+
             logger.info("Retrieving existing environment References - " +
                     serverProfile.getEnvironment());
-            existingRefs = getReferences(serverProfile);
+            existingRefs = getReferencesByName(serverProfile);
 
-            for (String ref : refs) {
+            Set<String> refNames = new HashSet<String>();
+            for (ConfigEntity ref : refs) {
                 String refName = getReferenceName(ref);
                 if (refName == null) {
                     throw new IllegalArgumentException(
-                            "Reference does not have a name.\n" + ref + "\n");
+                            "Reference does not have a name.\n" + ref.getPayloadAsString() + "\n");
                 }
+                refNames.add(refName);
 
-                if (existingRefs.contains(refName)) {
+                if (existingRefs.containsKey(refName)) {
                     switch (buildOption) {
                         case update:
+                        case sync:
+                            ConfigEntity existing = existingRefs.get(refName);
+                            if (existing == null) {
+                                // the listing has only the names
+                                existing = getReference(serverProfile, refName);
+                            }
+                            if (COMPARATOR.isUnchanged(ref, existing)) {
+                                logger.info("Reference \"" + refName +
+                                        "\" is unchanged. Skipping.");
+                                markApplied(resource, refName, ref);
+                                break;
+                            }
                             logger.info("Reference \"" + refName +
                                     "\" exists. Updating.");
                             updateReference(serverProfile, refName, ref);
+                            markApplied(resource, refName, ref);
                             break;
                         case create:
                             logger.info("Reference \"" + refName +
@@ -138,13 +170,7 @@ public class ReferencesMojo extends GatewayAbstractMojo
                             logger.info("Reference \"" + refName +
                                     "\" already exists. Deleting.");
                             deleteReference(serverProfile, refName);
-                            break;
-                        case sync:
-                            logger.info("Reference \"" + refName +
-                                    "\" already exists. Deleting and recreating.");
-                            deleteReference(serverProfile, refName);
-                            logger.info("Creating Reference - " + refName);
-                            createReference(serverProfile, ref);
+                            markDeleted(resource, refName);
                             break;
                     }
                 } else {
@@ -154,6 +180,7 @@ public class ReferencesMojo extends GatewayAbstractMojo
                         case update:
                             logger.info("Creating Reference - " + refName);
                             createReference(serverProfile, ref);
+                            markApplied(resource, refName, ref);
                             break;
                         case delete:
                             logger.info("Reference \"" + refName +
@@ -163,11 +190,25 @@ public class ReferencesMojo extends GatewayAbstractMojo
                 }
             }
 
+            // prune: the existing references that are not in the config
+            if (buildOption == OPTIONS.sync && isPrune()) {
+                for (String refName : existingRefs.keySet()) {
+                    if (!refNames.contains(refName)) {
+                        logger.info("Reference \"" + refName +
+                                "\" is not in the config. Deleting.");
+                        deleteReference(serverProfile, refName);
+                        markDeleted(resource, refName);
+                    }
+                }
+            }
+
         } catch (IOException e) {
             throw new MojoFailureException("Apigee network call error " +
                     e.getMessage());
         } catch (RuntimeException e) {
             throw e;
+        } finally {
+            saveManifest();
         }
     }
 
@@ -197,7 +238,7 @@ public class ReferencesMojo extends GatewayAbstractMojo
                         "Apigee environment not found in profile");
             }
 
-            List references = getEnvConfig(logger, "references");
+            List<ConfigEntity> references = getEnvEntities(logger, "references");
             if (references == null || references.size() == 0) {
                 logger.info(
                         "No References config found.");
@@ -218,7 +259,12 @@ public class ReferencesMojo extends GatewayAbstractMojo
      **/
     public static String createReference(ServerProfile profile, String reference)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return createReference(profile, ConfigEntity.of("references", reference));
+    }
+
+    public static String createReference(ServerProfile profile, ConfigEntity reference)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createEnvConfig(profile,
                 "references",
                 reference);
@@ -241,7 +287,14 @@ public class ReferencesMojo extends GatewayAbstractMojo
                                      String refName,
                                      String reference)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return updateReference(profile, refName, ConfigEntity.of("references", reference));
+    }
+
+    public static String updateReference(ServerProfile profile,
+                                     String refName,
+                                     ConfigEntity reference)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.updateEnvConfig(profile,
                 "references",
                 refName,
@@ -264,7 +317,7 @@ public class ReferencesMojo extends GatewayAbstractMojo
     public static String deleteReference(ServerProfile profile,
                                      String refName)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteEnvConfig(profile,
                 "references",
                 refName);
@@ -283,9 +336,56 @@ public class ReferencesMojo extends GatewayAbstractMojo
         return "";
     }
 
+    /**
+     * @return the Reference, null if it does not exist
+     */
+    public static ConfigEntity getReference(ServerProfile profile, String refName)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
+        HttpResponse response = restUtil.getEnvConfig(profile,
+                "references/" + URLEncoder.encode(refName, "UTF-8"));
+        if(response == null) return null;
+        try {
+            return ConfigEntity.of("references", response.parseAsString());
+        } catch (HttpResponseException e) {
+            logger.error("Get Reference error " + e.getMessage());
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the existing References by name, with their details when the
+     *         API expands the listing, null details when it lists only the
+     *         names
+     */
+    public static Map<String, ConfigEntity> getReferencesByName(ServerProfile profile)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
+        Map<String, ConfigEntity> references = new LinkedHashMap<String, ConfigEntity>();
+        HttpResponse response = restUtil.getEnvConfig(profile, "references?expand=true");
+        if(response == null) return references;
+        try {
+            JsonResponseReader.readNamesOrObjects(response, null,
+                    values -> references.put(values[0], null),
+                    json -> {
+                        ConfigEntity reference = new ConfigEntity("references", json);
+                        String refName = reference.as(Reference.class).name;
+                        if (refName != null)
+                            references.put(refName, reference);
+                    });
+            return references;
+        } catch (JsonProcessingException pe) {
+            logger.error("Get Reference parse error " + pe.getMessage());
+            throw new IOException(pe.getMessage());
+        } catch (HttpResponseException e) {
+            logger.error("Get Reference error " + e.getMessage());
+            throw new IOException(e.getMessage());
+        }
+    }
+
     public static List getReferences(ServerProfile profile)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getEnvConfig(profile, "references");
         if(response == null) return new ArrayList();
         JSONArray references = null;
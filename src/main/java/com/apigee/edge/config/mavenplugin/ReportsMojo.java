@@ -17,25 +17,26 @@ package com.apigee.edge.config.mavenplugin;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 
@@ -59,6 +60,9 @@ public class ReportsMojo extends GatewayAbstractMojo {
 
 	private ServerProfile serverProfile;
 
+	/** compares a Custom Report with the existing one, the order of its columns matters */
+	static final JsonComparator COMPARATOR = new JsonComparator(false, "name", "organization", "lastViewedAt");
+
 	public static class Report {
 		@Key
 		public String displayName;
@@ -92,52 +96,52 @@ public class ReportsMojo extends GatewayAbstractMojo {
 
 	}
 
-	protected String getReportDisplayName(String payload) throws MojoFailureException {
-		Gson gson = new Gson();
+	protected String getReportDisplayName(ConfigEntity report) throws MojoFailureException {
 		try {
-			Report report = gson.fromJson(payload, Report.class);
-			return report.displayName;
+			return report.as(Report.class).displayName;
 		} catch (JsonParseException e) {
 			throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doUpdate(List<String> reports) throws MojoFailureException {
+	protected void doUpdate(List<ConfigEntity> reports) throws MojoFailureException {
 		try {
-			Map<String, String> existingReportsMap = null;
+			Map<String, ConfigEntity> existingReports = null;
 			if (buildOption != OPTIONS.update && buildOption != OPTIONS.create && buildOption != OPTIONS.delete
 					&& buildOption != OPTIONS.sync) {
 				return;
 			}
 
 			logger.info("Retrieving existing Custom Reports");
-			existingReportsMap = getReportMap(serverProfile);
+			existingReports = getReports(serverProfile);
 
-			for (String report : reports) {
+			Set<String> reportDisplayNames = new HashSet<String>();
+			for (ConfigEntity report : reports) {
 				String reportDisplayName = getReportDisplayName(report);
 				if (reportDisplayName == null) {
 					throw new IllegalArgumentException("Custom Report does not have a displayName.\n" + report + "\n");
 				}
+				reportDisplayNames.add(reportDisplayName);
 
-				if (existingReportsMap.containsValue(reportDisplayName)) {
+				ConfigEntity existing = existingReports.get(reportDisplayName);
+				if (existing != null) {
+					String reportName = existing.getName();
 					switch (buildOption) {
 					case update:
+					case sync:
+						if (COMPARATOR.isUnchanged(report, existing)) {
+							logger.info("Custom Report \"" + reportDisplayName + "\" is unchanged. Skipping.");
+							break;
+						}
 						logger.info("Custom Report \"" + reportDisplayName + "\" exists. Updating.");
-						updateReport(serverProfile, getKeyByValue(existingReportsMap, reportDisplayName), report);
+						updateReport(serverProfile, reportName, report);
 						break;
 					case create:
 						logger.info("Custom Report \"" + reportDisplayName + "\" already exists. Skipping.");
 						break;
 					case delete:
 						logger.info("Custom Report \"" + reportDisplayName + "\" already exists. Deleting.");
-						deleteReport(serverProfile, getKeyByValue(existingReportsMap, reportDisplayName));
-						break;
-					case sync:
-						logger.info(
-								"Custom Report \"" + reportDisplayName + "\" already exists. Deleting and recreating.");
-						deleteReport(serverProfile, getKeyByValue(existingReportsMap, reportDisplayName));
-						logger.info("Creating Custom Report - " + reportDisplayName);
-						createReport(serverProfile, report);
+						deleteReport(serverProfile, reportName);
 						break;
 					}
 				} else {
@@ -155,6 +159,16 @@ public class ReportsMojo extends GatewayAbstractMojo {
 				}
 			}
 
+			// prune: the existing reports that are not in the config
+			if (buildOption == OPTIONS.sync && isPrune()) {
+				for (Entry<String, ConfigEntity> existing : existingReports.entrySet()) {
+					if (!reportDisplayNames.contains(existing.getKey())) {
+						logger.info("Custom Report \"" + existing.getKey() + "\" is not in the config. Deleting.");
+						deleteReport(serverProfile, existing.getValue().getName());
+					}
+				}
+			}
+
 		} catch (IOException e) {
 			throw new MojoFailureException("Apigee network call error " + e.getMessage());
 		} catch (RuntimeException e) {
@@ -187,7 +201,7 @@ public class ReportsMojo extends GatewayAbstractMojo {
 				throw new MojoExecutionException("Apigee environment not found in profile");
 			}
 
-			List reports = getOrgConfig(logger, "reports");
+			List<ConfigEntity> reports = getOrgEntities(logger, "reports");
 			if (reports == null || reports.size() == 0) {
 				logger.info("No Custom Reports found.");
 				return;
@@ -206,8 +220,12 @@ public class ReportsMojo extends GatewayAbstractMojo {
 	 * REST call wrappers
 	 **/
 	public static String createReport(ServerProfile profile, String report) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
-		HttpResponse response = restUtil.createOrgConfig(profile, "reports", report);
+		return createReport(profile, ConfigEntity.of("reports", report));
+	}
+
+	public static String createReport(ServerProfile profile, ConfigEntity report) throws IOException {
+		RestUtil restUtil = RestUtil.forProfile(profile);
+		HttpResponse response = restUtil.createOrgConfig(profile, "reports", report, false);
 		try {
 
 			logger.info("Response " + response.getContentType() + "\n" + response.parseAsString());
@@ -223,7 +241,12 @@ public class ReportsMojo extends GatewayAbstractMojo {
 	}
 
 	public static String updateReport(ServerProfile profile, String reportName, String report) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		return updateReport(profile, reportName, ConfigEntity.of("reports", report));
+	}
+
+	public static String updateReport(ServerProfile profile, String reportName, ConfigEntity report)
+			throws IOException {
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		HttpResponse response = restUtil.updateOrgConfig(profile, "reports", reportName, report);
 		try {
 
@@ -240,7 +263,7 @@ public class ReportsMojo extends GatewayAbstractMojo {
 	}
 
 	public static String deleteReport(ServerProfile profile, String reportName) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		HttpResponse response = restUtil.deleteOrgConfig(profile, "reports", reportName);
 		try {
 
@@ -256,36 +279,47 @@ public class ReportsMojo extends GatewayAbstractMojo {
 		return "";
 	}
 
+	/**
+	 * @return the existing Custom Reports with their details, by displayName
+	 */
+	public static Map<String, ConfigEntity> getReports(ServerProfile profile) throws IOException {
+		RestUtil restUtil = RestUtil.forProfile(profile);
+		Map<String, ConfigEntity> reports = new HashMap<String, ConfigEntity>();
+		HttpResponse response = restUtil.getOrgConfig(profile, "reports?expand=true");
+		if (response == null)
+			return reports;
+		try {
+			JsonResponseReader.readObjects(response, "qualifier", json -> {
+				ConfigEntity report = new ConfigEntity("reports", json);
+				String displayName = report.as(Report.class).displayName;
+				if (displayName != null)
+					reports.put(displayName, report);
+			});
+			return reports;
+		} catch (JsonProcessingException pe) {
+			logger.error("Get Custom Report parse error " + pe.getMessage());
+			throw new IOException(pe.getMessage());
+		} catch (HttpResponseException e) {
+			logger.error("Get Custom Report error " + e.getMessage());
+			throw new IOException(e.getMessage());
+		}
+	}
+
 	public static Map<String, String> getReportMap(ServerProfile profile) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		HttpResponse response = restUtil.getOrgConfig(profile, "reports");
 		if (response == null)
 			return new HashMap<String, String>();
-		Map<String, String> reportNames = new HashMap<String, String>();
 		try {
 			logger.debug("output " + response.getContentType());
-			// response can be read only once
-			String payload = response.parseAsString();
-			logger.debug(payload);
-
-			JSONParser parser = new JSONParser();
-			JSONObject obj = (JSONObject) parser.parse(payload);
-			JSONArray reports = (JSONArray) obj.get("qualifier");
-			if (reports != null && reports.size() > 0) {
-				for (Object report : reports) {
-					reportNames.put(((JSONObject) report).get("name").toString(),
-							((JSONObject) report).get("displayName").toString());
-				}
-			}
-		} catch (ParseException pe) {
+			return JsonResponseReader.readMap(response, "qualifier", "name", "displayName");
+		} catch (JsonProcessingException pe) {
 			logger.error("Get Custom Report parse error " + pe.getMessage());
 			throw new IOException(pe.getMessage());
 		} catch (HttpResponseException e) {
 			logger.error("Get Custom Report error " + e.getMessage());
 			throw new IOException(e.getMessage());
 		}
-
-		return reportNames;
 	}
 
 	public static String getKeyByValue(Map<String, String> map, String value) {
@@ -29,11 +29,11 @@ import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.ServerProfile;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -99,17 +99,15 @@ public class ResourceFileMojo extends GatewayAbstractMojo
 
 	}
 
-	protected ResourceFile getResourceFile(String payload) throws MojoFailureException {
-		Gson gson = new Gson();
+	protected ResourceFile getResourceFile(ConfigEntity payload) throws MojoFailureException {
 		try {
-			ResourceFile resourceFile = gson.fromJson(payload, ResourceFile.class);
-			return resourceFile;
+			return payload.as(ResourceFile.class);
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-    protected void doEnvUpdate(List<String> resourcefiles)
+    protected void doEnvUpdate(List<ConfigEntity> resourcefiles)
                                                  throws MojoFailureException {
         try {
             List existingResourcefile = getExistingResourceFile(serverProfile);
@@ -120,10 +118,11 @@ public class ResourceFileMojo extends GatewayAbstractMojo
                 return;
             }
 
-            for (String resourcefile : resourcefiles) {
-                String resourcefileName = getResourceFile(resourcefile).name;
-                String resourcefileType = getResourceFile(resourcefile).type;
-                String resourcefilePath = getResourceFile(resourcefile).file;
+            for (ConfigEntity resourcefile : resourcefiles) {
+                ResourceFile resourceFile = getResourceFile(resourcefile);
+                String resourcefileName = resourceFile.name;
+                String resourcefileType = resourceFile.type;
+                String resourcefilePath = resourceFile.file;
                 if (resourcefileName == null) {
                     throw new IllegalArgumentException(
                        "resourcefile does not have a name.\n" + resourcefile + "\n");
@@ -132,6 +131,7 @@ public class ResourceFileMojo extends GatewayAbstractMojo
                 if (existingResourcefile.contains(resourcefileName+"_"+resourcefileType)) {
                     switch (buildOption) {
                     case update:
+                    case sync:
                         logger.info("Env Resource File \"" + resourcefileName + 
                                                 "\" exists. Updating.");
                         updateEnvResourceFile(serverProfile, resourcefileType, resourcefileName, resourcefilePath);
@@ -145,13 +145,6 @@ public class ResourceFileMojo extends GatewayAbstractMojo
                             "\" already exists. Deleting.");
                         deleteEnvResourceFile(serverProfile, resourcefileType, resourcefileName);
                         break;
-                    case sync:
-                        logger.info("Env Resource File \"" + resourcefileName + " of type "+ resourcefileType+
-                            "\" already exists. Deleting and recreating.");
-                        deleteEnvResourceFile(serverProfile, resourcefileType, resourcefileName);
-                        logger.info("Creating Env Resource File - " + resourcefileName);
-                        createEnvResourceFile(serverProfile, resourcefileType, resourcefileName, resourcefilePath);
-                        break;
                     }
                 } else {
                     switch (buildOption) {
@@ -204,7 +197,7 @@ public class ResourceFileMojo extends GatewayAbstractMojo
             }
 
             /* env scoped resourcefiles */
-			List resourcefiles = getEnvConfig(logger, "resourcefiles");
+			List<ConfigEntity> resourcefiles = getEnvEntities(logger, "resourcefiles");
             if (resourcefiles == null || resourcefiles.size() == 0) {
                 logger.info("No env scoped resourcefiles config found.");
             } else {
@@ -224,7 +217,7 @@ public class ResourceFileMojo extends GatewayAbstractMojo
 
 	public static String createEnvResourceFile(ServerProfile profile, String resourcefileType, String resourcefileName,
 			String resourceFilePath) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		HttpResponse response = restUtil.createEnvConfigUpload(profile,
 				"resourcefiles" + "?type=" + resourcefileType + "&name=" + resourcefileName, resourceFilePath);
 		try {
@@ -243,7 +236,7 @@ public class ResourceFileMojo extends GatewayAbstractMojo
 
 	public static String updateEnvResourceFile(ServerProfile profile, String resourcefileType, String resourcefileName,
 			String resourcefilePath) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		HttpResponse response = restUtil.updateEnvConfigUpload(profile, "resourcefiles",
 				resourcefileType + "/" + resourcefileName, resourcefilePath);
 		try {
@@ -262,7 +255,7 @@ public class ResourceFileMojo extends GatewayAbstractMojo
 
 	public static String deleteEnvResourceFile(ServerProfile profile, String resourcefileType, String resourcefileName)
 			throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		HttpResponse response = restUtil.deleteEnvResourceFileConfig(profile, "resourcefiles",
 				resourcefileType + "/" + resourcefileName);
 		try {
@@ -280,7 +273,7 @@ public class ResourceFileMojo extends GatewayAbstractMojo
 	}
 	
 	public static List getExistingResourceFile(ServerProfile profile) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		HttpResponse response = restUtil.getEnvConfig(profile, "resourcefiles");
 		if (response == null)
 			return new ArrayList();
@@ -25,11 +25,12 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
 import com.apigee.edge.config.utils.ServerProfile;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 
@@ -53,6 +54,9 @@ public class SpacesMojo extends GatewayAbstractMojo {
 
 	private ServerProfile serverProfile;
 
+	/** compares a Space with the existing one */
+	static final JsonComparator COMPARATOR = new JsonComparator("createTime", "updateTime");
+
 	public static class Space {
 		@Key
 		public String name;
@@ -88,34 +92,41 @@ public class SpacesMojo extends GatewayAbstractMojo {
 
 	}
 	
-	protected String getSpaceName(String payload) throws MojoFailureException {
-		Gson gson = new Gson();
+	protected String getSpaceName(ConfigEntity space) throws MojoFailureException {
 		try {
-			Space space = gson.fromJson(payload, Space.class);
-			return space.name;
+			return space.as(Space.class).name;
 		} catch (JsonParseException e) {
 			throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doUpdate(List<String> spaces) throws MojoFailureException {
+	protected void doUpdate(List<ConfigEntity> spaces) throws MojoFailureException {
 		try {
 			if (buildOption != OPTIONS.update && buildOption != OPTIONS.create && buildOption != OPTIONS.delete
 					&& buildOption != OPTIONS.sync) {
 				return;
 			}
-			for (String space : spaces) {
+			for (ConfigEntity space : spaces) {
 				String spaceName = getSpaceName(space);
 				if (spaceName == null) {
-					throw new IllegalArgumentException("Space does not have a name.\n" + space + "\n");
+					throw new IllegalArgumentException("Space does not have a name.\n" + space.getPayloadAsString() + "\n");
 				}
 				
-				if (doesSpaceExist(serverProfile, spaceName)) {
+				// the existing Space, fetched in the same call as the
+				// existence check so update can compare it
+				ConfigEntity existing = getSpace(serverProfile, spaceName);
+				if (existing != null) {
 						switch (buildOption) {
 	                    case update:
+	                    case sync:
+	                        if (COMPARATOR.isUnchanged(space, existing)) {
+	                            logger.info("Space \"" + spaceName + 
+	                                        "\" is unchanged. Skipping.");
+	                            break;
+	                        }
 							logger.info("Space \"" + spaceName + 
 			           					"\" exists. Updating.");
-	          				updateSpace(serverProfile, spaceName, space);
+	          				updateSpace(serverProfile, spaceName, space.getPayloadAsString());
 	                        break;
 	                    case create:
 	    			        logger.info("Space \"" + spaceName + 
@@ -126,13 +137,6 @@ public class SpacesMojo extends GatewayAbstractMojo {
 	                                    "\" already exists. Deleting.");
 	                        deleteSpace(serverProfile, spaceName);
 	                        break;
-	                    case sync:
-	                        logger.info("Space \"" + spaceName + 
-	                                    "\" already exists. Deleting and recreating.");
-	                        deleteSpace(serverProfile, spaceName);
-	                        logger.info("Creating Space - " + spaceName);
-	                        createSpace(serverProfile, space);
-	                        break;
 	        		}
 				} else {
                     switch (buildOption) {
@@ -182,7 +186,7 @@ public class SpacesMojo extends GatewayAbstractMojo {
 				throw new MojoExecutionException("Apigee environment not found in profile");
 			}
 
-			List spaces = getOrgConfig(logger, "spaces");
+			List<ConfigEntity> spaces = getOrgEntities(logger, "spaces");
 			if (spaces == null || spaces.size() == 0) {
 				logger.info("No Spaces found.");
 				return;
@@ -201,8 +205,12 @@ public class SpacesMojo extends GatewayAbstractMojo {
 	 * REST call wrappers
 	 **/
 	public static String createSpace(ServerProfile profile, String space) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
-		HttpResponse response = restUtil.createOrgConfig(profile, "spaces", space);
+		return createSpace(profile, ConfigEntity.of("spaces", space));
+	}
+
+	public static String createSpace(ServerProfile profile, ConfigEntity space) throws IOException {
+		RestUtil restUtil = RestUtil.forProfile(profile);
+		HttpResponse response = restUtil.createOrgConfig(profile, "spaces", space, false);
 		try {
 
 			logger.info("Response " + response.getContentType() + "\n" + response.parseAsString());
@@ -218,7 +226,7 @@ public class SpacesMojo extends GatewayAbstractMojo {
 	}
 
 	public static String updateSpace(ServerProfile profile, String spaceName, String space) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		HttpResponse response = restUtil.patchOrgConfig(profile, "spaces", spaceName, space);
 		try {
 
@@ -235,7 +243,7 @@ public class SpacesMojo extends GatewayAbstractMojo {
 	}
 
 	public static String deleteSpace(ServerProfile profile, String spaceName) throws IOException {
-		RestUtil restUtil = new RestUtil(profile);
+		RestUtil restUtil = RestUtil.forProfile(profile);
 		HttpResponse response = restUtil.deleteOrgConfig(profile, "spaces", spaceName);
 		try {
 
@@ -251,14 +259,32 @@ public class SpacesMojo extends GatewayAbstractMojo {
 		return "";
 	}
 
+	/**
+	 * @return the Space, null if it does not exist
+	 */
+	public static ConfigEntity getSpace(ServerProfile profile, String space)
+            throws IOException {
+        try {
+        	RestUtil restUtil = RestUtil.forProfile(profile);
+        	logger.info("Checking if Space - " +space + " exist");
+            HttpResponse response = restUtil.getOrgConfig(profile, "spaces/"+URLEncoder.encode(space, "UTF-8"));
+            if(response == null) 
+            	return null;
+            return ConfigEntity.of("spaces", response.parseAsString());
+        } catch (HttpResponseException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
 	public static boolean doesSpaceExist(ServerProfile profile, String space)
             throws IOException {
         try {
-        	RestUtil restUtil = new RestUtil(profile);
+        	RestUtil restUtil = RestUtil.forProfile(profile);
         	logger.info("Checking if Space - " +space + " exist");
             HttpResponse response = restUtil.getOrgConfig(profile, "spaces/"+URLEncoder.encode(space, "UTF-8"));
             if(response == null) 
             	return false;
+            response.ignore(); // hands the connection back to the pool
         } catch (HttpResponseException e) {
             throw new IOException(e.getMessage());
         }
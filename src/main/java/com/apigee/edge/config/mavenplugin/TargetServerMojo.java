@@ -16,24 +16,28 @@
 package com.apigee.edge.config.mavenplugin;
 
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.apigee.edge.config.rest.RestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
 import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.Key;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 /**                                                                                                                                     ¡¡
@@ -59,6 +63,11 @@ public class TargetServerMojo extends GatewayAbstractMojo
 
 	private ServerProfile serverProfile;
 
+	/** compares a target server with the existing one */
+	static final JsonComparator COMPARATOR = new JsonComparator()
+			.withDefault("isEnabled", Boolean.TRUE)
+			.withDefault("protocol", "HTTP");
+
     public static class TargetServer {
         @Key
         public String name;
@@ -92,19 +101,17 @@ public class TargetServerMojo extends GatewayAbstractMojo
 
 	}
 
-	protected String getTargetName(String payload) throws MojoFailureException {
-		Gson gson = new Gson();
+	protected String getTargetName(ConfigEntity target) throws MojoFailureException {
 		try {
-			TargetServer target = gson.fromJson(payload, TargetServer.class);
-			return target.name;
+			return target.as(TargetServer.class).name;
 		} catch (JsonParseException e) {
 		  throw new MojoFailureException(e.getMessage());
 		}
 	}
 
-	protected void doUpdate(List<String> targets) throws MojoFailureException {
+	protected void doUpdate(List<ConfigEntity> targets) throws MojoFailureException {
 		try {
-			List existingTargets = null;
+			Map<String, ConfigEntity> existingTargets = null;
 			if (buildOption != OPTIONS.update && 
 				buildOption != OPTIONS.create && 
                 buildOption != OPTIONS.delete && 
@@ -112,23 +119,46 @@ public class TargetServerMojo extends GatewayAbstractMojo
 				return;
 			}
 
+			String resource = "environments/" + serverProfile.getEnvironment() + "/targetservers";
+			if (buildOption == OPTIONS.update) {
+				targets = removeUnchanged(logger, resource, targets, this::getTargetName);
+				if (targets.isEmpty()) {
+					return;
+				}
+			}
+
 			logger.info("Retrieving existing environment Target Servers - " +
                                                 serverProfile.getEnvironment());
-			existingTargets = getTarget(serverProfile);
+			existingTargets = getTargets(serverProfile);
 
-	        for (String target : targets) {
+			Set<String> targetNames = new HashSet<String>();
+	        for (ConfigEntity target : targets) {
 	        	String targetName = getTargetName(target);
 	        	if (targetName == null) {
 	        		throw new IllegalArgumentException(
 	        		   "Target Server does not have a name.\n" + target + "\n");
 	        	}
+	        	targetNames.add(targetName);
 
-        		if (existingTargets.contains(targetName)) {
+        		if (existingTargets.containsKey(targetName)) {
                     switch (buildOption) {
                         case update:
+                        case sync:
+                            ConfigEntity existing = existingTargets.get(targetName);
+                            if (existing == null) {
+                                // the listing has only the names
+                                existing = getTarget(serverProfile, targetName);
+                            }
+                            if (COMPARATOR.isUnchanged(target, existing)) {
+                                logger.info("Target Server \"" + targetName + 
+                                                    "\" is unchanged. Skipping.");
+                                markApplied(resource, targetName, target);
+                                break;
+                            }
                             logger.info("Target Server \"" + targetName + 
                                                     "\" exists. Updating.");
                             updateTarget(serverProfile, targetName, target);
+                            markApplied(resource, targetName, target);
                             break;
                         case create:
                             logger.info("Target Server \"" + targetName + 
@@ -138,13 +168,7 @@ public class TargetServerMojo extends GatewayAbstractMojo
                             logger.info("Target Server \"" + targetName + 
                                             "\" already exists. Deleting.");
                             deleteTarget(serverProfile, targetName);
-                            break;
-                        case sync:
-                            logger.info("Target Server \"" + targetName + 
-                                            "\" already exists. Deleting and recreating.");
-                            deleteTarget(serverProfile, targetName);
-                            logger.info("Creating Target Server - " + targetName);
-                            createTarget(serverProfile, target);
+                            markDeleted(resource, targetName);
                             break;
                     }
 	        	} else {
@@ -154,6 +178,7 @@ public class TargetServerMojo extends GatewayAbstractMojo
                         case update:
                             logger.info("Creating Target Server - " + targetName);
                             createTarget(serverProfile, target);
+                            markApplied(resource, targetName, target);
                             break;
                         case delete:
                             logger.info("Target Server \"" + targetName + 
@@ -162,12 +187,26 @@ public class TargetServerMojo extends GatewayAbstractMojo
                     }
 	        	}
 			}
+
+			// prune: the existing targets that are not in the config
+			if (buildOption == OPTIONS.sync && isPrune()) {
+				for (String targetName : existingTargets.keySet()) {
+					if (!targetNames.contains(targetName)) {
+						logger.info("Target Server \"" + targetName + 
+								"\" is not in the config. Deleting.");
+						deleteTarget(serverProfile, targetName);
+						markDeleted(resource, targetName);
+					}
+				}
+			}
 		
 		} catch (IOException e) {
 			throw new MojoFailureException("Apigee network call error " +
 														 e.getMessage());
 		} catch (RuntimeException e) {
 			throw e;
+		} finally {
+			saveManifest();
 		}
 	}
 
@@ -197,7 +236,7 @@ public class TargetServerMojo extends GatewayAbstractMojo
                             "Apigee environment not found in profile");
             }
 
-			List targets = getEnvConfig(logger, "targetServers");
+			List<ConfigEntity> targets = getEnvEntities(logger, "targetServers");
 			if (targets == null || targets.size() == 0) {
 				logger.info(
                     "No target server config found.");
@@ -218,7 +257,12 @@ public class TargetServerMojo extends GatewayAbstractMojo
      **/
     public static String createTarget(ServerProfile profile, String target)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return createTarget(profile, ConfigEntity.of("targetServers", target));
+    }
+
+    public static String createTarget(ServerProfile profile, ConfigEntity target)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.createEnvConfig(profile, 
                                                     "targetservers", 
                                                     target);
@@ -241,7 +285,14 @@ public class TargetServerMojo extends GatewayAbstractMojo
                                         String targetName, 
                                         String target)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+        return updateTarget(profile, targetName, ConfigEntity.of("targetServers", target));
+    }
+
+    public static String updateTarget(ServerProfile profile, 
+                                        String targetName, 
+                                        ConfigEntity target)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.updateEnvConfig(profile, 
                                                     "targetservers", 
                                                     targetName,
@@ -264,7 +315,7 @@ public class TargetServerMojo extends GatewayAbstractMojo
     public static String deleteTarget(ServerProfile profile, 
                                         String targetName)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.deleteEnvConfig(profile, 
                                                         "targetservers", 
                                                         targetName);
@@ -283,35 +334,68 @@ public class TargetServerMojo extends GatewayAbstractMojo
         return "";
     }
 
+    /**
+     * @return the Target Server, null if it does not exist
+     */
+    public static ConfigEntity getTarget(ServerProfile profile, String targetName)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
+        HttpResponse response = restUtil.getEnvConfig(profile, 
+                                        "targetservers/" + URLEncoder.encode(targetName, "UTF-8"));
+        if(response == null) return null;
+        try {
+            return ConfigEntity.of("targetServers", response.parseAsString());
+        } catch (HttpResponseException e) {
+            logger.error("Get Target Server error " + e.getMessage());
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the existing Target Servers by name, with their details when
+     *         the API expands the listing, null details when it lists only
+     *         the names
+     */
+    public static Map<String, ConfigEntity> getTargets(ServerProfile profile)
+            throws IOException {
+    	RestUtil restUtil = RestUtil.forProfile(profile);
+        Map<String, ConfigEntity> targets = new LinkedHashMap<String, ConfigEntity>();
+        HttpResponse response = restUtil.getEnvConfig(profile, "targetservers?expand=true");
+        if(response == null) return targets;
+        try {
+            JsonResponseReader.readNamesOrObjects(response, null,
+                    values -> targets.put(values[0], null),
+                    json -> {
+                        ConfigEntity target = new ConfigEntity("targetServers", json);
+                        String targetName = target.as(TargetServer.class).name;
+                        if (targetName != null)
+                            targets.put(targetName, target);
+                    });
+            return targets;
+        } catch (JsonProcessingException pe){
+            logger.error("Get Target Server parse error " + pe.getMessage());
+            throw new IOException(pe.getMessage());
+        } catch (HttpResponseException e) {
+            logger.error("Get Target Server error " + e.getMessage());
+            throw new IOException(e.getMessage());
+        }
+    }
+
     public static List getTarget(ServerProfile profile)
             throws IOException {
-    	RestUtil restUtil = new RestUtil(profile);
+    	RestUtil restUtil = RestUtil.forProfile(profile);
         HttpResponse response = restUtil.getEnvConfig(profile, "targetservers");
         if(response == null) return new ArrayList();
-        JSONArray targets = null;
         try {
             logger.debug("output " + response.getContentType());
-            // response can be read only once
-            String payload = response.parseAsString();
-            logger.debug(payload);
-
-            /* Parsers fail to parse a string array.
-             * converting it to an JSON object as a workaround */
-            String obj = "{ \"targets\": " + payload + "}";
-
-            JSONParser parser = new JSONParser();                
-            JSONObject obj1     = (JSONObject)parser.parse(obj);
-            targets    = (JSONArray)obj1.get("targets");
-
-        } catch (ParseException pe){
+            return JsonResponseReader.readStrings(response);
+        } catch (JsonProcessingException pe){
             logger.error("Get Target Server parse error " + pe.getMessage());
             throw new IOException(pe.getMessage());
         } catch (HttpResponseException e) {
             logger.error("Get Target Server error " + e.getMessage());
             throw new IOException(e.getMessage());
         }
-
-        return targets;
     }	
 }
 
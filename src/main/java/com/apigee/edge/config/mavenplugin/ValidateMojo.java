@@ -0,0 +1,394 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.mavenplugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.ServerProfile;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Goal to check the config before anything is applied.
+ *
+ * Every config of the org, of the environment and of the APIs is loaded and
+ * the entries of each type are checked in parallel for what the goals would
+ * otherwise only find out half way through an apply: missing names, aliases
+ * without a keystore, KVM keys with a "/", files that do not exist, ... All
+ * the errors are reported at once. No call is made to Apigee.
+ *
+ * @goal validate
+ * @phase validate
+ */
+
+public class ValidateMojo extends GatewayAbstractMojo
+{
+	static Logger logger = LogManager.getLogger(ValidateMojo.class);
+	public static final String ____ATTENTION_MARKER____ =
+	"************************************************************************";
+
+	/**
+	 * Checks one entry of a config, adding what is wrong with it to the errors.
+	 */
+	interface Validator {
+		void validate(JsonElement entry, List<String> errors);
+
+		/**
+		 * @return what tells the entry apart from the others of its config,
+		 *         null if nothing does
+		 */
+		default String key(JsonElement entry) {
+			return nameOf(entry);
+		}
+	}
+
+	/* org scoped configs */
+	private static final Map<String, Validator> ORG_VALIDATORS = new LinkedHashMap<String, Validator>();
+	/* org scoped configs listed per developer or app group */
+	private static final Map<String, Validator> ORG_ID_VALIDATORS = new LinkedHashMap<String, Validator>();
+	/* env scoped configs */
+	private static final Map<String, Validator> ENV_VALIDATORS = new LinkedHashMap<String, Validator>();
+	/* API scoped configs */
+	private static final Map<String, Validator> API_VALIDATORS = new LinkedHashMap<String, Validator>();
+
+	static {
+		ORG_VALIDATORS.put("apiProducts", requires("API Product", "name"));
+		ORG_VALIDATORS.put("developers", requires("Developer", "email"));
+		ORG_VALIDATORS.put("kvms", ValidateMojo::validateKVM);
+		ORG_VALIDATORS.put("apiDocs", requires("API Doc", "title"));
+		ORG_VALIDATORS.put("apiCategories", ValidateMojo::validateCategory);
+		ORG_VALIDATORS.put("appGroups", requires("App Group", "name"));
+		// rate plans of different products may have the same name
+		ORG_VALIDATORS.put("ratePlans", keyedBy(requires("Rate Plan", "name", "apiproduct"), "apiproduct", "name"));
+		ORG_VALIDATORS.put("reports", requires("Custom Report", "displayName"));
+		ORG_VALIDATORS.put("spaces", requires("Space", "name"));
+
+		ORG_ID_VALIDATORS.put("developerApps", requires("App", "name"));
+		ORG_ID_VALIDATORS.put("appGroupApps", requires("App Group App", "name"));
+		ORG_ID_VALIDATORS.put("importKeys", requires("App", "name"));
+		ORG_ID_VALIDATORS.put("importAppGroupAppKeys", requires("App Group App", "name"));
+
+		ENV_VALIDATORS.put("targetServers", requires("Target Server", "name"));
+		ENV_VALIDATORS.put("references", requires("Reference", "name"));
+		ENV_VALIDATORS.put("kvms", ValidateMojo::validateKVM);
+		ENV_VALIDATORS.put("keystores", requires("Keystore", "name"));
+		// aliases of different keystores may have the same name
+		ENV_VALIDATORS.put("aliases", keyedBy(ValidateMojo::validateAlias, "keystorename", "alias"));
+		ENV_VALIDATORS.put("flowhooks", requires("Flowhook", "flowHookPoint"));
+		ENV_VALIDATORS.put("resourcefiles", keyedBy(ValidateMojo::validateResourceFile, "type", "name"));
+
+		API_VALIDATORS.put("kvms", ValidateMojo::validateKVM);
+	}
+
+	private ServerProfile serverProfile;
+
+	public ValidateMojo() {
+		super();
+	}
+
+	/**
+	 * Entry point for the mojo.
+	 */
+	public void execute() throws MojoExecutionException, MojoFailureException {
+
+		if (super.isSkip()) {
+			logger.info("Skipping");
+			return;
+		}
+
+		logger.info(____ATTENTION_MARKER____);
+		logger.info("Apigee Config Validation");
+		logger.info(____ATTENTION_MARKER____);
+
+		long start = System.currentTimeMillis();
+		serverProfile = super.getProfile();
+		String env = serverProfile.getEnvironment();
+
+		/* load everything first, the checks then run in parallel */
+		List<String> errors = new ArrayList<String>();
+		List<Check> checks = new ArrayList<Check>();
+		for (Map.Entry<String, Validator> entry : ORG_VALIDATORS.entrySet()) {
+			String config = entry.getKey();
+			try {
+				checks.add(new Check("orgConfig." + config, getOrgEntities(logger, config), entry.getValue()));
+			} catch (MojoExecutionException e) {
+				loadError(errors, "orgConfig." + config, e);
+			}
+		}
+		for (Map.Entry<String, Validator> entry : ORG_ID_VALIDATORS.entrySet()) {
+			String config = entry.getKey();
+			try {
+				Map<String, List<ConfigEntity>> configs = getOrgEntitiesWithId(logger, config);
+				if (configs != null) {
+					for (Map.Entry<String, List<ConfigEntity>> id : configs.entrySet()) {
+						checks.add(new Check("orgConfig." + config + "." + id.getKey(), id.getValue(),
+								entry.getValue()));
+					}
+				}
+			} catch (MojoExecutionException e) {
+				loadError(errors, "orgConfig." + config, e);
+			}
+		}
+		if (env != null) {
+			for (Map.Entry<String, Validator> entry : ENV_VALIDATORS.entrySet()) {
+				String config = entry.getKey();
+				try {
+					checks.add(new Check("envConfig." + env + "." + config, getEnvEntities(logger, config),
+							entry.getValue()));
+				} catch (MojoExecutionException e) {
+					loadError(errors, "envConfig." + env + "." + config, e);
+				}
+			}
+		} else {
+			logger.info("Apigee environment not found in profile, env scoped config not validated");
+		}
+		try {
+			Set<String> apis = getAPIList(logger);
+			if (apis != null) {
+				for (String api : apis) {
+					for (Map.Entry<String, Validator> entry : API_VALIDATORS.entrySet()) {
+						String config = entry.getKey();
+						try {
+							checks.add(new Check("apiConfig." + api + "." + config,
+									getAPIEntities(logger, config, api), entry.getValue()));
+						} catch (MojoExecutionException e) {
+							loadError(errors, "apiConfig." + api + "." + config, e);
+						}
+					}
+				}
+			}
+		} catch (MojoExecutionException e) {
+			loadError(errors, "apiConfig", e);
+		}
+
+		errors.addAll(checks.parallelStream()
+				.flatMap(check -> check.run().stream())
+				.collect(Collectors.toList()));
+
+		int entries = 0;
+		for (Check check : checks) {
+			entries += check.size();
+		}
+		logger.info("Validated " + entries + " config entries in "
+				+ (System.currentTimeMillis() - start) + " ms");
+		if (!errors.isEmpty()) {
+			for (String error : errors) {
+				logger.error(error);
+			}
+			throw new MojoFailureException(errors.size() + " config error(s) found:\n  "
+					+ String.join("\n  ", errors));
+		}
+	}
+
+	/*
+	 * A file that cannot be read fails every config looked up in it, it is
+	 * reported once
+	 */
+	private static void loadError(List<String> errors, String scope, MojoExecutionException e) {
+		String message = (e.getMessage() != null) ? e.getMessage() : "invalid JSON";
+		for (String reported : errors) {
+			if (reported.endsWith(": " + message)) {
+				return;
+			}
+		}
+		errors.add(scope + ": " + message);
+	}
+
+	/**
+	 * The entries of one config and their validator.
+	 */
+	private static class Check {
+		final String scope;
+		final List<ConfigEntity> entries;
+		final Validator validator;
+
+		Check(String scope, List<ConfigEntity> entries, Validator validator) {
+			this.scope = scope;
+			this.entries = entries;
+			this.validator = validator;
+		}
+
+		int size() {
+			return (entries != null) ? entries.size() : 0;
+		}
+
+		List<String> run() {
+			List<String> errors = new ArrayList<String>();
+			if (entries == null) {
+				return errors;
+			}
+			JsonParser parser = new JsonParser();
+			Set<String> names = new HashSet<String>();
+			for (int i = 0; i < entries.size(); i++) {
+				String prefix = scope + "[" + i + "]: ";
+				List<String> entryErrors = new ArrayList<String>();
+				JsonElement entry;
+				try {
+					entry = parser.parse(entries.get(i).getPayloadAsString());
+				} catch (JsonParseException e) {
+					errors.add(prefix + "invalid JSON " + e.getMessage());
+					continue;
+				}
+				validator.validate(entry, entryErrors);
+				String name = validator.key(entry);
+				if (name != null && !names.add(name)) {
+					entryErrors.add("\"" + name + "\" is listed more than once");
+				}
+				for (String error : entryErrors) {
+					errors.add(prefix + error);
+				}
+			}
+			return errors;
+		}
+	}
+
+	/*
+	 * Validators
+	 */
+	private static Validator requires(String type, String... fields) {
+		return (entry, errors) -> {
+			if (!entry.isJsonObject()) {
+				errors.add(type + " is not a JSON object");
+				return;
+			}
+			for (String field : fields) {
+				if (isEmpty(entry.getAsJsonObject(), field)) {
+					errors.add(type + " is missing '" + field + "'");
+				}
+			}
+		};
+	}
+
+	/*
+	 * The validator, with the entries told apart by the values of the fields
+	 */
+	private static Validator keyedBy(Validator validator, String... fields) {
+		return new Validator() {
+			public void validate(JsonElement entry, List<String> errors) {
+				validator.validate(entry, errors);
+			}
+
+			public String key(JsonElement entry) {
+				if (!entry.isJsonObject()) {
+					return null;
+				}
+				List<String> values = new ArrayList<String>();
+				for (String field : fields) {
+					if (isEmpty(entry.getAsJsonObject(), field)) {
+						return null;
+					}
+					values.add(entry.getAsJsonObject().get(field).getAsString());
+				}
+				return String.join("/", values);
+			}
+		};
+	}
+
+	//Apigee API does not allow "/" in the key name
+	private static void validateKVM(JsonElement entry, List<String> errors) {
+		requires("KVM", "name").validate(entry, errors);
+		if (!entry.isJsonObject()) {
+			return;
+		}
+		JsonElement kvmEntries = entry.getAsJsonObject().get("entry");
+		if (kvmEntries == null || !kvmEntries.isJsonArray()) {
+			return;
+		}
+		for (JsonElement kvmEntry : kvmEntries.getAsJsonArray()) {
+			if (kvmEntry.isJsonObject() && !isEmpty(kvmEntry.getAsJsonObject(), "name")) {
+				String key = kvmEntry.getAsJsonObject().get("name").getAsString();
+				if (key.contains("/")) {
+					errors.add("KVM key: " + key + " is invalid. Keys cannot contain \"/\" character");
+				}
+			}
+		}
+	}
+
+	private static void validateCategory(JsonElement entry, List<String> errors) {
+		if (!entry.isJsonPrimitive() || entry.getAsString().trim().isEmpty()) {
+			errors.add("API Category is not a name");
+		}
+	}
+
+	private static void validateAlias(JsonElement entry, List<String> errors) {
+		requires("Alias", "alias", "keystorename", "format").validate(entry, errors);
+		if (!entry.isJsonObject() || isEmpty(entry.getAsJsonObject(), "format")) {
+			return;
+		}
+		JsonObject alias = entry.getAsJsonObject();
+		switch (alias.get("format").getAsString()) {
+			case "keycertfile":
+				requiresFile("Alias", alias, "certFilePath", errors);
+				if (!isEmpty(alias, "keyFilePath")) {
+					requiresFile("Alias", alias, "keyFilePath", errors);
+				}
+				break;
+			case "keycertjar":
+			case "pkcs12":
+				requiresFile("Alias", alias, "filePath", errors);
+				break;
+		}
+	}
+
+	private static void validateResourceFile(JsonElement entry, List<String> errors) {
+		requires("resourcefile", "name", "type").validate(entry, errors);
+		if (entry.isJsonObject()) {
+			requiresFile("resourcefile", entry.getAsJsonObject(), "file", errors);
+		}
+	}
+
+	private static void requiresFile(String type, JsonObject entry, String field, List<String> errors) {
+		if (isEmpty(entry, field)) {
+			errors.add(type + " is missing '" + field + "'");
+		} else if (!new File(entry.get(field).getAsString()).isFile()) {
+			errors.add(type + " " + field + " " + entry.get(field).getAsString() + " not found");
+		}
+	}
+
+	private static boolean isEmpty(JsonObject entry, String field) {
+		JsonElement value = entry.get(field);
+		return value == null || !value.isJsonPrimitive() || value.getAsString().trim().isEmpty();
+	}
+
+	private static String nameOf(JsonElement entry) {
+		if (!entry.isJsonObject()) {
+			return entry.isJsonPrimitive() ? entry.getAsString() : null;
+		}
+		JsonObject object = entry.getAsJsonObject();
+		for (String field : new String[] { "name", "email", "alias", "flowHookPoint", "displayName", "title" }) {
+			if (!isEmpty(object, field)) {
+				return object.get(field).getAsString();
+			}
+		}
+		return null;
+	}
+
+}
@@ -9,4 +9,7 @@ public interface Kvm {
     public void update(KvmValueObject kvmValueObject)
             throws IOException, MojoFailureException;
 
+    public void deleteStaleEntries(KvmValueObject kvmValueObject)
+            throws IOException, MojoFailureException;
+
 }
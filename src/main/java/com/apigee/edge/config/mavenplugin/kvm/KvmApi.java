@@ -10,7 +10,7 @@ public class KvmApi extends KvmOperations implements Kvm {
 
 	@Override
     public HttpResponse getKvm(KvmValueObject kvmValueObject) throws IOException {
-		RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+		RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
 		return restUtil.getAPIConfig(kvmValueObject.getProfile(),
         		kvmValueObject.getApi(),
         		"keyvaluemaps/"+kvmValueObject.getKvmName());
@@ -18,7 +18,7 @@ public class KvmApi extends KvmOperations implements Kvm {
 	
 	@Override
     public HttpResponse getEntriesForKvm(KvmValueObject kvmValueObject, String kvmEntryName) throws IOException {
-		RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+		RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
 		return restUtil.getAPIConfig(kvmValueObject.getProfile(),
                 kvmValueObject.getApi(),
                 "keyvaluemaps",
@@ -27,9 +27,17 @@ public class KvmApi extends KvmOperations implements Kvm {
                 kvmEntryName);
     }
 
+    @Override
+    public HttpResponse listKvmEntries(KvmValueObject kvmValueObject, String query) throws IOException {
+		RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
+		return restUtil.getAPIConfig(kvmValueObject.getProfile(),
+        		kvmValueObject.getApi(),
+        		"keyvaluemaps/"+kvmValueObject.getKvmName()+"/entries"+query);
+    }
+
     @Override
     public HttpResponse updateKvmEntries(KvmValueObject kvmValueObject, String kvmEntryName, String kvmEntryValue) throws IOException {
-    	RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+    	RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
     	return restUtil.updateAPIConfig(kvmValueObject.getProfile(),
                 kvmValueObject.getApi(),
                 "keyvaluemaps",
@@ -41,7 +49,7 @@ public class KvmApi extends KvmOperations implements Kvm {
 
     @Override
     public HttpResponse updateKvmEntriesForNonCpsOrg(KvmValueObject kvmValueObject) throws IOException {
-    	RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+    	RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
     	return restUtil.updateAPIConfig(kvmValueObject.getProfile(),
                 kvmValueObject.getApi(),
                 "keyvaluemaps",
@@ -51,7 +59,7 @@ public class KvmApi extends KvmOperations implements Kvm {
 
     @Override
     public HttpResponse createKvmEntries(KvmValueObject kvmValueObject, String kvmEntryValue) throws IOException {
-    	RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+    	RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
     	return restUtil.createAPIConfig(kvmValueObject.getProfile(),
                 kvmValueObject.getApi(),
                 "keyvaluemaps",
@@ -62,7 +70,7 @@ public class KvmApi extends KvmOperations implements Kvm {
     
     @Override
     public HttpResponse deleteKvmEntries(KvmValueObject kvmValueObject, String kvmEntryValue) throws IOException {
-    	RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+    	RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
     	return restUtil.deleteAPIConfig(kvmValueObject.getProfile(),
                 kvmValueObject.getApi(),
                 "keyvaluemaps",
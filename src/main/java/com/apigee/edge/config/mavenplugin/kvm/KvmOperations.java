@@ -2,6 +2,11 @@ package com.apigee.edge.config.mavenplugin.kvm;
 
 import java.io.IOException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -13,6 +18,7 @@ import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.JsonResponseReader;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 
@@ -20,6 +26,9 @@ public abstract class KvmOperations {
 
     private static Logger logger = LogManager.getLogger(KvmOperations.class);
 
+    /** the largest page of KVM entries the management API returns */
+    private static final int ENTRIES_PAGE_SIZE = 100;
+
     public abstract HttpResponse getKvm(KvmValueObject kvmValueObject) throws IOException; 
     
     public abstract HttpResponse getEntriesForKvm(KvmValueObject kvmValueObject, String kvmEntryName) throws IOException;
@@ -32,6 +41,11 @@ public abstract class KvmOperations {
 
     public abstract HttpResponse deleteKvmEntries(KvmValueObject kvmValueObject, String kvmEntryValue) throws IOException;
 
+    /**
+     * @param query e.g. ?pageSize=100&pageToken=...
+     */
+    public abstract HttpResponse listKvmEntries(KvmValueObject kvmValueObject, String query) throws IOException;
+
 
     public void update(KvmValueObject kvmValueObject)
             throws IOException, MojoFailureException {
@@ -58,14 +72,7 @@ public abstract class KvmOperations {
             String entryName = (String) entryJson.get("name");
             String entryValue = (String) entryJson.get("value");
             
-        	//double URL encoding so the entry name with special characters like #?/ are decoded by GAAMBO correctly - https://github.com/apigee/apigee-config-maven-plugin/issues/192#issuecomment-1852050814
-            Pattern special = Pattern.compile(" "); //dont double encode if there is a space - https://github.com/apigee/apigee-config-maven-plugin/issues/214
-    		Matcher hasSpecial = special.matcher(entryName);
-    		if(hasSpecial.find()) {
-    			entryName = URLEncoder.encode(entryName, "UTF-8");
-    		} else {
-    			entryName = URLEncoder.encode(URLEncoder.encode(entryName, "UTF-8"), "UTF-8");
-    		}	
+            entryName = encodeEntryName(entryName);
     		
             if(!kvmValueObject.getProfile().getKvmOverride() && compareKVMEntries(kvmValueObject, entryName, entryValue)) {
             	logger.info("No change to KVM - "+ kvmValueObject.getKvmName()+"-"+entryName +". Skipping !");
@@ -94,6 +101,78 @@ public abstract class KvmOperations {
         }
     }
 
+    /**
+     * Deletes the entries of the existing KVM that are not in its config, so
+     * that sync leaves the KVM as configured without recreating it.
+     */
+    public void deleteStaleEntries(KvmValueObject kvmValueObject)
+            throws IOException, MojoFailureException {
+        Set<String> configured = new HashSet<String>();
+        JSONArray entries = getEntriesConfig(kvmValueObject.getKvm());
+        if (entries != null) {
+            for (Object entry : entries) {
+                configured.add((String) ((JSONObject) entry).get("name"));
+            }
+        }
+
+        for (String entryName : getEntryNames(kvmValueObject)) {
+            if (configured.contains(entryName)) {
+                continue;
+            }
+            logger.info("KVM Entry " + entryName + " is not in the config. Deleting.");
+            HttpResponse response = deleteKvmEntries(kvmValueObject, encodeEntryName(entryName));
+            try {
+
+                logger.debug("Response " + response.getContentType() + "\n" +
+                        response.parseAsString());
+
+                if (response.isSuccessStatusCode())
+                    logger.info("KVM Entry Delete Success: " + entryName);
+
+            } catch (HttpResponseException e) {
+                logger.error("KVM entry delete error " + e.getMessage());
+                throw new IOException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the names of the entries of the existing KVM, listed a page at
+     *         a time
+     */
+    private List<String> getEntryNames(KvmValueObject kvmValueObject) throws IOException {
+        List<String> entryNames = new ArrayList<String>();
+        String pageToken = null;
+        do {
+            String query = "?pageSize=" + ENTRIES_PAGE_SIZE;
+            if (pageToken != null) {
+                query += "&pageToken=" + URLEncoder.encode(pageToken, "UTF-8");
+            }
+            HttpResponse response = listKvmEntries(kvmValueObject, query);
+            if (response == null) {
+                break;
+            }
+            Map<String, String> topLevel = JsonResponseReader.read(response, "keyValueEntries",
+                    new String[] { "name" }, values -> {
+                        if (values[0] != null) {
+                            entryNames.add(values[0]);
+                        }
+                    });
+            pageToken = topLevel.get("nextPageToken");
+        } while (pageToken != null && !pageToken.isEmpty());
+        return entryNames;
+    }
+
+    private static String encodeEntryName(String entryName) throws IOException {
+    	//double URL encoding so the entry name with special characters like #?/ are decoded by GAAMBO correctly - https://github.com/apigee/apigee-config-maven-plugin/issues/192#issuecomment-1852050814
+        Pattern special = Pattern.compile(" "); //dont double encode if there is a space - https://github.com/apigee/apigee-config-maven-plugin/issues/214
+		Matcher hasSpecial = special.matcher(entryName);
+		if(hasSpecial.find()) {
+			return URLEncoder.encode(entryName, "UTF-8");
+		}
+		return URLEncoder.encode(URLEncoder.encode(entryName, "UTF-8"), "UTF-8");
+    }
+
     /*private void updateKvmForNonCpsOrg(KvmValueObject kvmValueObject)
             throws IOException {
     	if(!kvmValueObject.getProfile().getKvmOverride()) {
@@ -10,14 +10,14 @@ public class KvmOrg extends KvmOperations implements Kvm {
 
 	@Override
     public HttpResponse getKvm(KvmValueObject kvmValueObject) throws IOException {
-		RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+		RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
 		return restUtil.getOrgConfig(kvmValueObject.getProfile(),
                 "keyvaluemaps/"+kvmValueObject.getKvmName());
     }
 	
 	@Override
     public HttpResponse getEntriesForKvm(KvmValueObject kvmValueObject, String kvmEntryName) throws IOException {
-		RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+		RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
 		return restUtil.getOrgConfig(kvmValueObject.getProfile(),
                 "keyvaluemaps",
                 kvmValueObject.getKvmName(),
@@ -25,9 +25,16 @@ public class KvmOrg extends KvmOperations implements Kvm {
                 kvmEntryName);
     }
 
+    @Override
+    public HttpResponse listKvmEntries(KvmValueObject kvmValueObject, String query) throws IOException {
+		RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
+		return restUtil.getOrgConfig(kvmValueObject.getProfile(),
+        		"keyvaluemaps/"+kvmValueObject.getKvmName()+"/entries"+query);
+    }
+
     @Override
     public HttpResponse updateKvmEntries(KvmValueObject kvmValueObject, String kvmEntryName, String kvmEntryValue) throws IOException {
-    	RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+    	RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
     	return restUtil.updateOrgConfig(kvmValueObject.getProfile(),
                 "keyvaluemaps",
                 kvmValueObject.getKvmName(),
@@ -38,7 +45,7 @@ public class KvmOrg extends KvmOperations implements Kvm {
 
     @Override
     public HttpResponse updateKvmEntriesForNonCpsOrg(KvmValueObject kvmValueObject) throws IOException {
-    	RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+    	RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
     	return restUtil.updateOrgConfig(kvmValueObject.getProfile(),
                 "keyvaluemaps",
                 kvmValueObject.getKvmName(),
@@ -47,7 +54,7 @@ public class KvmOrg extends KvmOperations implements Kvm {
 
     @Override
     public HttpResponse createKvmEntries(KvmValueObject kvmValueObject, String kvmEntryValue) throws IOException {
-    	RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+    	RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
     	return restUtil.createOrgConfig(kvmValueObject.getProfile(),
                 "keyvaluemaps",
                 kvmValueObject.getKvmName(),
@@ -57,7 +64,7 @@ public class KvmOrg extends KvmOperations implements Kvm {
     
     @Override
     public HttpResponse deleteKvmEntries(KvmValueObject kvmValueObject, String kvmEntryValue) throws IOException {
-    	RestUtil restUtil = new RestUtil(kvmValueObject.getProfile());
+    	RestUtil restUtil = RestUtil.forProfile(kvmValueObject.getProfile());
     	return restUtil.deleteOrgConfig(kvmValueObject.getProfile(),
                 "keyvaluemaps",
                 kvmValueObject.getKvmName()+"/entries/"+kvmEntryValue);
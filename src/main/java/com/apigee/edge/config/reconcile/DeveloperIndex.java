@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.reconcile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.execution.MavenSession;
+
+import com.apigee.edge.config.rest.PagedListReader;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.ServerProfile;
+import com.apigee.edge.config.utils.SessionScope;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * The developers of an org and the names of their apps, listed once per
+ * build and shared by the developers and apps goals.
+ *
+ * Developers are keyed by their email whatever its case, as the management
+ * API matches them. The index is built from the pages of
+ * developers?expand=true, whose developers carry the names of their apps,
+ * and is kept up to date with the writes of the goals. When the listing
+ * stops early the index is incomplete, a developer missing from it may
+ * still exist.
+ */
+public class DeveloperIndex {
+
+    private static final Logger logger = LogManager.getLogger(DeveloperIndex.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final ConcurrentMap<String, ConfigEntity> developers = new ConcurrentHashMap<String, ConfigEntity>();
+    private final ConcurrentMap<String, Set<String>> apps = new ConcurrentHashMap<String, Set<String>>();
+    private final boolean complete;
+
+    /**
+     * @return the index of the org of the profile, listed once per build
+     */
+    public static DeveloperIndex forSession(MavenSession session, ServerProfile profile) throws IOException {
+        try {
+            return SessionScope.get(session, DeveloperIndex.class.getName() + ":" + profile.getHostUrl()
+                    + "/" + profile.getApi_version() + "/organizations/" + profile.getOrg(), () -> {
+                        try {
+                            return new DeveloperIndex(profile);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public DeveloperIndex(ServerProfile profile) throws IOException {
+        complete = new PagedListReader(profile, "developers", "developer", "email").readAll(json -> {
+            Set<String> appNames = newSet();
+            String email = readDeveloper(json, appNames);
+            if (email != null) {
+                developers.put(key(email), new ConfigEntity("developers", json));
+                apps.put(key(email), appNames);
+            }
+        });
+        logger.info("Indexed " + developers.size() + " developers");
+    }
+
+    /**
+     * @return true if every developer of the org was listed
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return the developer, null if it does not exist
+     */
+    public ConfigEntity getDeveloper(String email) {
+        return developers.get(key(email));
+    }
+
+    public boolean hasDeveloper(String email) {
+        return developers.containsKey(key(email));
+    }
+
+    /**
+     * @return the developers by lower case email
+     */
+    public Map<String, ConfigEntity> getDevelopers() {
+        return Collections.unmodifiableMap(developers);
+    }
+
+    /**
+     * @return the names of the apps of the developer, empty if it does not
+     *         exist
+     */
+    public Set<String> getApps(String email) {
+        Set<String> appNames = apps.get(key(email));
+        return (appNames != null) ? Collections.unmodifiableSet(appNames) : Collections.<String>emptySet();
+    }
+
+    public boolean hasApp(String email, String appName) {
+        Set<String> appNames = apps.get(key(email));
+        return appNames != null && appNames.contains(appName);
+    }
+
+    /**
+     * Records a developer created or updated by the build.
+     */
+    public void developerApplied(String email, ConfigEntity developer) {
+        developers.put(key(email), developer);
+        apps.computeIfAbsent(key(email), k -> newSet());
+    }
+
+    public void developerDeleted(String email) {
+        developers.remove(key(email));
+        apps.remove(key(email));
+    }
+
+    public void appCreated(String email, String appName) {
+        apps.computeIfAbsent(key(email), k -> newSet()).add(appName);
+    }
+
+    public void appDeleted(String email, String appName) {
+        Set<String> appNames = apps.get(key(email));
+        if (appNames != null) {
+            appNames.remove(appName);
+        }
+    }
+
+    public static String key(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> newSet() {
+        return ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * @return the email of the developer, its app names added to the set
+     */
+    private static String readDeveloper(byte[] json, Set<String> appNames) throws IOException {
+        String email = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (field.equals("email") && token == JsonToken.VALUE_STRING) {
+                    email = parser.getText();
+                } else if (field.equals("apps") && token == JsonToken.START_ARRAY) {
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (token == JsonToken.VALUE_STRING) {
+                            appNames.add(parser.getText());
+                        } else if (token == JsonToken.START_OBJECT) {
+                            // {"name": .., "appId": ..} elements
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String appField = parser.getCurrentName();
+                                if (parser.nextToken() == JsonToken.VALUE_STRING && appField.equals("name")) {
+                                    appNames.add(parser.getText());
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return email;
+    }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.reconcile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.apigee.edge.config.utils.ConfigEntity;
+
+/**
+ * What the {@link Reconciler} will do to each entity of a resource type.
+ */
+public class Plan {
+
+    public enum Type {
+        /** the entity does not exist and is created */
+        CREATE,
+        /** the entity exists and differs from the config */
+        UPDATE,
+        DELETE,
+        /** the entity exists but is not in the config (sync with prune) */
+        PRUNE,
+        /** nothing to do, see the reason */
+        NONE
+    }
+
+    public static class Action {
+        private final Type type;
+        private final String name;
+        private final ConfigEntity entity;
+        private final String reason;
+
+        Action(Type type, String name, ConfigEntity entity, String reason) {
+            this.type = type;
+            this.name = name;
+            this.entity = entity;
+            this.reason = reason;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the config entry, null for a delete
+         */
+        public ConfigEntity getEntity() {
+            return entity;
+        }
+
+        /**
+         * @return why nothing is done, null unless the type is NONE
+         */
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    private final String resourceType;
+    private final List<Action> actions = new ArrayList<Action>();
+    private final Map<Type, Integer> counts = new EnumMap<Type, Integer>(Type.class);
+
+    public Plan(String resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    void add(Type type, String name, ConfigEntity entity, String reason) {
+        actions.add(new Action(type, name, entity, reason));
+        counts.merge(type, 1, Integer::sum);
+    }
+
+    public List<Action> getActions() {
+        return Collections.unmodifiableList(actions);
+    }
+
+    public int count(Type type) {
+        return counts.getOrDefault(type, 0);
+    }
+
+    /**
+     * @return true if the plan makes no call
+     */
+    public boolean isEmpty() {
+        return count(Type.NONE) == actions.size();
+    }
+
+    @Override
+    public String toString() {
+        return resourceType + " plan: " + count(Type.CREATE) + " to create, "
+                + count(Type.UPDATE) + " to update, "
+                + count(Type.DELETE) + " to delete, "
+                + count(Type.PRUNE) + " to prune, "
+                + count(Type.NONE) + " skipped";
+    }
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.reconcile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.apigee.edge.config.rest.AsyncRestUtil;
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.ServerProfile;
+
+/**
+ * Brings the remote entities of a resource type in line with the config.
+ *
+ * The remote state is fetched in bulk, the plan (create, update, delete or
+ * nothing for each entity) is computed locally and only the calls of the
+ * plan are made. In update and sync mode an entity is only written when the
+ * comparator of the adapter finds it differs from the remote one; sync
+ * updates it in place rather than deleting and recreating it.
+ *
+ * With prune, sync also deletes the remote entities that are not in the
+ * config, once the other calls of the plan have succeeded. This needs the
+ * complete remote state, the bulk listing.
+ */
+public class Reconciler {
+
+    private static final Logger logger = LogManager.getLogger(Reconciler.class);
+
+    /** the values of apigee.config.options that write entities */
+    public enum Option {
+        create, update, delete, sync
+    }
+
+    private final ServerProfile profile;
+    private final ResourceAdapter adapter;
+    private boolean prune;
+
+    public Reconciler(ServerProfile profile, ResourceAdapter adapter) {
+        this.profile = profile;
+        this.adapter = adapter;
+    }
+
+    /**
+     * @param prune true if sync deletes the remote entities that are not in
+     *              the config
+     */
+    public Reconciler setPrune(boolean prune) {
+        this.prune = prune;
+        return this;
+    }
+
+    /**
+     * Computes the plan and makes its calls.
+     */
+    public Plan reconcile(List<ConfigEntity> entities, Option option) throws IOException {
+        Plan plan = plan(entities, option);
+        apply(plan);
+        return plan;
+    }
+
+    public Plan plan(List<ConfigEntity> entities, Option option) throws IOException {
+        Map<String, ConfigEntity> desired = new LinkedHashMap<String, ConfigEntity>();
+        Map<String, String> names = new LinkedHashMap<String, String>();
+        for (ConfigEntity entity : entities) {
+            String name = adapter.getName(entity);
+            if (name == null) {
+                throw new IllegalArgumentException(
+                        adapter.getType() + " does not have a name.\n" + entity + "\n");
+            }
+            String key = adapter.getKey(name);
+            if (desired.put(key, entity) != null) {
+                logger.warn(adapter.getType() + " \"" + name + "\" is defined more than once, the last one is used");
+            }
+            names.put(key, name);
+        }
+
+        long start = System.currentTimeMillis();
+        RemoteState state = adapter.fetchAll();
+        if (!state.isComplete()) {
+            fetchMissing(state, names.values());
+        }
+        logger.info("Fetched " + state.size() + " remote " + adapter.getType() + " entities ("
+                + (System.currentTimeMillis() - start) + " ms)");
+
+        Plan plan = new Plan(adapter.getType());
+        for (Map.Entry<String, ConfigEntity> entry : desired.entrySet()) {
+            String name = names.get(entry.getKey());
+            ConfigEntity entity = entry.getValue();
+            boolean exists = state.contains(name);
+            ConfigEntity remote = state.get(name);
+            switch (option) {
+                case create:
+                    if (!exists) {
+                        plan.add(Plan.Type.CREATE, name, entity, null);
+                    } else {
+                        plan.add(Plan.Type.NONE, name, entity, "already exists");
+                    }
+                    break;
+                case update:
+                case sync:
+                    if (!exists) {
+                        plan.add(Plan.Type.CREATE, name, entity, null);
+                    } else if (remote != null && adapter.isUnchanged(entity, remote)) {
+                        plan.add(Plan.Type.NONE, name, entity, "is unchanged");
+                    } else {
+                        plan.add(Plan.Type.UPDATE, name, entity, null);
+                    }
+                    break;
+                case delete:
+                    if (!exists) {
+                        plan.add(Plan.Type.NONE, name, null, "does not exist");
+                    } else {
+                        plan.add(Plan.Type.DELETE, name, null, null);
+                    }
+                    break;
+            }
+        }
+        if (option == Option.sync && prune) {
+            if (!state.isComplete()) {
+                logger.warn("The remote " + adapter.getType() + " entities could not all be listed, not pruning");
+            } else {
+                for (String name : state.getNames()) {
+                    if (!desired.containsKey(adapter.getKey(name))) {
+                        plan.add(Plan.Type.PRUNE, name, null, null);
+                    }
+                }
+            }
+        }
+        logger.info(plan);
+        return plan;
+    }
+
+    /**
+     * Makes the calls of the plan, up to apigee.config.concurrency at a time.
+     * The remote entities are pruned once the other calls have succeeded.
+     */
+    public void apply(Plan plan) throws IOException {
+        AsyncRestUtil asyncRestUtil = AsyncRestUtil.forProfile(profile);
+        List<CompletableFuture<Void>> pending = new ArrayList<CompletableFuture<Void>>();
+        List<String> pruned = new ArrayList<String>();
+        for (Plan.Action action : plan.getActions()) {
+            String name = action.getName();
+            String label = adapter.getType() + " \"" + name + "\"";
+            if (action.getType() == Plan.Type.NONE) {
+                logger.info(label + " " + action.getReason() + ". Skipping.");
+                continue;
+            }
+            if (action.getType() == Plan.Type.PRUNE) {
+                pruned.add(name);
+                continue;
+            }
+            pending.add(asyncRestUtil.submit(() -> {
+                switch (action.getType()) {
+                    case CREATE:
+                        logger.info("Creating " + label);
+                        adapter.create(name, action.getEntity());
+                        break;
+                    case UPDATE:
+                        logger.info(label + " exists. Updating.");
+                        adapter.update(name, action.getEntity());
+                        break;
+                    case DELETE:
+                        logger.info(label + " already exists. Deleting.");
+                        adapter.delete(name);
+                        break;
+                    default:
+                        break;
+                }
+                return null;
+            }));
+        }
+        AsyncRestUtil.awaitAll(pending);
+
+        pending.clear();
+        for (String name : pruned) {
+            pending.add(asyncRestUtil.submit(() -> {
+                logger.info(adapter.getType() + " \"" + name + "\" is not in the config. Deleting.");
+                adapter.delete(name);
+                return null;
+            }));
+        }
+        AsyncRestUtil.awaitAll(pending);
+    }
+
+    /**
+     * Fetches one by one the entities the bulk fetch did not return.
+     */
+    private void fetchMissing(RemoteState state, Iterable<String> names) throws IOException {
+        AsyncRestUtil asyncRestUtil = AsyncRestUtil.forProfile(profile);
+        Map<String, CompletableFuture<ConfigEntity>> pending = new LinkedHashMap<String, CompletableFuture<ConfigEntity>>();
+        for (String name : names) {
+            if (!state.contains(name)) {
+                pending.put(name, asyncRestUtil.submit(() -> adapter.fetch(name)));
+            }
+        }
+        AsyncRestUtil.awaitAll(pending.values());
+        for (Map.Entry<String, CompletableFuture<ConfigEntity>> entry : pending.entrySet()) {
+            ConfigEntity remote = entry.getValue().join();
+            if (remote != null) {
+                state.add(entry.getKey(), remote);
+            }
+        }
+    }
+
+}
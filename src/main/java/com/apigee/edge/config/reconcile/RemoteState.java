@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.reconcile;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.apigee.edge.config.utils.ConfigEntity;
+
+/**
+ * The remote entities of a resource type, by key.
+ *
+ * A complete state holds every remote entity, so an entity that is not in
+ * it does not exist. When the bulk fetch could not get them all, the state
+ * is partial and the entities missing from it are fetched one by one. Some
+ * entities may be known by name only, their content is then not compared.
+ */
+public class RemoteState {
+
+    private final ResourceAdapter adapter;
+    private final Map<String, ConfigEntity> entities = new HashMap<String, ConfigEntity>();
+    private final Map<String, String> names = new HashMap<String, String>();
+    private boolean complete = true;
+
+    public RemoteState(ResourceAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    /**
+     * Adds a remote entity, e.g. an element of an expanded list.
+     */
+    public void add(ConfigEntity entity) throws IOException {
+        String name = adapter.getName(entity);
+        if (name != null) {
+            add(name, entity);
+        }
+    }
+
+    public void add(String name, ConfigEntity entity) {
+        entities.put(adapter.getKey(name), entity);
+        names.put(adapter.getKey(name), name);
+    }
+
+    /**
+     * Adds an entity known to exist, without its content (e.g. from a list
+     * of names).
+     */
+    public void addName(String name) {
+        add(name, null);
+    }
+
+    /**
+     * @return the remote entity, null if it is not in the state or only its
+     *         name is
+     */
+    public ConfigEntity get(String name) {
+        return entities.get(adapter.getKey(name));
+    }
+
+    public boolean contains(String name) {
+        return entities.containsKey(adapter.getKey(name));
+    }
+
+    /**
+     * @return the names of the remote entities
+     */
+    public Collection<String> getNames() {
+        return Collections.unmodifiableCollection(names.values());
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.reconcile;
+
+import java.io.IOException;
+
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
+
+/**
+ * The management API calls of one resource type (API products,
+ * developers, ...), as used by the {@link Reconciler}.
+ */
+public interface ResourceAdapter {
+
+    /**
+     * @return the resource type as shown in the log, e.g. "API Product"
+     */
+    String getType();
+
+    /**
+     * @return the name of the entity (a config entry or a remote entity),
+     *         null if it has none
+     */
+    String getName(ConfigEntity entity) throws IOException;
+
+    /**
+     * @return the key config and remote entities are matched on; the name
+     *         itself unless the API ignores its case
+     */
+    default String getKey(String name) {
+        return name;
+    }
+
+    /**
+     * @return the comparator telling whether a remote entity already has
+     *         the content of its config entry
+     */
+    JsonComparator getComparator();
+
+    /**
+     * @return true if the remote entity does not need to be updated
+     */
+    default boolean isUnchanged(ConfigEntity entity, ConfigEntity remote) throws IOException {
+        return getComparator().isUnchanged(entity, remote);
+    }
+
+    /**
+     * Fetches the remote entities in bulk.
+     */
+    RemoteState fetchAll() throws IOException;
+
+    /**
+     * @return the remote entity, null if it does not exist
+     */
+    ConfigEntity fetch(String name) throws IOException;
+
+    void create(String name, ConfigEntity entity) throws IOException;
+
+    void update(String name, ConfigEntity entity) throws IOException;
+
+    void delete(String name) throws IOException;
+
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpContent;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.UrlEncodedContent;
+import com.google.auth.oauth2.ServiceAccountCredentials;
+
+/**
+ * Caches the access token obtained from a Google service account file.
+ *
+ * The token is reused until shortly before its expires_in deadline. Once it
+ * enters the refresh window a new one is fetched in the background while
+ * callers keep using the current token; only when the token has expired
+ * do callers wait for the refresh. Concurrent callers always share a single
+ * refresh.
+ *
+ * Providers are owned by the {@link HttpClientPool} of the build, see
+ * {@link HttpClientPool#getAccessTokenProvider(File, HttpTransport)}, so
+ * they do not outlive the transport they fetch tokens with.
+ */
+public class AccessTokenProvider {
+
+	private static final Logger logger = LogManager.getLogger(AccessTokenProvider.class);
+
+	static final String TOKEN_URL = "https://oauth2.googleapis.com/token";
+	static final String SCOPE = "https://www.googleapis.com/auth/cloud-platform";
+
+	/** token lifetime asked for, and assumed when the response has no expires_in */
+	static final long DEFAULT_LIFETIME = 3600 * 1000L;
+	/** start refreshing in the background this long before expiry */
+	static final long REFRESH_WINDOW = 5 * 60 * 1000L;
+	/** stop handing out a token this long before expiry */
+	static final long EXPIRY_SKEW = 30 * 1000L;
+
+	private static final ExecutorService refresher = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "apigee-token-refresh");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final File serviceAccountJSON;
+	private final HttpRequestFactory requestFactory;
+
+	private ServiceAccountCredentials serviceAccount;
+	private volatile Token token;
+	private CompletableFuture<Token> refreshing; // guarded by this
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong refreshes = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	AccessTokenProvider(File serviceAccountJSON, HttpTransport transport) {
+		this.serviceAccountJSON = serviceAccountJSON;
+		this.requestFactory = transport.createRequestFactory();
+	}
+
+	/**
+	 * @return a valid access token, fetching one only when needed
+	 */
+	public String getAccessToken() throws IOException {
+		Token current = token;
+		long now = System.currentTimeMillis();
+		if (current != null && now < current.expiresAt - EXPIRY_SKEW) {
+			hits.incrementAndGet();
+			if (now >= current.expiresAt - REFRESH_WINDOW) {
+				refresh();
+			}
+			return current.value;
+		}
+		return await(refresh()).value;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getRefreshes() {
+		return refreshes.get();
+	}
+
+	public long getFailures() {
+		return failures.get();
+	}
+
+	@Override
+	public String toString() {
+		return "AccessTokenProvider[" + serviceAccountJSON.getName() + ", hits=" + hits.get()
+				+ ", refreshes=" + refreshes.get() + ", failures=" + failures.get() + "]";
+	}
+
+	/**
+	 * Starts a refresh, or joins the one already in flight.
+	 */
+	private synchronized CompletableFuture<Token> refresh() {
+		if (refreshing != null) {
+			return refreshing;
+		}
+		CompletableFuture<Token> future = CompletableFuture.supplyAsync(this::fetchToken, refresher);
+		refreshing = future;
+		// runs inline if the fetch is already done, clearing refreshing
+		// before this method returns: the local future is returned
+		future.whenComplete((t, e) -> {
+			synchronized (AccessTokenProvider.this) {
+				if (t != null) {
+					token = t;
+				}
+				if (refreshing == future) {
+					refreshing = null;
+				}
+			}
+		});
+		return future;
+	}
+
+	private static Token await(CompletableFuture<Token> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while fetching the access token");
+		} catch (ExecutionException e) {
+			Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+			throw new IOException(cause.getMessage(), cause);
+		}
+	}
+
+	private Token fetchToken() {
+		try {
+			Token t = requestToken();
+			refreshes.incrementAndGet();
+			logger.debug("Refreshed access token, valid until " + new Date(t.expiresAt) + " " + this);
+			return t;
+		} catch (Exception e) {
+			failures.incrementAndGet();
+			logger.error("Failed to get an access token: " + e.getMessage());
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
+	private Token requestToken() throws Exception {
+		if (serviceAccount == null) {
+			try (InputStream in = new FileInputStream(serviceAccountJSON)) {
+				serviceAccount = ServiceAccountCredentials.fromStream(in);
+			}
+		}
+		long now = System.currentTimeMillis();
+		Algorithm algorithm = Algorithm.RSA256(null, (RSAPrivateKey) serviceAccount.getPrivateKey());
+		String signedJwt = JWT.create()
+				.withKeyId(serviceAccount.getPrivateKeyId())
+				.withIssuer(serviceAccount.getClientEmail())
+				.withAudience(TOKEN_URL)
+				.withClaim("scope", SCOPE)
+				.withIssuedAt(new Date(now))
+				.withExpiresAt(new Date(now + DEFAULT_LIFETIME))
+				.sign(algorithm);
+
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("grant_type", "urn:ietf:params:oauth:grant-type:jwt-bearer");
+		params.put("assertion", signedJwt);
+		HttpContent content = new UrlEncodedContent(params);
+
+		HttpRequest restRequest = requestFactory.buildPostRequest(new GenericUrl(TOKEN_URL), content);
+		restRequest.setReadTimeout(0);
+		HttpResponse response = restRequest.execute();
+		String payload = response.parseAsString();
+		JSONObject obj = (JSONObject) new JSONParser().parse(payload);
+
+		long lifetime = DEFAULT_LIFETIME;
+		Object expiresIn = obj.get("expires_in");
+		if (expiresIn instanceof Number) {
+			lifetime = ((Number) expiresIn).longValue() * 1000L;
+		}
+		return new Token((String) obj.get("access_token"), now + lifetime);
+	}
+
+	private static class Token {
+		final String value;
+		final long expiresAt;
+
+		Token(String value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest;
+
+import java.io.InterruptedIOException;
+import java.util.Date;
+
+import org.apache.http.client.utils.DateUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpStatusCodes;
+
+/**
+ * Client side limiter of the calls made to one management API endpoint.
+ *
+ * The number of calls in flight is adapted with additive increase /
+ * multiplicative decrease: every successful call raises the limit a little,
+ * up to the configured concurrency, and every throttled call (429 or 503)
+ * halves it. A Retry-After header, or an exhausted X-RateLimit-Remaining
+ * quota, holds back all the calls until the server is ready again. An
+ * optional ceiling in requests per second is enforced with a token bucket.
+ */
+public class AdaptiveRateLimiter {
+
+	private static final Logger logger = LogManager.getLogger(AdaptiveRateLimiter.class);
+
+	/** pause used when a throttled response does not say how long to wait */
+	static final long DEFAULT_RETRY_AFTER = 1000L;
+	/** longest pause honoured from a server header */
+	static final long MAX_RETRY_AFTER = 60 * 1000L;
+
+	private final int maxConcurrency;
+	private final double maxRps;
+
+	// guarded by this
+	private double limit;
+	private int inFlight;
+	private long pausedUntil;
+	private double tokens;
+	private long lastRefill;
+	private long throttled;
+
+	/**
+	 * @param maxConcurrency upper bound of the calls in flight
+	 * @param maxRps max requests per second, 0 for no ceiling
+	 */
+	public AdaptiveRateLimiter(int maxConcurrency, double maxRps) {
+		this.maxConcurrency = Math.max(1, maxConcurrency);
+		this.maxRps = Math.max(0, maxRps);
+		this.limit = this.maxConcurrency;
+		this.tokens = Math.max(1, this.maxRps);
+		this.lastRefill = System.nanoTime();
+	}
+
+	public static boolean isThrottled(int statusCode) {
+		return statusCode == 429 || statusCode == HttpStatusCodes.STATUS_CODE_SERVICE_UNAVAILABLE;
+	}
+
+	/**
+	 * Waits until a call may be issued. Every successful acquire must be
+	 * followed by a {@link #release()}.
+	 */
+	public synchronized void acquire() throws InterruptedIOException {
+		try {
+			while (true) {
+				long now = System.currentTimeMillis();
+				if (now < pausedUntil) {
+					wait(pausedUntil - now);
+					continue;
+				}
+				if (inFlight >= (int) limit) {
+					wait();
+					continue;
+				}
+				if (maxRps > 0) {
+					refill();
+					if (tokens < 1) {
+						long waitMs = (long) Math.ceil((1 - tokens) * 1000 / maxRps);
+						wait(Math.max(1, waitMs));
+						continue;
+					}
+					tokens -= 1;
+				}
+				inFlight++;
+				return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the rate limiter");
+		}
+	}
+
+	public synchronized void release() {
+		inFlight--;
+		notifyAll();
+	}
+
+	/**
+	 * Additive increase, and a pause if the quota headers say it is used up.
+	 */
+	public synchronized void onSuccess(HttpHeaders headers) {
+		if (limit < maxConcurrency) {
+			limit = Math.min(maxConcurrency, limit + 1 / limit);
+		}
+		long resetAt = quotaResetAt(headers);
+		if (resetAt > pausedUntil) {
+			logger.info("Management API quota used up, pausing until " + new Date(resetAt));
+			pausedUntil = resetAt;
+		}
+	}
+
+	/**
+	 * Multiplicative decrease, and a pause as long as the server asked for.
+	 */
+	public synchronized void onThrottled(HttpHeaders headers) {
+		throttled++;
+		limit = Math.max(1, limit / 2);
+		long retryAt = System.currentTimeMillis() + retryAfter(headers);
+		if (retryAt > pausedUntil) {
+			pausedUntil = retryAt;
+		}
+		logger.warn("Management API call throttled, concurrency lowered to " + (int) limit
+				+ ", resuming at " + new Date(pausedUntil));
+		notifyAll();
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized long getThrottled() {
+		return throttled;
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		tokens = Math.min(Math.max(1, maxRps), tokens + (now - lastRefill) / 1e9 * maxRps);
+		lastRefill = now;
+	}
+
+	/**
+	 * Retry-After is either a number of seconds or an HTTP date.
+	 */
+	static long retryAfter(HttpHeaders headers) {
+		String value = (headers != null) ? headers.getFirstHeaderStringValue("Retry-After") : null;
+		if (value == null || value.trim().isEmpty()) {
+			return DEFAULT_RETRY_AFTER;
+		}
+		long delay;
+		try {
+			delay = (long) (Double.parseDouble(value.trim()) * 1000);
+		} catch (NumberFormatException e) {
+			try {
+				delay = DateUtils.parseDate(value.trim()).getTime()
+						- System.currentTimeMillis();
+			} catch (RuntimeException ex) {
+				delay = DEFAULT_RETRY_AFTER;
+			}
+		}
+		return Math.min(MAX_RETRY_AFTER, Math.max(0, delay));
+	}
+
+	/**
+	 * @return when an exhausted quota resets, 0 if the quota is not exhausted
+	 */
+	static long quotaResetAt(HttpHeaders headers) {
+		if (headers == null) {
+			return 0;
+		}
+		String remaining = headers.getFirstHeaderStringValue("X-RateLimit-Remaining");
+		String reset = headers.getFirstHeaderStringValue("X-RateLimit-Reset");
+		if (remaining == null || reset == null) {
+			return 0;
+		}
+		try {
+			if (Long.parseLong(remaining.trim()) > 0) {
+				return 0;
+			}
+			long value = Long.parseLong(reset.trim());
+			long now = System.currentTimeMillis();
+			// either an epoch in seconds or a number of seconds from now
+			long resetAt = (value > now / 1000 / 2) ? value * 1000 : now + value * 1000;
+			return Math.min(now + MAX_RETRY_AFTER, resetAt);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+}
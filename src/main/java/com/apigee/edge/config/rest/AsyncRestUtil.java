@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.execution.MavenSession;
+
+import com.apigee.edge.config.utils.ServerProfile;
+import com.apigee.edge.config.utils.SessionScope;
+
+/**
+ * Runs the {@link RestUtil} calls of a profile asynchronously.
+ *
+ * Calls are run on a pool of at most apigee.config.concurrency threads, so
+ * no more than that many management API calls of a profile are in flight at
+ * once; the others wait in the queue. With the default concurrency of 1 the
+ * calls run one after the other, in the order they were submitted.
+ *
+ * Returned responses hold a pooled connection until they are read or
+ * ignored, as with the blocking client. The threads of a Maven session are
+ * shut down when the session ends.
+ */
+public class AsyncRestUtil implements Closeable {
+
+	private static final Logger logger = LogManager.getLogger(AsyncRestUtil.class);
+
+	public static final int DEFAULT_CONCURRENCY = 1;
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	/**
+	 * A call to the management API.
+	 */
+	@FunctionalInterface
+	public interface Call<T> {
+		T call() throws IOException;
+	}
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * @return the client of the Maven session for the profile's endpoint and
+	 *         concurrency, shut down when the session ends
+	 */
+	public static AsyncRestUtil forSession(MavenSession session, ServerProfile profile) {
+		String key = AsyncRestUtil.class.getName() + ":" + profile.getHostUrl() + ":" + profile.getOrg()
+				+ ":" + profile.getConcurrency();
+		return SessionScope.getCloseable(session, key, () -> new AsyncRestUtil(profile));
+	}
+
+	/**
+	 * Returns the asynchronous client shared by all the callers of the
+	 * profile, creating it on first use.
+	 */
+	public static AsyncRestUtil forProfile(ServerProfile profile) {
+		AsyncRestUtil asyncRestUtil = profile.getAsyncRestUtil();
+		if (asyncRestUtil == null) {
+			synchronized (profile) {
+				asyncRestUtil = profile.getAsyncRestUtil();
+				if (asyncRestUtil == null) {
+					asyncRestUtil = new AsyncRestUtil(profile);
+					profile.setAsyncRestUtil(asyncRestUtil);
+				}
+			}
+		}
+		return asyncRestUtil;
+	}
+
+	public AsyncRestUtil(ServerProfile profile) {
+		int concurrency = profile.getConcurrency() > 0 ? profile.getConcurrency() : DEFAULT_CONCURRENCY;
+		this.executor = new ThreadPoolExecutor(concurrency, concurrency, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), r -> {
+					Thread t = new Thread(r, "apigee-config-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+		logger.debug("Management API calls of " + profile.getOrg() + " run with concurrency " + concurrency);
+	}
+
+	public int getConcurrency() {
+		return executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Runs the call on the bounded executor. A call whose future is
+	 * cancelled while it waits in the queue is not made.
+	 */
+	public <T> CompletableFuture<T> submit(Call<T> call) {
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		executor.execute(() -> {
+			if (future.isDone()) {
+				return;
+			}
+			try {
+				future.complete(call.call());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Stops the threads once the calls already submitted are done.
+	 */
+	public void close() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Waits for all the futures and rethrows the first failure, if any. On
+	 * the first failure the calls still queued are cancelled rather than
+	 * made, the calls in flight are left to complete.
+	 */
+	public static void awaitAll(Collection<? extends CompletableFuture<?>> futures) throws IOException {
+		CompletableFuture<Void> done = new CompletableFuture<Void>();
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> {
+			if (e != null) {
+				done.completeExceptionally(e);
+			} else {
+				done.complete(null);
+			}
+		});
+		for (CompletableFuture<?> future : futures) {
+			future.whenComplete((v, e) -> {
+				if (e != null) {
+					done.completeExceptionally(e);
+				}
+			});
+		}
+		try {
+			done.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancelPending(futures);
+			throw new IOException("Interrupted while waiting for the management API calls");
+		} catch (ExecutionException e) {
+			int cancelled = cancelPending(futures);
+			if (cancelled > 0) {
+				logger.warn("A management API call failed, " + cancelled + " pending call(s) cancelled");
+			}
+			Throwable cause = e.getCause();
+			while (cause instanceof CompletionException && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * @return the number of futures cancelled
+	 */
+	private static int cancelPending(Collection<? extends CompletableFuture<?>> futures) {
+		int cancelled = 0;
+		for (CompletableFuture<?> future : futures) {
+			if (future.cancel(false)) {
+				cancelled++;
+			}
+		}
+		return cancelled;
+	}
+
+}
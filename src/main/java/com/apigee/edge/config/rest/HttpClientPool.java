@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.execution.MavenSession;
+
+import com.apigee.edge.config.rest.transport.TransportProvider;
+import com.apigee.edge.config.utils.ServerProfile;
+import com.apigee.edge.config.utils.SessionScope;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.ApacheHttpTransport;
+
+/**
+ * Connection pooled, keep-alive HTTP clients shared by every goal of a build.
+ *
+ * One client is kept per management endpoint (host and proxy), so TLS
+ * handshakes and TCP connections are reused across all the calls made by
+ * the mojos instead of being set up again for each request. The pool of a
+ * Maven session is closed when the session ends.
+ */
+public class HttpClientPool implements Closeable {
+
+	private static final Logger logger = LogManager.getLogger(HttpClientPool.class);
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+	public static final int DEFAULT_IDLE_TIMEOUT = 30; // seconds
+
+	private static final HttpClientPool defaultPool = new HttpClientPool();
+
+	private final ConcurrentMap<String, CloseableHttpClient> clients = new ConcurrentHashMap<String, CloseableHttpClient>();
+	private final ConcurrentMap<String, HttpTransport> transports = new ConcurrentHashMap<String, HttpTransport>();
+	private final ConcurrentMap<String, AdaptiveRateLimiter> rateLimiters = new ConcurrentHashMap<String, AdaptiveRateLimiter>();
+	private final ConcurrentMap<String, AccessTokenProvider> tokenProviders = new ConcurrentHashMap<String, AccessTokenProvider>();
+	private volatile RetryPolicy retryPolicy;
+
+	/**
+	 * @return the pool owned by the Maven session
+	 */
+	public static HttpClientPool forSession(MavenSession session) {
+		return SessionScope.getCloseable(session, HttpClientPool.class.getName(), HttpClientPool::new);
+	}
+
+	/**
+	 * @return the pool used when the profile was not built by a mojo
+	 */
+	public static HttpClientPool getDefault() {
+		return defaultPool;
+	}
+
+	/**
+	 * @return the pool the profile is bound to
+	 */
+	public static HttpClientPool of(ServerProfile profile) {
+		return (profile.getHttpClientPool() != null) ? profile.getHttpClientPool() : defaultPool;
+	}
+
+	/**
+	 * Transport of the profile's endpoint, created by the provider selected
+	 * with apigee.config.transport
+	 */
+	public HttpTransport getTransport(ServerProfile profile) {
+		String name = (profile.getTransport() != null && !profile.getTransport().trim().isEmpty()) ?
+				profile.getTransport().trim() : TransportProvider.DEFAULT;
+		return transports.computeIfAbsent(name + "|" + connectionKey(profile), key -> {
+			logger.debug("Using the " + name + " transport for " + profile.getHostUrl());
+			return TransportProvider.forName(name).createTransport(profile, this);
+		});
+	}
+
+	/**
+	 * Transport backed by the pooled Apache client of the profile's endpoint,
+	 * for the requests the selected transport does not support
+	 */
+	public HttpTransport getApacheTransport(ServerProfile profile) {
+		return transports.computeIfAbsent("apache|" + connectionKey(profile),
+				key -> new ApacheHttpTransport(getHttpClient(profile)));
+	}
+
+	/**
+	 * Pooled client of the profile's endpoint, created on first use
+	 */
+	public CloseableHttpClient getHttpClient(ServerProfile profile) {
+		return clients.computeIfAbsent(connectionKey(profile), key -> createHttpClient(profile));
+	}
+
+	/**
+	 * Rate limiter shared by all the calls made to the profile's endpoint
+	 */
+	public AdaptiveRateLimiter getRateLimiter(ServerProfile profile) {
+		return rateLimiters.computeIfAbsent(connectionKey(profile),
+				key -> new AdaptiveRateLimiter(Math.max(1, profile.getConcurrency()), profile.getMaxRps()));
+	}
+
+	/**
+	 * Provider of the access tokens of the service account file, fetching
+	 * them with the transport. A new provider is created when the file is
+	 * modified.
+	 */
+	public AccessTokenProvider getAccessTokenProvider(File serviceAccountJSON, HttpTransport transport) {
+		String key = serviceAccountJSON.getAbsolutePath() + "@" + serviceAccountJSON.lastModified()
+				+ "@" + System.identityHashCode(transport);
+		return tokenProviders.computeIfAbsent(key, k -> new AccessTokenProvider(serviceAccountJSON, transport));
+	}
+
+	/**
+	 * Retry policy of the build; its retry budget is shared by every call
+	 */
+	public RetryPolicy getRetryPolicy(ServerProfile profile) {
+		RetryPolicy policy = retryPolicy;
+		if (policy == null) {
+			synchronized (this) {
+				policy = retryPolicy;
+				if (policy == null) {
+					policy = new RetryPolicy(profile.getRetryMaxAttempts(), profile.getRetryBaseDelay(),
+							profile.getRetryMaxDelay(), profile.getRetryBudget());
+					retryPolicy = policy;
+				}
+			}
+		}
+		return policy;
+	}
+
+	/**
+	 * Closes all the clients and their pooled connections, and logs how the
+	 * access tokens were used.
+	 */
+	public void close() {
+		for (CloseableHttpClient client : clients.values()) {
+			try {
+				client.close();
+			} catch (IOException e) {
+				logger.debug("Error closing http client " + e.getMessage());
+			}
+		}
+		clients.clear();
+		for (HttpTransport transport : transports.values()) {
+			try {
+				transport.shutdown();
+			} catch (IOException e) {
+				logger.debug("Error shutting down transport " + e.getMessage());
+			}
+		}
+		transports.clear();
+		rateLimiters.clear();
+		for (AccessTokenProvider provider : tokenProviders.values()) {
+			logger.info("Access tokens: " + provider.getHits() + " reused, " + provider.getRefreshes()
+					+ " fetched, " + provider.getFailures() + " failed");
+		}
+		tokenProviders.clear();
+	}
+
+	private static String connectionKey(ServerProfile profile) {
+		StringBuilder key = new StringBuilder(String.valueOf(profile.getHostUrl()));
+		if (profile.getHasProxy()) {
+			key.append('|').append(profile.getProxyServer())
+				.append(':').append(profile.getProxyPort())
+				.append('|').append(profile.getProxyUsername());
+		}
+		return key.toString();
+	}
+
+	private static CloseableHttpClient createHttpClient(ServerProfile profile) {
+		int maxPerRoute = profile.getMaxConnectionsPerRoute() > 0 ?
+				profile.getMaxConnectionsPerRoute() : DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+		int idleTimeout = profile.getConnectionIdleTimeout() > 0 ?
+				profile.getConnectionIdleTimeout() : DEFAULT_IDLE_TIMEOUT;
+		logger.debug("Creating pooled http client for " + profile.getHostUrl()
+				+ " (max connections per route " + maxPerRoute + ", idle timeout " + idleTimeout + "s)");
+
+		// same trust setup as the rest of the plugin
+		XTrustProvider.install();
+		Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", new SSLConnectionSocketFactory(SSLContexts.createDefault(),
+						NoopHostnameVerifier.INSTANCE))
+				.build();
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactories);
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+		connectionManager.setMaxTotal(maxPerRoute * 2);
+		connectionManager.setValidateAfterInactivity(2000);
+
+		HttpClientBuilder builder = HttpClientBuilder.create()
+				.setConnectionManager(connectionManager)
+				.evictExpiredConnections()
+				.evictIdleConnections(idleTimeout, TimeUnit.SECONDS)
+				.disableCookieManagement()
+				.useSystemProperties();
+
+		if (profile.getHasProxy()) {
+			HttpHost proxy = new HttpHost(profile.getProxyServer(), profile.getProxyPort());
+			builder.setProxy(proxy);
+			if (profile.getProxyUsername() != null && profile.getProxyPassword() != null) {
+				CredentialsProvider credsProvider = new BasicCredentialsProvider();
+				credsProvider.setCredentials(new AuthScope(profile.getProxyServer(), profile.getProxyPort()),
+						new UsernamePasswordCredentials(profile.getProxyUsername(), profile.getProxyPassword()));
+				builder.setDefaultCredentialsProvider(credsProvider);
+			}
+		}
+		return builder.build();
+	}
+
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.api.client.http.HttpResponse;
+
+/**
+ * Streaming decoder of management API responses.
+ *
+ * Only the requested fields are picked from the response stream; the rest
+ * of the document is skipped as it is read, so list responses are never
+ * held in memory as a string or a DOM tree. The handled shapes are a
+ * top-level array (["a", "b"] or [{...}, {...}]) and an array held by a
+ * field of a top-level object ({"apiProduct": [{...}], "nextPageToken": ..}).
+ * Elements can be picked field by field or copied whole.
+ */
+public class JsonResponseReader {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/**
+	 * Receives the values of the requested fields of each array element.
+	 */
+	@FunctionalInterface
+	public interface ElementHandler {
+		/**
+		 * @param values values of the fields in the requested order, null
+		 *               when missing; a string element is the first value
+		 */
+		void element(String[] values) throws IOException;
+	}
+
+	/**
+	 * Receives each object element of the array as JSON.
+	 */
+	@FunctionalInterface
+	public interface ObjectHandler {
+		/**
+		 * @param json the element as UTF-8 JSON
+		 */
+		void element(byte[] json) throws IOException;
+	}
+
+	/**
+	 * Reads the content of the array, the parser is on its START_ARRAY.
+	 */
+	private interface ArrayReader {
+		void read(JsonParser parser) throws IOException;
+	}
+
+	/**
+	 * Reads the elements of the array and closes the response.
+	 *
+	 * @param arrayField field of the top-level object holding the array, or
+	 *                   null when the response itself is the array
+	 * @param fields     fields picked from each element
+	 * @return the scalar fields of the top-level object (e.g. page tokens)
+	 */
+	public static Map<String, String> read(HttpResponse response, String arrayField, String[] fields,
+			ElementHandler handler) throws IOException {
+		return read(response, arrayField, parser -> readElements(parser, fields, handler));
+	}
+
+	/**
+	 * Copies every object element of the array, e.g. the entities of an
+	 * expanded list, and closes the response. Only one element is held in
+	 * memory at a time.
+	 *
+	 * @return the scalar fields of the top-level object (e.g. page tokens)
+	 */
+	public static Map<String, String> readObjects(HttpResponse response, String arrayField,
+			ObjectHandler handler) throws IOException {
+		return read(response, arrayField, parser -> {
+			JsonToken token;
+			ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+				if (token != JsonToken.START_OBJECT) {
+					parser.skipChildren();
+					continue;
+				}
+				out.reset();
+				try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+					generator.copyCurrentStructure(parser);
+				}
+				handler.element(out.toByteArray());
+			}
+		});
+	}
+
+	/**
+	 * Reads a list that holds the names of the entities, or the entities
+	 * themselves when the API expanded it, and closes the response.
+	 *
+	 * @param names    receives each string element as its first value
+	 * @param entities receives each object element as JSON
+	 * @return the scalar fields of the top-level object (e.g. page tokens)
+	 */
+	public static Map<String, String> readNamesOrObjects(HttpResponse response, String arrayField,
+			ElementHandler names, ObjectHandler entities) throws IOException {
+		return read(response, arrayField, parser -> {
+			JsonToken token;
+			ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+				if (token == JsonToken.VALUE_STRING) {
+					names.element(new String[] { parser.getText() });
+				} else if (token == JsonToken.START_OBJECT) {
+					out.reset();
+					try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+						generator.copyCurrentStructure(parser);
+					}
+					entities.element(out.toByteArray());
+				} else {
+					parser.skipChildren();
+				}
+			}
+		});
+	}
+
+	private static Map<String, String> read(HttpResponse response, String arrayField, ArrayReader arrayReader)
+			throws IOException {
+		Map<String, String> topLevel = new HashMap<String, String>();
+		try (InputStream in = response.getContent()) {
+			if (in == null) {
+				return topLevel;
+			}
+			try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+				JsonToken token = parser.nextToken();
+				if (token == JsonToken.START_ARRAY) {
+					if (arrayField == null) {
+						arrayReader.read(parser);
+					} else {
+						parser.skipChildren();
+					}
+				} else if (token == JsonToken.START_OBJECT) {
+					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+						String name = parser.getCurrentName();
+						token = parser.nextToken();
+						if (token == JsonToken.START_ARRAY && name.equals(arrayField)) {
+							arrayReader.read(parser);
+						} else if (token.isScalarValue()) {
+							topLevel.put(name, (token == JsonToken.VALUE_NULL) ? null : parser.getText());
+						} else {
+							parser.skipChildren();
+						}
+					}
+				}
+			}
+		}
+		return topLevel;
+	}
+
+	/**
+	 * @return the value of the field of each element of the array
+	 */
+	public static List<String> readList(HttpResponse response, String arrayField, String field)
+			throws IOException {
+		final List<String> list = new ArrayList<String>();
+		read(response, arrayField, new String[] { field }, values -> list.add(values[0]));
+		return list;
+	}
+
+	/**
+	 * @return the string elements of a top-level array, e.g. a list of names
+	 */
+	public static List<String> readStrings(HttpResponse response) throws IOException {
+		return readList(response, null, null);
+	}
+
+	/**
+	 * @return keyField to valueField of each element of the array
+	 */
+	public static Map<String, String> readMap(HttpResponse response, String arrayField, String keyField,
+			String valueField) throws IOException {
+		final Map<String, String> map = new HashMap<String, String>();
+		read(response, arrayField, new String[] { keyField, valueField }, values -> map.put(values[0], values[1]));
+		return map;
+	}
+
+	private static void readElements(JsonParser parser, String[] fields, ElementHandler handler)
+			throws IOException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			String[] values = new String[fields.length];
+			if (token == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					int index = indexOf(fields, parser.getCurrentName());
+					token = parser.nextToken();
+					if (index >= 0 && token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+						values[index] = parser.getText();
+					} else {
+						parser.skipChildren();
+					}
+				}
+			} else if (token.isScalarValue()) {
+				if (fields.length > 0 && token != JsonToken.VALUE_NULL) {
+					values[0] = parser.getText();
+				}
+			} else {
+				parser.skipChildren();
+				continue;
+			}
+			handler.element(values);
+		}
+	}
+
+	private static int indexOf(String[] fields, String name) {
+		for (int i = 0; i < fields.length; i++) {
+			if (name.equals(fields[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.apigee.edge.config.utils.ServerProfile;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.api.client.http.HttpResponse;
+
+/**
+ * Reads every page of an expanded org level list, e.g.
+ * apiproducts?expand=true.
+ *
+ * The next page is asked for with the pageToken of the response when it has
+ * a nextPageToken, otherwise with startKey set to the key of the last
+ * element. A startKey page starts with that element again, it is skipped.
+ * The listing ends with a page shorter than the page size, or the last
+ * page of a pageToken listing. It is incomplete when a later page is not
+ * found or fails, or when a full page brings nothing new to ask the next
+ * one with.
+ */
+public class PagedListReader {
+
+	private static final Logger logger = LogManager.getLogger(PagedListReader.class);
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/** the largest page the management API returns */
+	public static final int DEFAULT_PAGE_SIZE = 1000;
+
+	private final ServerProfile profile;
+	private final String resource;
+	private final String arrayField;
+	private final String keyField;
+	private int pageSize = DEFAULT_PAGE_SIZE;
+
+	/**
+	 * @param resource   the org level resource, e.g. apiproducts
+	 * @param arrayField field of the response holding the page, e.g. apiProduct
+	 * @param keyField   field of an element the list is ordered by, e.g. name
+	 */
+	public PagedListReader(ServerProfile profile, String resource, String arrayField, String keyField) {
+		this.profile = profile;
+		this.resource = resource;
+		this.arrayField = arrayField;
+		this.keyField = keyField;
+	}
+
+	public PagedListReader setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+		return this;
+	}
+
+	/**
+	 * Hands every element of every page to the handler.
+	 *
+	 * @return true if the listing was read to its end, false if the elements
+	 *         handed on are only part of it
+	 * @throws IOException if the first page fails
+	 */
+	public boolean readAll(JsonResponseReader.ObjectHandler handler) throws IOException {
+		long start = System.currentTimeMillis();
+		int total = 0;
+		int pages = 0;
+		boolean complete = true;
+		String startKey = null;
+		String pageToken = null;
+		while (true) {
+			StringBuilder query = new StringBuilder(resource).append("?expand=true&count=").append(pageSize);
+			if (pageToken != null) {
+				query.append("&pageToken=").append(URLEncoder.encode(pageToken, "UTF-8"));
+			} else if (startKey != null) {
+				query.append("&startKey=").append(URLEncoder.encode(startKey, "UTF-8"));
+			}
+			final String previousKey = startKey;
+			final String[] lastKey = new String[1];
+			final int[] counts = new int[2]; // elements of the page, new ones
+			Map<String, String> topLevel;
+			try {
+				HttpResponse response = getPage(query.toString());
+				if (response == null) {
+					// no list at all, or the page is gone
+					complete = (pages == 0);
+					break;
+				}
+				topLevel = JsonResponseReader.readObjects(response, arrayField, json -> {
+					counts[0]++;
+					String key = readField(json, keyField);
+					if (previousKey != null && previousKey.equals(key)) {
+						return;
+					}
+					counts[1]++;
+					lastKey[0] = key;
+					handler.element(json);
+				});
+				pages++;
+			} catch (IOException e) {
+				if (pages == 0) {
+					throw e;
+				}
+				logger.warn("Listing " + resource + " failed after " + pages + " page(s): " + e.getMessage());
+				complete = false;
+				break;
+			} finally {
+				total += counts[1];
+			}
+
+			String nextPageToken = topLevel.get("nextPageToken");
+			if (nextPageToken != null && !nextPageToken.isEmpty()) {
+				pageToken = nextPageToken;
+			} else if (pageToken != null || counts[0] < pageSize) {
+				break;
+			} else if (counts[1] > 0 && lastKey[0] != null) {
+				startKey = lastKey[0];
+			} else {
+				// a full page, but nothing to ask the next one with
+				complete = false;
+				break;
+			}
+		}
+		logger.info("Listed " + total + " " + resource + " in " + pages + " page(s) ("
+				+ (System.currentTimeMillis() - start) + " ms)" + (complete ? "" : ", incomplete"));
+		return complete;
+	}
+
+	/**
+	 * @return the page, null if it does not exist
+	 */
+	protected HttpResponse getPage(String query) throws IOException {
+		return RestUtil.forProfile(profile).getOrgConfig(profile, query);
+	}
+
+	/**
+	 * @return the value of a top-level scalar field of the object
+	 */
+	static String readField(byte[] json, String field) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (name.equals(field) && token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+					return parser.getText();
+				}
+				parser.skipChildren();
+			}
+			return null;
+		}
+	}
+
+}
@@ -16,27 +16,22 @@
 package com.apigee.edge.config.rest;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URLEncoder;
-import java.nio.file.Files;
-import java.security.interfaces.RSAPrivateKey;
-import java.util.Date;
-import java.util.HashMap;
+import java.nio.file.NoSuchFileException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.net.ssl.HttpsURLConnection;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
+import com.apigee.edge.config.utils.ConfigEntity;
 import com.apigee.edge.config.utils.PrintUtil;
 import com.apigee.edge.config.utils.ServerProfile;
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.FileContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpContent;
 import com.google.api.client.http.HttpHeaders;
@@ -49,94 +44,111 @@ import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.MultipartContent;
-import com.google.api.client.http.UrlEncodedContent;
 import com.google.api.client.http.apache.ApacheHttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
-import com.google.auth.oauth2.ServiceAccountCredentials;
 
+/**
+ * Client of the Apigee management API.
+ *
+ * Instances are immutable and thread safe: the request factory is bound to
+ * the pooled transport of the profile when the instance is created and the
+ * access token is resolved per request, so one instance can be shared by
+ * every thread working on the same profile (see {@link #forProfile}).
+ */
 public class RestUtil {
-	private static HttpRequestFactory REQUEST_FACTORY;
-	private static HttpRequestFactory APACHE_REQUEST_FACTORY;
 	
-    static final HttpTransport HTTP_TRANSPORT = new NetHttpTransport();
-    static final HttpTransport APACHE_HTTP_TRANSPORT = new ApacheHttpTransport();
     static final JsonFactory JSON_FACTORY = new JacksonFactory();
-    static String versionRevision;
-    static Logger logger = LogManager.getLogger(RestUtil.class);
+    static final Logger logger = LogManager.getLogger(RestUtil.class);
+    
+    private static final String MULTIPART_BOUNDARY_PREFIX = "----ApigeeKeystoreBoundary";
     
-    static String accessToken = null;
+    // times a call is sent at most, throttled re-sends and retries together
+    static final int MAX_SENDS = 8;
     
-    private static String MULTIPART_BOUNDARY_PREFIX = "----ApigeeKeystoreBoundary";
+    static {
+    	// trust setup is JVM wide, so it is done once rather than per request
+    	XTrustProvider.install();
+    	// FIXME this is bad - Install the all-trusting host name verifier
+    	HttpsURLConnection.setDefaultHostnameVerifier(new FakeHostnameVerifier());
+    }
     
-    private ServerProfile profile;
+    private final ServerProfile profile;
+    private final HttpTransport httpTransport;
+    private final HttpRequestFactory requestFactory;
+    private final HttpRequestFactory patchRequestFactory;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    // request body bytes logged, -1 for all
+    private final int logBodyLimit;
+    private final AtomicBoolean mfaInitialised = new AtomicBoolean(false);
     
     public ServerProfile getProfile() {
 		return profile;
 	}
     
+    /**
+     * Returns the client shared by all the callers of the profile, creating
+     * it on first use.
+     */
+    public static RestUtil forProfile(ServerProfile profile) {
+    	RestUtil restUtil = profile.getRestUtil();
+    	if (restUtil == null) {
+    		synchronized (profile) {
+    			restUtil = profile.getRestUtil();
+    			if (restUtil == null) {
+    				restUtil = new RestUtil(profile);
+    				profile.setRestUtil(restUtil);
+    			}
+    		}
+    	}
+    	return restUtil;
+    }
+    
     public RestUtil(ServerProfile profile) {
 		this.profile = profile;
 
-		HttpTransport httpTransport;
-		ApacheHttpTransport apacheHttpTransport;
-
 		if (profile.getApacheHttpClient() != null) {
-			httpTransport = new ApacheHttpTransport(profile.getApacheHttpClient());
-			apacheHttpTransport = new ApacheHttpTransport(profile.getApacheHttpClient());
+			this.httpTransport = new ApacheHttpTransport(profile.getApacheHttpClient());
 		} else {
-			httpTransport = new NetHttpTransport();
-			apacheHttpTransport = new ApacheHttpTransport();
+			// transport selected with apigee.config.transport, shared by all the goals of the build
+			this.httpTransport = HttpClientPool.of(profile).getTransport(profile);
 		}
 
-		REQUEST_FACTORY = httpTransport.createRequestFactory(new HttpRequestInitializer() {
+		this.rateLimiter = HttpClientPool.of(profile).getRateLimiter(profile);
+		this.retryPolicy = HttpClientPool.of(profile).getRetryPolicy(profile);
+		this.logBodyLimit = PrintUtil.bodyLimit(profile.getLogVerbosity());
+		HttpRequestInitializer initializer = new HttpRequestInitializer() {
 			// @Override
 			public void initialize(HttpRequest request) {
 				request.setParser(JSON_FACTORY.createJsonObjectParser());
-				XTrustProvider.install();
-				// FIXME this is bad - Install the all-trusting host name verifier
-				HttpsURLConnection.setDefaultHostnameVerifier(new FakeHostnameVerifier());
 			}
-		});
-
-		APACHE_REQUEST_FACTORY = apacheHttpTransport.createRequestFactory(new HttpRequestInitializer() {
-			// @Override
-			public void initialize(HttpRequest request) {
-				request.setParser(JSON_FACTORY.createJsonObjectParser());
-				XTrustProvider.install();
-				// FIXME this is bad - Install the all-trusting host name verifier
-				HttpsURLConnection.setDefaultHostnameVerifier(new FakeHostnameVerifier());
+		};
+		this.requestFactory = httpTransport.createRequestFactory(initializer);
+		// not every transport can send PATCH (e.g. HttpURLConnection)
+		HttpTransport patchTransport = httpTransport;
+		try {
+			if (!httpTransport.supportsMethod(HttpMethods.PATCH)) {
+				patchTransport = HttpClientPool.of(profile).getApacheTransport(profile);
 			}
-		});
-
+		} catch (IOException e) {
+			patchTransport = HttpClientPool.of(profile).getApacheTransport(profile);
+		}
+		this.patchRequestFactory = patchTransport.createRequestFactory(initializer);
 	}
     
-    /*static HttpRequestFactory REQUEST_FACTORY = HTTP_TRANSPORT
-            .createRequestFactory(new HttpRequestInitializer() {
-                // @Override
-                public void initialize(HttpRequest request) {
-                    request.setParser(JSON_FACTORY.createJsonObjectParser());
-                    XTrustProvider.install();
-                    FakeHostnameVerifier _hostnameVerifier = new FakeHostnameVerifier();
-                    // Install the all-trusting host name verifier:
-                    HttpsURLConnection.setDefaultHostnameVerifier(_hostnameVerifier);
-
-                }
-            });
-    
-    static HttpRequestFactory APACHE_REQUEST_FACTORY = APACHE_HTTP_TRANSPORT
-            .createRequestFactory(new HttpRequestInitializer() {
-                // @Override
-                public void initialize(HttpRequest request) {
-                    request.setParser(JSON_FACTORY.createJsonObjectParser());
-                    XTrustProvider.install();
-                    FakeHostnameVerifier _hostnameVerifier = new FakeHostnameVerifier();
-                    // Install the all-trusting host name verifier:
-                    HttpsURLConnection.setDefaultHostnameVerifier(_hostnameVerifier);
-
-                }
-            });*/
+
+    /**
+     * Upload content streamed from the file when the request is sent, so the
+     * file is never held in memory
+     */
+    private static FileContent fileContent(String filePath) throws IOException {
+    	File file = new File(filePath);
+    	if (!file.isFile()) {
+    		throw new NoSuchFileException(filePath);
+    	}
+    	return new FileContent("application/octet-stream", file);
+    }
 
     /***************************************************************************
      * Env Config - get, create, update
@@ -154,7 +166,7 @@ public class RestUtil {
                             + profile.getOrg() + "/environments/"
                             + profile.getEnvironment() + "/" + resource;
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildPostRequest(
+        HttpRequest restRequest = requestFactory.buildPostRequest(
                 new GenericUrl(importCmd), content);
         restRequest.setReadTimeout(0);
 
@@ -201,7 +213,7 @@ public class RestUtil {
 		GenericUrl url = new GenericUrl(importCmd);
 		url.putAll(parameters);
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildPostRequest(url, content);
+		HttpRequest restRequest = requestFactory.buildPostRequest(url, content);
 		restRequest.setReadTimeout(0);
 
 		HttpResponse response;
@@ -217,14 +229,13 @@ public class RestUtil {
 
     public HttpResponse createEnvConfigUpload(ServerProfile profile, String resource, String filePath)
 			throws IOException {
-		byte[] file = Files.readAllBytes(new File(filePath).toPath());
-		ByteArrayContent content = new ByteArrayContent("application/octet-stream", file);
+		FileContent content = fileContent(filePath);
 
 		String importCmd = profile.getHostUrl() + "/" + profile.getApi_version() + "/organizations/" + profile.getOrg()
 							+ "/environments/" + profile.getEnvironment()
 							+ "/" + resource;
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildPostRequest(new GenericUrl(importCmd), content);
+		HttpRequest restRequest = requestFactory.buildPostRequest(new GenericUrl(importCmd), content);
 		restRequest.setReadTimeout(0);
 
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -249,8 +260,7 @@ public class RestUtil {
   		
   		if (multipartFiles.entrySet().size() > 0) {
       		for (Map.Entry<String, String> entry : multipartFiles.entrySet()) {
-      			byte[] file = Files.readAllBytes(new File(entry.getValue()).toPath());
-      			ByteArrayContent content = new ByteArrayContent("application/octet-stream", file);
+      			FileContent content = fileContent(entry.getValue());
 
       			HttpHeaders headers = new HttpHeaders().set("Content-Disposition",
       					"form-data; name=\"" + entry.getKey() + "\"");
@@ -275,7 +285,7 @@ public class RestUtil {
       			+ "/" + subResource;
   		GenericUrl url = new GenericUrl(importCmd);
   		url.putAll(parameters);
-  		HttpRequest restRequest = REQUEST_FACTORY.buildPostRequest(url, payload);
+  		HttpRequest restRequest = requestFactory.buildPostRequest(url, payload);
       	restRequest.setReadTimeout(0);
       	HttpResponse response;
   		try {
@@ -296,8 +306,7 @@ public class RestUtil {
   		
   		if (multipartFiles.entrySet().size() > 0) {
       		for (Map.Entry<String, String> entry : multipartFiles.entrySet()) {
-      			byte[] file = Files.readAllBytes(new File(entry.getValue()).toPath());
-      			ByteArrayContent content = new ByteArrayContent("application/octet-stream", file);
+      			FileContent content = fileContent(entry.getValue());
 
       			HttpHeaders headers = new HttpHeaders().set("Content-Disposition",
       					"form-data; name=\"" + entry.getKey() + "\"");
@@ -322,7 +331,7 @@ public class RestUtil {
       			+ "/" + subResource;
   		GenericUrl url = new GenericUrl(importCmd);
   		url.putAll(parameters);
-  		HttpRequest restRequest = REQUEST_FACTORY.buildPutRequest(url, payload);
+  		HttpRequest restRequest = requestFactory.buildPutRequest(url, payload);
       	restRequest.setReadTimeout(0);
       	HttpResponse response;
   		try {
@@ -350,7 +359,7 @@ public class RestUtil {
                             + profile.getEnvironment() + "/" + resource + "/"
                             + URLEncoder.encode(resourceId, "UTF-8");
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildPutRequest(
+        HttpRequest restRequest = requestFactory.buildPutRequest(
                 new GenericUrl(importCmd), content);
         restRequest.setReadTimeout(0);
 
@@ -390,14 +399,13 @@ public class RestUtil {
 	public HttpResponse updateEnvConfigUpload(ServerProfile profile, String resource, String resourceId,
 			String filePath) throws IOException {
 
-		byte[] file = Files.readAllBytes(new File(filePath).toPath());
-		ByteArrayContent content = new ByteArrayContent("application/octet-stream", file);
+		FileContent content = fileContent(filePath);
 
 		String importCmd = profile.getHostUrl() + "/" + profile.getApi_version() + "/organizations/" + profile.getOrg()
 							+ "/environments/"+ profile.getEnvironment()
 							+ "/" + resource + "/" + resourceId;
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildPutRequest(new GenericUrl(importCmd), content);
+		HttpRequest restRequest = requestFactory.buildPutRequest(new GenericUrl(importCmd), content);
 		restRequest.setReadTimeout(0);
 
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -426,7 +434,7 @@ public class RestUtil {
 		GenericUrl url = new GenericUrl(importCmd);
 		url.putAll(parameters);
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildPutRequest(url, content);
+		HttpRequest restRequest = requestFactory.buildPutRequest(url, content);
 		restRequest.setReadTimeout(0);
 
 		HttpResponse response;
@@ -447,7 +455,7 @@ public class RestUtil {
 							+ "/environments/" + profile.getEnvironment()
 							+ "/" + resource + "/" + resourceId;
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildDeleteRequest(new GenericUrl(importCmd));
+		HttpRequest restRequest = requestFactory.buildDeleteRequest(new GenericUrl(importCmd));
 		restRequest.setReadTimeout(0);
 
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -486,9 +494,9 @@ public class RestUtil {
         if(payload!=null && !payload.equalsIgnoreCase("")){
         	ByteArrayContent content = new ByteArrayContent("application/json", 
                     payload.getBytes());
-        	restRequest = REQUEST_FACTORY.buildRequest(HttpMethods.DELETE, new GenericUrl(importCmd), content);
+        	restRequest = requestFactory.buildRequest(HttpMethods.DELETE, new GenericUrl(importCmd), content);
         }else{
-        	restRequest = REQUEST_FACTORY.buildDeleteRequest(
+        	restRequest = requestFactory.buildDeleteRequest(
                     new GenericUrl(importCmd));
         }
         restRequest.setReadTimeout(0);
@@ -511,7 +519,7 @@ public class RestUtil {
                                                 String resource) 
             throws IOException {
 
-        HttpRequest restRequest = REQUEST_FACTORY
+        HttpRequest restRequest = requestFactory
                 .buildGetRequest(new GenericUrl(profile.getHostUrl() + "/"
                         + profile.getApi_version() + "/organizations/"
                         + profile.getOrg() + "/environments/"
@@ -566,7 +574,7 @@ public class RestUtil {
 		+ profile.getEnvironment() + "/" + resource + "/"
 		+ URLEncoder.encode(resourceId, "UTF-8");
 		
-		HttpRequest restRequest = APACHE_REQUEST_FACTORY.buildRequest(HttpMethods.PATCH, new GenericUrl(importCmd), content);
+		HttpRequest restRequest = patchRequestFactory.buildRequest(HttpMethods.PATCH, new GenericUrl(importCmd), content);
 		restRequest.setReadTimeout(0);
 		
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -591,6 +599,19 @@ public class RestUtil {
                                                 String resource,
                                                 String payload)
             throws IOException {
+    	return createOrgConfig(profile, resource, payload, false);
+    }
+
+    /**
+     * @param idempotent true if the POST can safely be sent again, e.g. an
+     *                   update of an existing resource, so that it is retried
+     *                   on transient errors
+     */
+    public HttpResponse createOrgConfig(ServerProfile profile, 
+                                                String resource,
+                                                String payload,
+                                                boolean idempotent)
+            throws IOException {
 
         ByteArrayContent content = new ByteArrayContent("application/json", 
                                                             payload.getBytes());
@@ -599,7 +620,7 @@ public class RestUtil {
                             + profile.getApi_version() + "/organizations/"
                             + profile.getOrg() + "/" + resource;
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildPostRequest(
+        HttpRequest restRequest = requestFactory.buildPostRequest(
                 new GenericUrl(importCmd), content);
         restRequest.setReadTimeout(0);
         
@@ -608,7 +629,7 @@ public class RestUtil {
         HttpResponse response;
         try {
         	//response = restRequest.execute();
-            response = executeAPI(profile, restRequest);
+            response = executeAPI(profile, restRequest, idempotent);
         } catch (HttpResponseException e) {
             logger.error("Apigee call failed " + e.getMessage());
             throw new IOException(e.getMessage());
@@ -635,13 +656,12 @@ public class RestUtil {
     
 	public HttpResponse createOrgConfigUpload(ServerProfile profile, String resource, String filePath)
 			throws IOException {
-		byte[] file = Files.readAllBytes(new File(filePath).toPath());
-		ByteArrayContent content = new ByteArrayContent("application/octet-stream", file);
+		FileContent content = fileContent(filePath);
 
 		String importCmd = profile.getHostUrl() + "/" + profile.getApi_version() + "/organizations/" + profile.getOrg()
 				+ "/" + resource;
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildPostRequest(new GenericUrl(importCmd), content);
+		HttpRequest restRequest = requestFactory.buildPostRequest(new GenericUrl(importCmd), content);
 		restRequest.setReadTimeout(0);
 
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -672,7 +692,7 @@ public class RestUtil {
                                 + profile.getOrg() + "/" + resource + "/"
                                 + URLEncoder.encode(resourceId, "UTF-8");
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildPutRequest(
+        HttpRequest restRequest = requestFactory.buildPutRequest(
                 new GenericUrl(importCmd), content);
         restRequest.setReadTimeout(0);
         
@@ -713,13 +733,12 @@ public class RestUtil {
 													String resourceId,
 													String filePath) throws IOException {
 
-		byte[] file = Files.readAllBytes(new File(filePath).toPath());
-		ByteArrayContent content = new ByteArrayContent("application/octet-stream", file);
+		FileContent content = fileContent(filePath);
 		
 		String importCmd = profile.getHostUrl() + "/" + profile.getApi_version() + "/organizations/" + profile.getOrg()
 		+ "/" + resource+"/"+resourceId;
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildPutRequest(new GenericUrl(importCmd), content);
+		HttpRequest restRequest = requestFactory.buildPutRequest(new GenericUrl(importCmd), content);
 		restRequest.setReadTimeout(0);
 
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -750,7 +769,7 @@ public class RestUtil {
                 + "/" + subResource + "/"
                 + subResourceId;
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildDeleteRequest(
+        HttpRequest restRequest = requestFactory.buildDeleteRequest(
                                                     new GenericUrl(cmd));
         restRequest.setReadTimeout(0);
 
@@ -776,7 +795,7 @@ public class RestUtil {
                                 + profile.getOrg() + "/" + resource + "/"
                                 + URLEncoder.encode(resourceId, "UTF-8");
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildDeleteRequest(
+        HttpRequest restRequest = requestFactory.buildDeleteRequest(
                                                     new GenericUrl(importCmd));
         restRequest.setReadTimeout(0);
 
@@ -800,7 +819,7 @@ public class RestUtil {
 		String importCmd = profile.getHostUrl() + "/" + profile.getApi_version() + "/organizations/" + profile.getOrg()
 				+ "/" + resource + "/" + resourceId;
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildDeleteRequest(new GenericUrl(importCmd));
+		HttpRequest restRequest = requestFactory.buildDeleteRequest(new GenericUrl(importCmd));
 		restRequest.setReadTimeout(0);
 
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -821,7 +840,7 @@ public class RestUtil {
                                                 String resource) 
             throws IOException {
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildGetRequest(
+        HttpRequest restRequest = requestFactory.buildGetRequest(
                 new GenericUrl(profile.getHostUrl() + "/"
                         + profile.getApi_version() + "/organizations/"
                         + profile.getOrg() + "/" + resource));
@@ -887,7 +906,7 @@ public class RestUtil {
                 + profile.getApi_version() + "/organizations/"
                 + profile.getOrg() + "/" + resource;
 		
-		HttpRequest restRequest = APACHE_REQUEST_FACTORY.buildRequest(HttpMethods.PATCH, new GenericUrl(importCmd), content);
+		HttpRequest restRequest = patchRequestFactory.buildRequest(HttpMethods.PATCH, new GenericUrl(importCmd), content);
 		restRequest.setReadTimeout(0);
 		
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -918,7 +937,7 @@ public class RestUtil {
                                 + profile.getOrg() + "/" + resource + "/"
                                 + URLEncoder.encode(resourceId, "UTF-8");
 
-        HttpRequest restRequest = APACHE_REQUEST_FACTORY.buildRequest(HttpMethods.PATCH, new GenericUrl(importCmd), content);
+        HttpRequest restRequest = patchRequestFactory.buildRequest(HttpMethods.PATCH, new GenericUrl(importCmd), content);
 		restRequest.setReadTimeout(0);
         
         //logger.info(PrintUtil.formatRequest(restRequest));
@@ -952,7 +971,7 @@ public class RestUtil {
                             + profile.getOrg() + "/apis/"
                             + api + "/" + resource;
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildPostRequest(
+        HttpRequest restRequest = requestFactory.buildPostRequest(
                 new GenericUrl(importCmd), content);
         restRequest.setReadTimeout(0);
 
@@ -990,14 +1009,13 @@ public class RestUtil {
         
         public HttpResponse createAPIConfigUpload(ServerProfile profile, String api, String resource, String filePath)
     			throws IOException {
-    		byte[] file = Files.readAllBytes(new File(filePath).toPath());
-    		ByteArrayContent content = new ByteArrayContent("application/octet-stream", file);
+    		FileContent content = fileContent(filePath);
 
     		String importCmd = profile.getHostUrl() + "/" + profile.getApi_version() + "/organizations/" + profile.getOrg()
     							+ "/apis/" + api
     							+ "/" + resource;
 
-    		HttpRequest restRequest = REQUEST_FACTORY.buildPostRequest(new GenericUrl(importCmd), content);
+    		HttpRequest restRequest = requestFactory.buildPostRequest(new GenericUrl(importCmd), content);
     		restRequest.setReadTimeout(0);
 
     		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -1030,7 +1048,7 @@ public class RestUtil {
                             + api + "/" + resource + "/"
                             + URLEncoder.encode(resourceId, "UTF-8");
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildPutRequest(
+        HttpRequest restRequest = requestFactory.buildPutRequest(
                 new GenericUrl(importCmd), content);
         restRequest.setReadTimeout(0);
 
@@ -1071,14 +1089,13 @@ public class RestUtil {
     public HttpResponse updateAPIConfigUpload(ServerProfile profile, String api, String resource, String resourceId,
 			String filePath) throws IOException {
 
-		byte[] file = Files.readAllBytes(new File(filePath).toPath());
-		ByteArrayContent content = new ByteArrayContent("application/octet-stream", file);
+		FileContent content = fileContent(filePath);
 
 		String importCmd = profile.getHostUrl() + "/" + profile.getApi_version() + "/organizations/" + profile.getOrg()
 							+ "/apis/"+ api
 							+ "/" + resource + "/" + resourceId;
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildPutRequest(new GenericUrl(importCmd), content);
+		HttpRequest restRequest = requestFactory.buildPutRequest(new GenericUrl(importCmd), content);
 		restRequest.setReadTimeout(0);
 
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -1108,7 +1125,7 @@ public class RestUtil {
                             + api + "/" + resource + "/"
                             + URLEncoder.encode(resourceId, "UTF-8");
 
-        HttpRequest restRequest = REQUEST_FACTORY.buildDeleteRequest(
+        HttpRequest restRequest = requestFactory.buildDeleteRequest(
                 new GenericUrl(importCmd));
         restRequest.setReadTimeout(0);
 
@@ -1131,7 +1148,7 @@ public class RestUtil {
                                                 String resource) 
             throws IOException {
 
-        HttpRequest restRequest = REQUEST_FACTORY
+        HttpRequest restRequest = requestFactory
                 .buildGetRequest(new GenericUrl(profile.getHostUrl() + "/"
                         + profile.getApi_version() + "/organizations/"
                         + profile.getOrg() + "/apis/"
@@ -1179,7 +1196,7 @@ public class RestUtil {
 				+ "/apis/"+api
 				+ "/" + resource + "/" + resourceId;
 
-		HttpRequest restRequest = REQUEST_FACTORY.buildDeleteRequest(new GenericUrl(importCmd));
+		HttpRequest restRequest = requestFactory.buildDeleteRequest(new GenericUrl(importCmd));
 		restRequest.setReadTimeout(0);
 
 		//logger.info(PrintUtil.formatRequest(restRequest));
@@ -1196,6 +1213,74 @@ public class RestUtil {
 		return response;
 	}
     
+    /***************************************************************************
+     * Config entities - the payload is sent as read from the config
+     **/
+    public HttpResponse createEnvConfig(ServerProfile profile, String resource,
+                                               ConfigEntity entity)
+            throws IOException {
+        String importCmd = profile.getHostUrl() + "/"
+                + profile.getApi_version() + "/organizations/"
+                + profile.getOrg() + "/environments/"
+                + profile.getEnvironment() + "/" + resource;
+        return executeAPIPost(profile, entity.getPayload(), importCmd, false);
+    }
+
+    public HttpResponse updateEnvConfig(ServerProfile profile, String resource,
+                                               String resourceId, ConfigEntity entity)
+            throws IOException {
+        String cmd = profile.getHostUrl() + "/"
+                + profile.getApi_version() + "/organizations/"
+                + profile.getOrg() + "/environments/"
+                + profile.getEnvironment() + "/" + resource + "/"
+                + URLEncoder.encode(resourceId, "UTF-8");
+        return executeAPIPut(profile, entity.getPayload(), cmd);
+    }
+
+    /**
+     * @param idempotent true if the POST can safely be sent again, see
+     *                   {@link #createOrgConfig(ServerProfile, String, String, boolean)}
+     */
+    public HttpResponse createOrgConfig(ServerProfile profile, String resource,
+                                               ConfigEntity entity, boolean idempotent)
+            throws IOException {
+        String importCmd = profile.getHostUrl() + "/"
+                + profile.getApi_version() + "/organizations/"
+                + profile.getOrg() + "/" + resource;
+        return executeAPIPost(profile, entity.getPayload(), importCmd, idempotent);
+    }
+
+    public HttpResponse updateOrgConfig(ServerProfile profile, String resource,
+                                               String resourceId, ConfigEntity entity)
+            throws IOException {
+        String cmd = profile.getHostUrl() + "/"
+                + profile.getApi_version() + "/organizations/"
+                + profile.getOrg() + "/" + resource + "/"
+                + URLEncoder.encode(resourceId, "UTF-8");
+        return executeAPIPut(profile, entity.getPayload(), cmd);
+    }
+
+    public HttpResponse createAPIConfig(ServerProfile profile, String api,
+                                               String resource, ConfigEntity entity)
+            throws IOException {
+        String importCmd = profile.getHostUrl() + "/"
+                + profile.getApi_version() + "/organizations/"
+                + profile.getOrg() + "/apis/"
+                + api + "/" + resource;
+        return executeAPIPost(profile, entity.getPayload(), importCmd, false);
+    }
+
+    public HttpResponse updateAPIConfig(ServerProfile profile, String api,
+                                               String resource, String resourceId, ConfigEntity entity)
+            throws IOException {
+        String cmd = profile.getHostUrl() + "/"
+                + profile.getApi_version() + "/organizations/"
+                + profile.getOrg() + "/apis/"
+                + api + "/" + resource + "/"
+                + URLEncoder.encode(resourceId, "UTF-8");
+        return executeAPIPut(profile, entity.getPayload(), cmd);
+    }
+
     public void initMfa(ServerProfile profile) throws IOException {
 
     	// any simple get request can be used to - we just need to get an access token
@@ -1204,10 +1289,10 @@ public class RestUtil {
         // trying to construct the URL like
         // https://api.enterprise.apigee.com/v1/organizations/apigee-cs/apis/
         // success response is ignored
-    	if (accessToken == null) {
+    	if (mfaInitialised.compareAndSet(false, true)) {
 			logger.info("=============Initialising MFA================");
 	
-	        HttpRequest restRequest = REQUEST_FACTORY
+	        HttpRequest restRequest = requestFactory
 	                .buildGetRequest(new GenericUrl(profile.getHostUrl() + "/"
 	                        + profile.getApi_version() + "/organizations/"
 	                        + profile.getOrg() + "/apis/"));
@@ -1216,6 +1301,7 @@ public class RestUtil {
 	        try {
 	            HttpResponse response = executeAPI(profile, restRequest);            
 	            //ignore response - we just wanted the MFA initialised
+	            response.ignore();
 	            logger.info("=============MFA Initialised================");
 	        } catch (HttpResponseException e) {
 	            logger.error(e.getMessage());
@@ -1228,7 +1314,7 @@ public class RestUtil {
     private HttpResponse executeAPIGet(ServerProfile profile, String importCmd)
             throws IOException {
 
-        HttpRequest restRequest = REQUEST_FACTORY
+        HttpRequest restRequest = requestFactory
                 .buildGetRequest(
                         new GenericUrl(importCmd));
         restRequest.setReadTimeout(0);
@@ -1248,18 +1334,23 @@ public class RestUtil {
     private HttpResponse executeAPIPost(ServerProfile profile, String payload,
                                                String importCmd)
             throws IOException {
+        return executeAPIPost(profile, payload.getBytes(), importCmd, false);
+    }
+
+    private HttpResponse executeAPIPost(ServerProfile profile, byte[] payload,
+                                               String importCmd, boolean idempotent)
+            throws IOException {
 
-        ByteArrayContent content = new ByteArrayContent("application/json",
-                payload.getBytes());
+        ByteArrayContent content = new ByteArrayContent("application/json", payload);
 
-        HttpRequest restRequest = REQUEST_FACTORY
+        HttpRequest restRequest = requestFactory
                 .buildPostRequest(
                         new GenericUrl(importCmd), content);
         restRequest.setReadTimeout(0);
 
         HttpResponse response;
         try {
-            response = executeAPI(profile, restRequest);
+            response = executeAPI(profile, restRequest, idempotent);
         } catch (HttpResponseException e) {
             logger.error("Apigee call failed " + e.getMessage());
             throw new IOException(e.getMessage());
@@ -1271,11 +1362,16 @@ public class RestUtil {
     private HttpResponse executeAPIPut(ServerProfile profile, String payload,
 			            						String cmd)
 			throws IOException {
+    	return executeAPIPut(profile, payload.getBytes(), cmd);
+    }
 
-    	ByteArrayContent content = new ByteArrayContent("application/json",
-    			payload.getBytes());
+    private HttpResponse executeAPIPut(ServerProfile profile, byte[] payload,
+			            						String cmd)
+			throws IOException {
+
+    	ByteArrayContent content = new ByteArrayContent("application/json", payload);
 	
-    	HttpRequest restRequest = REQUEST_FACTORY
+    	HttpRequest restRequest = requestFactory
     				.buildPutRequest(new GenericUrl(cmd), content);
     	restRequest.setReadTimeout(0);
 	
@@ -1299,7 +1395,64 @@ public class RestUtil {
      */
     private HttpResponse executeAPI(ServerProfile profile, HttpRequest request) 
             throws IOException {
+    	return executeAPI(profile, request, false);
+    }
+
+    /**
+     * Sends the request, re-issuing it when it is throttled and retrying it
+     * on transient errors if it is idempotent. A throttled re-send takes a
+     * retry off the budget of the build like a retry does, and a call is
+     * sent at most {@link #MAX_SENDS} times in all.
+     * 
+     * @param idempotent true for a POST that can safely be sent again
+     */
+    private HttpResponse executeAPI(ServerProfile profile, HttpRequest request, boolean idempotent) 
+            throws IOException {
     	HttpHeaders headers = request.getHeaders();
+    	authorize(profile, headers);
+    	//fix for Issue106
+    	headers.set("X-GOOG-API-FORMAT-VERSION", 2);
+    	// only formatted when info is enabled
+    	logger.info(() -> PrintUtil.formatRequest(request, logBodyLimit));
+    	int attempt = 1;
+    	for (int sends = 1; ; sends++) {
+    		try {
+    			return send(request);
+    		} catch (IOException e) {
+    			if (sends >= MAX_SENDS) {
+    				throw e;
+    			}
+    			if (isThrottled(e)) {
+    				HttpResponseException throttled = (HttpResponseException) e;
+    				if (!(idempotent || RetryPolicy.isIdempotent(request.getRequestMethod())
+    						|| isNotProcessed(throttled)) || !retryPolicy.takeRetry()) {
+    					throw e;
+    				}
+    				// the rate limiter has slowed down, the call is sent again once it lets it through
+    				logger.info("Re-issuing " + request.getRequestMethod() + " " + request.getUrl()
+    						+ " after " + throttled.getStatusCode() + " (send " + (sends + 1) + ")");
+    				continue;
+    			}
+    			if (!retryPolicy.shouldRetry(request.getRequestMethod(), idempotent, e, attempt)) {
+    				throw e;
+    			}
+    			long delay = retryPolicy.backoff(attempt);
+    			String error = (e instanceof HttpResponseException) ?
+    					((HttpResponseException) e).getStatusCode() + " " + ((HttpResponseException) e).getStatusMessage()
+    					: e.toString();
+    			logger.warn(request.getRequestMethod() + " " + request.getUrl() + " failed (" + error
+    					+ "), retrying in " + delay + " ms (attempt " + (attempt + 1) + " of "
+    					+ retryPolicy.getMaxAttempts() + ")");
+    			retryPolicy.sleep(delay);
+    			attempt++;
+    			// the token may have been refreshed in the meantime
+    			authorize(profile, headers);
+    		}
+    	}
+    }
+
+    private void authorize(ServerProfile profile, HttpHeaders headers) throws IOException {
+    	String accessToken;
     	try {
     		if(profile.getBearerToken()!=null && !profile.getBearerToken().equalsIgnoreCase("")) {
     			logger.info("Using the bearer token");
@@ -1308,7 +1461,8 @@ public class RestUtil {
     		else if(profile.getServiceAccountJSONFile()!=null && !profile.getServiceAccountJSONFile().equalsIgnoreCase("")) {
     			logger.info("Using the service account file to generate a token");
     			File serviceAccountJSON = new File(profile.getServiceAccountJSONFile());
-    			accessToken = getGoogleAccessToken(serviceAccountJSON);
+    			accessToken = HttpClientPool.of(profile).getAccessTokenProvider(serviceAccountJSON, httpTransport)
+    					.getAccessToken();
     		}
     		else {
     			logger.error("Service Account file or bearer token is missing");
@@ -1320,50 +1474,42 @@ public class RestUtil {
             logger.error(e.getMessage());
             throw new IOException(e.getMessage());
          }
-    	//fix for Issue106
-    	headers.set("X-GOOG-API-FORMAT-VERSION", 2);
-    	logger.info(PrintUtil.formatRequest(request));
-        return request.execute();
     }
-    
+
     /**
-	 * To get the Google Service Account Access Token
-	 * 
-	 * @param serviceAccountFilePath
-	 * @return
-	 * @throws Exception
-	 */
-	private String getGoogleAccessToken(File serviceAccountJSON) throws IOException {
-		String tokenUrl = "https://oauth2.googleapis.com/token";
-		long now = System.currentTimeMillis();
-		try {
-			ServiceAccountCredentials serviceAccount = ServiceAccountCredentials.fromStream(new FileInputStream(serviceAccountJSON));
-			Algorithm algorithm = Algorithm.RSA256(null, (RSAPrivateKey)serviceAccount.getPrivateKey());
-			String signedJwt = JWT.create()
-	                .withKeyId(serviceAccount.getPrivateKeyId())
-	                .withIssuer(serviceAccount.getClientEmail())
-	                .withAudience(tokenUrl)
-	                .withClaim("scope","https://www.googleapis.com/auth/cloud-platform")
-	                .withIssuedAt(new Date(now))
-	                .withExpiresAt(new Date(now + 3600 * 1000L))
-	                .sign(algorithm);
-			//System.out.println(signedJwt);
-			Map<String, Object> params = new HashMap<String, Object>();
-			params.put("grant_type", "urn:ietf:params:oauth:grant-type:jwt-bearer");
-			params.put("assertion", signedJwt);
-			HttpContent content = new UrlEncodedContent(params);
-			
-			HttpRequest restRequest = REQUEST_FACTORY.buildPostRequest(new GenericUrl(tokenUrl), content);
-	        restRequest.setReadTimeout(0);
-	        HttpResponse response = restRequest.execute();
-	        String payload = response.parseAsString();
-            JSONParser parser = new JSONParser();       
-            JSONObject obj     = (JSONObject)parser.parse(payload);
-            return (String)obj.get("access_token");
-		}catch (Exception e) {
-			logger.error(e.getMessage());
-            throw new IOException(e.getMessage());
-		}
-	}
+     * Sends the request once through the rate limiter, which is told about
+     * the throttled (429/503) responses. A non idempotent POST is only sent
+     * again when the server said it was not processed: a 429, or a 503 with
+     * Retry-After. A bare 503 may come from a gateway after the backend
+     * processed the call, it is left to the retry policy.
+     */
+    private HttpResponse send(HttpRequest request) throws IOException {
+    	rateLimiter.acquire();
+    	try {
+    		HttpResponse response = request.execute();
+    		rateLimiter.onSuccess(response.getHeaders());
+    		return response;
+    	} catch (HttpResponseException e) {
+    		if (AdaptiveRateLimiter.isThrottled(e.getStatusCode())) {
+    			rateLimiter.onThrottled(e.getHeaders());
+    		}
+    		throw e;
+    	} finally {
+    		rateLimiter.release();
+    	}
+    }
+
+    private static boolean isThrottled(IOException e) {
+    	return e instanceof HttpResponseException
+    			&& AdaptiveRateLimiter.isThrottled(((HttpResponseException) e).getStatusCode());
+    }
+
+    /**
+     * @return true if the throttled response says the call was not processed
+     */
+    private static boolean isNotProcessed(HttpResponseException e) {
+    	return e.getStatusCode() == 429
+    			|| (e.getHeaders() != null && e.getHeaders().getFirstHeaderStringValue("Retry-After") != null);
+    }
     
 }
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.NoHttpResponseException;
+
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpResponseException;
+
+/**
+ * Retry policy of the management API calls.
+ *
+ * Calls that fail with a transient error (connection reset or timeout, 500,
+ * 502, 503 or 504) are retried if they are idempotent: GET, HEAD, PUT and
+ * DELETE, and POSTs explicitly marked as such. The delay before each retry is
+ * drawn at random between 0 and an exponentially growing cap ("full
+ * jitter"). The retries of a whole build share a budget, so an endpoint that
+ * keeps failing does not multiply the length of the run.
+ */
+public class RetryPolicy {
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+	public static final long DEFAULT_BASE_DELAY = 500L; // ms
+	public static final long DEFAULT_MAX_DELAY = 20000L; // ms
+	public static final int DEFAULT_BUDGET = 100;
+
+	private final int maxAttempts;
+	private final long baseDelay;
+	private final long maxDelay;
+	private final AtomicInteger budget;
+
+	/**
+	 * @param maxAttempts attempts per call, including the first one
+	 * @param baseDelay cap of the first backoff, in ms
+	 * @param maxDelay cap of any backoff, in ms
+	 * @param budget total number of retries allowed
+	 */
+	public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, int budget) {
+		this.maxAttempts = maxAttempts > 0 ? maxAttempts : DEFAULT_MAX_ATTEMPTS;
+		this.baseDelay = baseDelay > 0 ? baseDelay : DEFAULT_BASE_DELAY;
+		this.maxDelay = Math.max(this.baseDelay, maxDelay > 0 ? maxDelay : DEFAULT_MAX_DELAY);
+		this.budget = new AtomicInteger(budget >= 0 ? budget : DEFAULT_BUDGET);
+	}
+
+	public static boolean isIdempotent(String method) {
+		return HttpMethods.GET.equals(method) || HttpMethods.HEAD.equals(method)
+				|| HttpMethods.PUT.equals(method) || HttpMethods.DELETE.equals(method);
+	}
+
+	/**
+	 * Errors that are worth another attempt: timeouts, refused or reset
+	 * connections, a server that closed the connection without answering,
+	 * and 500, 502, 503 and 504 responses. Anything else (TLS, parsing, a
+	 * missing file, ...) would fail the same way again.
+	 */
+	public static boolean isTransient(IOException e) {
+		if (e instanceof HttpResponseException) {
+			int status = ((HttpResponseException) e).getStatusCode();
+			return status == 500 || status == 502 || status == 503 || status == 504;
+		}
+		if (e instanceof SocketTimeoutException
+				|| e instanceof ConnectException
+				|| e instanceof NoHttpResponseException
+				|| isInstance(e, "java.net.http.HttpTimeoutException")) {
+			return true;
+		}
+		if (e instanceof SocketException) {
+			String message = String.valueOf(e.getMessage()).toLowerCase(Locale.ROOT);
+			return message.contains("connection reset") || message.contains("broken pipe");
+		}
+		// e.g. java.net.http wraps the socket error in a plain IOException
+		if (e.getClass() == IOException.class && e.getCause() instanceof IOException && e.getCause() != e) {
+			return isTransient((IOException) e.getCause());
+		}
+		return false;
+	}
+
+	/**
+	 * Checks against a class that may not exist in this JVM (java.net.http
+	 * is Java 11+).
+	 */
+	private static boolean isInstance(Throwable e, String className) {
+		for (Class<?> c = e.getClass(); c != null; c = c.getSuperclass()) {
+			if (c.getName().equals(className)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Decides whether a failed attempt is retried, taking one retry off the
+	 * budget if it is.
+	 *
+	 * @param attempt number of the attempt that failed, starting at 1
+	 */
+	public boolean shouldRetry(String method, boolean idempotent, IOException e, int attempt) {
+		if (attempt >= maxAttempts || !(idempotent || isIdempotent(method)) || !isTransient(e)) {
+			return false;
+		}
+		return takeRetry();
+	}
+
+	/**
+	 * Takes one retry off the budget, e.g. for a call sent again after it
+	 * was throttled.
+	 *
+	 * @return false if the budget is exhausted
+	 */
+	public boolean takeRetry() {
+		return budget.getAndUpdate(b -> b > 0 ? b - 1 : 0) > 0;
+	}
+
+	/**
+	 * @return a random delay before the retry of the attempt, in ms
+	 */
+	public long backoff(int attempt) {
+		long cap = baseDelay << Math.min(attempt - 1, 30);
+		if (cap <= 0 || cap > maxDelay) {
+			cap = maxDelay;
+		}
+		return ThreadLocalRandom.current().nextLong(cap + 1);
+	}
+
+	public void sleep(long delay) throws InterruptedIOException {
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry");
+		}
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * @return retries left in the budget
+	 */
+	public int getBudget() {
+		return budget.get();
+	}
+
+}
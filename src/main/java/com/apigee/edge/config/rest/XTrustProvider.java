@@ -79,12 +79,19 @@ public final class XTrustProvider extends java.security.Provider
        }); 
     } 
      
+    private static volatile boolean installed = false;
+
     public static void install()
    { 
-       if(Security.getProvider(NAME) == null)
+       if (installed) return;
+       synchronized (XTrustProvider.class)
       { 
-          Security.insertProviderAt(new XTrustProvider(), 2); 
-          Security.setProperty("ssl.TrustManagerFactory.algorithm",TrustManagerFactoryImpl.getAlgorithm()); 
+          if(Security.getProvider(NAME) == null)
+         { 
+             Security.insertProviderAt(new XTrustProvider(), 2); 
+             Security.setProperty("ssl.TrustManagerFactory.algorithm",TrustManagerFactoryImpl.getAlgorithm()); 
+          } 
+          installed = true;
        } 
     } 
      
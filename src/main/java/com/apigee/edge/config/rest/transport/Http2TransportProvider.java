@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest.transport;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.apigee.edge.config.rest.HttpClientPool;
+import com.apigee.edge.config.utils.ServerProfile;
+import com.google.api.client.http.HttpTransport;
+
+/**
+ * HTTP/2 transport over java.net.http: the calls in flight are multiplexed
+ * over a single TLS connection per endpoint. Falls back to the Apache
+ * transport when the JVM is older than Java 11.
+ *
+ * The transport itself is compiled for Java 11 (src/main/java11) and only
+ * loaded by name, so that this provider can be listed on a Java 8 JVM.
+ */
+public class Http2TransportProvider implements TransportProvider {
+
+	private static final Logger logger = LogManager.getLogger(Http2TransportProvider.class);
+
+	private static final String TRANSPORT_CLASS = "com.apigee.edge.config.rest.transport.Http2Transport";
+
+	public String getName() {
+		return "http2";
+	}
+
+	public boolean isAvailable() {
+		try {
+			Class.forName("java.net.http.HttpClient");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	public HttpTransport createTransport(ServerProfile profile, HttpClientPool pool) {
+		if (!isAvailable()) {
+			logger.warn("HTTP/2 transport needs Java 11 or later, using the apache transport");
+			return new ApacheTransportProvider().createTransport(profile, pool);
+		}
+		try {
+			return (HttpTransport) Class.forName(TRANSPORT_CLASS)
+					.getDeclaredConstructor(ServerProfile.class).newInstance(profile);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} catch (ReflectiveOperationException | LinkageError e) {
+			logger.warn("HTTP/2 transport cannot be loaded (" + e + "), using the apache transport");
+			return new ApacheTransportProvider().createTransport(profile, pool);
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest.transport;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+
+import com.apigee.edge.config.rest.FakeHostnameVerifier;
+import com.apigee.edge.config.rest.HttpClientPool;
+import com.apigee.edge.config.utils.ServerProfile;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+
+/**
+ * HTTP/1.1 transport over the JDK's HttpURLConnection. PATCH is not
+ * supported by it, so RestUtil sends PATCH requests with the Apache client.
+ * Proxy credentials are not supported either.
+ */
+public class NetHttpTransportProvider implements TransportProvider {
+
+	public String getName() {
+		return "nethttp";
+	}
+
+	public boolean isAvailable() {
+		return true;
+	}
+
+	public HttpTransport createTransport(ServerProfile profile, HttpClientPool pool) {
+		NetHttpTransport.Builder builder = new NetHttpTransport.Builder()
+				.setHostnameVerifier(new FakeHostnameVerifier());
+		if (profile.getHasProxy()) {
+			builder.setProxy(new Proxy(Proxy.Type.HTTP,
+					new InetSocketAddress(profile.getProxyServer(), profile.getProxyPort())));
+		}
+		return builder.build();
+	}
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import com.apigee.edge.config.rest.HttpClientPool;
+import com.apigee.edge.config.utils.ServerProfile;
+import com.google.api.client.http.HttpTransport;
+
+/**
+ * Service provider of the HTTP transport RestUtil sends its requests with.
+ *
+ * The transport is chosen by name with apigee.config.transport. The built-in
+ * providers are "apache" (pooled HTTP/1.1 connections, the default),
+ * "nethttp" (HttpURLConnection) and "http2" (java.net.http, Java 11+).
+ * Other providers, e.g. one backed by a local stand-in server for tests,
+ * can be added to the plugin's dependencies and registered in
+ * META-INF/services/com.apigee.edge.config.rest.transport.TransportProvider.
+ */
+public interface TransportProvider {
+
+	String DEFAULT = "apache";
+
+	/**
+	 * @return the name used to select the provider
+	 */
+	String getName();
+
+	/**
+	 * @return false if the provider cannot run in this JVM
+	 */
+	boolean isAvailable();
+
+	/**
+	 * Creates the transport used for the profile's endpoint. It is created
+	 * once per endpoint and shared by all the goals of the build.
+	 */
+	HttpTransport createTransport(ServerProfile profile, HttpClientPool pool);
+
+	/**
+	 * @return the provider registered with the name
+	 * @throws IllegalArgumentException if there is none
+	 */
+	static TransportProvider forName(String name) {
+		List<String> names = new ArrayList<String>();
+		for (TransportProvider provider : ServiceLoader.load(TransportProvider.class,
+				TransportProvider.class.getClassLoader())) {
+			if (provider.getName().equalsIgnoreCase(name)) {
+				return provider;
+			}
+			names.add(provider.getName());
+		}
+		throw new IllegalArgumentException("Invalid apigee.config.transport " + name + ", expected one of " + names);
+	}
+
+}
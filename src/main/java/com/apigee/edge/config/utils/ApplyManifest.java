@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.execution.MavenSession;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Canonical hashes of the config entities applied by the previous runs,
+ * used by the incremental mode (apigee.config.incremental).
+ *
+ * Entities are keyed by their management API path, e.g.
+ * https://apigee.googleapis.com/v1/organizations/org/environments/test/targetservers/backend,
+ * so the same manifest can be shared by several orgs and environments. An
+ * entity whose hash is the one recorded after its last successful apply has
+ * not changed and does not need to be sent again.
+ */
+public class ApplyManifest {
+
+    private static final Logger logger = LogManager.getLogger(ApplyManifest.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final File file;
+    private final ConcurrentMap<String, String> hashes = new ConcurrentHashMap<String, String>();
+    private volatile boolean dirty;
+
+    /**
+     * @return the manifest stored in the file, loaded once per build
+     */
+    public static ApplyManifest forSession(MavenSession session, File file) {
+        File manifest = file.getAbsoluteFile();
+        return SessionScope.get(session, ApplyManifest.class.getName() + ":" + manifest.getPath(),
+                () -> new ApplyManifest(manifest));
+    }
+
+    public ApplyManifest(File file) {
+        this.file = file;
+        if (file.isFile()) {
+            try {
+                load();
+                logger.info("Loaded " + hashes.size() + " applied config hashes from " + file);
+            } catch (IOException e) {
+                // a broken manifest only means everything is applied again
+                logger.warn("Ignoring the manifest " + file + ": " + e.getMessage());
+                hashes.clear();
+            }
+        }
+    }
+
+    public static String key(ServerProfile profile, String resource, String name) {
+        return profile.getHostUrl() + "/" + profile.getApi_version() + "/organizations/"
+                + profile.getOrg() + "/" + resource + "/" + name;
+    }
+
+    /**
+     * @param resource path of the collection under the org, e.g.
+     *                 environments/test/targetservers
+     * @return true if the entity was applied with the same content before
+     */
+    public boolean isUnchanged(ServerProfile profile, String resource, String name, ConfigEntity entity)
+            throws IOException {
+        return entity.getHash().equals(hashes.get(key(profile, resource, name)));
+    }
+
+    /**
+     * Records the entity after it was successfully created or updated.
+     */
+    public void applied(ServerProfile profile, String resource, String name, ConfigEntity entity)
+            throws IOException {
+        hashes.put(key(profile, resource, name), entity.getHash());
+        dirty = true;
+    }
+
+    /**
+     * Forgets the entity after it was deleted.
+     */
+    public void deleted(ServerProfile profile, String resource, String name) {
+        if (hashes.remove(key(profile, resource, name)) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Writes the manifest if it changed. The file is replaced atomically, so
+     * an interrupted build leaves the previous manifest in place.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create the directory of the manifest " + file);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp.toPath());
+             JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            for (Map.Entry<String, String> entry : new TreeMap<String, String>(hashes).entrySet()) {
+                generator.writeStringField(entry.getKey(), entry.getValue());
+            }
+            generator.writeEndObject();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Saved " + hashes.size() + " applied config hashes to " + file);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private void load() throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath());
+             JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                if (parser.nextToken() == JsonToken.VALUE_STRING) {
+                    hashes.put(key, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+}
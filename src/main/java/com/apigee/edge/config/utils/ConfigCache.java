@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.execution.MavenSession;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Parsed config files shared by every goal of a build.
+ *
+ * A file such as edge.json is parsed the first time a goal looks into it
+ * and the document is reused by all the following lookups, as long as the
+ * file is not modified (same last modified time and length). The documents
+ * must be treated as read only. They are dropped when the session ends.
+ */
+public class ConfigCache implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ConfigCache.class);
+
+    private final ConcurrentMap<String, Document> documents = new ConcurrentHashMap<String, Document>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong parses = new AtomicLong();
+
+    /**
+     * @return the cache owned by the Maven session
+     */
+    public static ConfigCache forSession(MavenSession session) {
+        return SessionScope.getCloseable(session, ConfigCache.class.getName(), ConfigCache::new);
+    }
+
+    /**
+     * Parses the file without caching it.
+     */
+    public static JSONObject parse(File configFile) throws ParseException, IOException {
+        return (JSONObject) JsonFiles.parse(configFile);
+    }
+
+    /**
+     * @return the parsed file, read again only if it changed since the last call
+     */
+    public JSONObject get(File configFile) throws ParseException, IOException {
+        String path = configFile.getAbsolutePath();
+        long lastModified = configFile.lastModified();
+        long length = configFile.length();
+
+        Document document = documents.get(path);
+        if (document != null && document.isCurrent(lastModified, length)) {
+            hits.incrementAndGet();
+            return document.content;
+        }
+        // files are parsed one at a time, so concurrent goals do not parse the same file twice
+        synchronized (this) {
+            document = documents.get(path);
+            if (document != null && document.isCurrent(lastModified, length)) {
+                hits.incrementAndGet();
+                return document.content;
+            }
+            long start = System.currentTimeMillis();
+            document = new Document(parse(configFile), lastModified, length);
+            documents.put(path, document);
+            parses.incrementAndGet();
+            logger.debug("Parsed " + path + " in " + (System.currentTimeMillis() - start) + " ms");
+            return document.content;
+        }
+    }
+
+    /**
+     * Drops the documents, logging how often they were reused.
+     */
+    public void close() {
+        logger.debug("Config files parsed " + parses.get() + " time(s), reused " + hits.get() + " time(s)");
+        documents.clear();
+    }
+
+    private static class Document {
+        final JSONObject content;
+        final long lastModified;
+        final long length;
+
+        Document(JSONObject content, long lastModified, long length) {
+            this.content = content;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        boolean isCurrent(long lastModified, long length) {
+            return this.lastModified == lastModified && this.length == length;
+        }
+    }
+
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * One entry of the config (a target server, an API product, a developer
+ * app, ...) as read from edge.json or a config file.
+ *
+ * The payload is kept as the UTF-8 bytes read from the config and is sent
+ * to the management API as is. Typed views of it are parsed once per type
+ * and reused, and the canonical hash used to compare entities is only
+ * computed when asked for.
+ */
+public class ConfigEntity {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Gson gson = new Gson();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String scope;
+    private final byte[] payload;
+
+    private volatile String name;
+    private volatile boolean nameRead;
+    private volatile String hash;
+    private final Map<Class<?>, Object> views = new ConcurrentHashMap<Class<?>, Object>();
+
+    /**
+     * @param scope   where the entity comes from, e.g. envConfig.test.targetServers
+     * @param payload the entity as UTF-8 JSON
+     */
+    public ConfigEntity(String scope, byte[] payload) {
+        this.scope = scope;
+        this.payload = payload;
+    }
+
+    public static ConfigEntity of(String scope, String payload) {
+        return new ConfigEntity(scope, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    /**
+     * @return the name field of the entity, or null if it has none
+     */
+    public String getName() {
+        if (!nameRead) {
+            name = readName();
+            nameRead = true;
+        }
+        return name;
+    }
+
+    /**
+     * @return the payload bytes; not copied, must not be modified
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public String getPayloadAsString() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the payload bound to the type with Gson, parsed on first use
+     *         and then shared
+     */
+    public <T> T as(Class<T> type) throws JsonParseException {
+        Object view = views.get(type);
+        if (view == null) {
+            view = gson.fromJson(new InputStreamReader(new ByteArrayInputStream(payload),
+                    StandardCharsets.UTF_8), type);
+            if (view == null) {
+                throw new JsonParseException("Empty config entry in " + scope);
+            }
+            views.put(type, view);
+        }
+        return type.cast(view);
+    }
+
+    /**
+     * SHA-256 of the canonical form of the payload: object fields sorted by
+     * name, no whitespace and numbers without trailing zeros. Two entities
+     * with the same content have the same hash whatever their layout.
+     */
+    public String getHash() throws IOException {
+        String h = hash;
+        if (h == null) {
+            h = hash = canonicalHash(payload);
+        }
+        return h;
+    }
+
+    /**
+     * @return the payload in its canonical form: sorted maps, lists, strings,
+     *         BigDecimal numbers without trailing zeros, booleans and nulls
+     */
+    public Object getTree() throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            parser.nextToken();
+            return readTree(parser);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getPayloadAsString();
+    }
+
+    private String readName() {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (field.equals("name") && token == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            throw new JsonParseException(e.getMessage() + " in " + scope);
+        }
+    }
+
+    static String canonicalHash(byte[] json) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        Object tree;
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parser.nextToken();
+            tree = readTree(parser);
+        }
+        try (OutputStream out = new DigestOutputStream(NullOutputStream.INSTANCE, digest);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            writeTree(generator, tree);
+        }
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Reads the current value into sorted maps, lists and scalars.
+     */
+    static Object readTree(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            return null;
+        }
+        switch (token) {
+        case START_OBJECT:
+            Map<String, Object> object = new TreeMap<String, Object>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                object.put(field, readTree(parser));
+            }
+            return object;
+        case START_ARRAY:
+            List<Object> array = new ArrayList<Object>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                array.add(readTree(parser));
+            }
+            return array;
+        case VALUE_STRING:
+            return parser.getText();
+        case VALUE_NUMBER_INT:
+        case VALUE_NUMBER_FLOAT:
+            BigDecimal number = parser.getDecimalValue();
+            return (number.signum() == 0) ? BigDecimal.ZERO : number.stripTrailingZeros();
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        default:
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static void writeTree(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<String, Object> field : ((Map<String, Object>) value).entrySet()) {
+                generator.writeFieldName(field.getKey());
+                writeTree(generator, field.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof List) {
+            generator.writeStartArray();
+            for (Object element : (List<Object>) value) {
+                writeTree(generator, element);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.execution.MavenSession;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Index of the multi-file config tree (apigee.config.dir), built once per
+ * build.
+ *
+ * The tree is listed a single time and every file is filed under its scope
+ * (org, env/&lt;env&gt; or api/&lt;api&gt;) and resource: kvms.json and
+ * kvms-security.json both belong to kvms, kvmsFoo.json does not. The base
+ * file of a resource comes first, then the resource-*.json files by name.
+ *
+ * Newline delimited shards are filed the same way, with a "-" or a "." after
+ * the resource: kvms.ndjson, kvms-security.ndjson, developerApps.001.ndjson.
+ * As shards are separate files, {@link #readAll} reads them in parallel.
+ */
+public class ConfigFileIndex {
+
+    private static final Logger logger = LogManager.getLogger(ConfigFileIndex.class);
+
+    private static final String JSON = ".json";
+
+    private final File configDir;
+    // scope -> resource -> files
+    private final Map<String, Map<String, List<File>>> index = new HashMap<String, Map<String, List<File>>>();
+    private final Set<String> apis = new TreeSet<String>();
+
+    /**
+     * Reads a config file.
+     */
+    @FunctionalInterface
+    public interface FileReader<T> {
+        T read(File file) throws ParseException, IOException;
+    }
+
+    /**
+     * @return the index of the directory, shared by all the goals of the build
+     */
+    public static ConfigFileIndex forSession(MavenSession session, String configDir) {
+        File dir = new File(configDir).getAbsoluteFile();
+        return SessionScope.get(session, ConfigFileIndex.class.getName() + ":" + dir.getPath(),
+                () -> new ConfigFileIndex(dir));
+    }
+
+    public ConfigFileIndex(File configDir) {
+        this.configDir = configDir;
+        long start = System.currentTimeMillis();
+        int count = index("org", new File(configDir, "org"));
+        for (File env : listDirectories(new File(configDir, "env"))) {
+            count += index("env" + File.separator + env.getName(), env);
+        }
+        for (File api : listDirectories(new File(configDir, "api"))) {
+            apis.add(api.getName());
+            count += index("api" + File.separator + api.getName(), api);
+        }
+        logger.debug("Indexed " + count + " config files of " + configDir + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * @param scope    org, env/&lt;env&gt; or api/&lt;api&gt;
+     * @param resource e.g. kvms
+     * @return resource.json and the resource-*.json files of the scope
+     */
+    public List<File> getFiles(String scope, String resource) {
+        Map<String, List<File>> resources = index.get(scope);
+        List<File> files = (resources != null) ? resources.get(resource) : null;
+        return (files != null) ? files : Collections.<File>emptyList();
+    }
+
+    /**
+     * @return the APIs with a directory under api, null if there is none
+     */
+    public Set<String> getAPIList() {
+        return apis.isEmpty() ? null : Collections.unmodifiableSet(apis);
+    }
+
+    public File getConfigDir() {
+        return configDir;
+    }
+
+    /**
+     * Reads the files in parallel on the common fork-join pool.
+     *
+     * @return what the reader returned for each file, in the order of the files
+     */
+    public static <T> List<T> readAll(List<File> files, FileReader<T> reader)
+            throws ParseException, IOException {
+        if (files.size() <= 1) {
+            List<T> out = new ArrayList<T>(files.size());
+            for (File file : files) {
+                out.add(reader.read(file));
+            }
+            return out;
+        }
+        List<ReadTask<T>> tasks = new ArrayList<ReadTask<T>>(files.size());
+        for (File file : files) {
+            tasks.add(new ReadTask<T>(file, reader));
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveTask<Void>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected Void compute() {
+                ForkJoinTask.invokeAll(tasks);
+                return null;
+            }
+        });
+        List<T> out = new ArrayList<T>(files.size());
+        for (ReadTask<T> task : tasks) {
+            if (task.parseError != null) {
+                throw task.parseError;
+            }
+            if (task.ioError != null) {
+                throw task.ioError;
+            }
+            out.add(task.result);
+        }
+        return out;
+    }
+
+    private int index(String scope, File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        Arrays.sort(files);
+        Map<String, List<File>> resources = new HashMap<String, List<File>>();
+        int count = 0;
+        for (File file : files) {
+            String name = file.getName();
+            String base;
+            int dash;
+            if (name.endsWith(JSON)) {
+                base = name.substring(0, name.length() - JSON.length());
+                dash = base.indexOf('-');
+            } else if (name.endsWith(ConfigReader.NDJSON)) {
+                base = name.substring(0, name.length() - ConfigReader.NDJSON.length());
+                dash = indexOfShard(base);
+            } else {
+                continue;
+            }
+            if (!file.isFile()) {
+                continue;
+            }
+            String resource = (dash > 0) ? base.substring(0, dash) : base;
+            List<File> resourceFiles = resources.computeIfAbsent(resource, k -> new ArrayList<File>());
+            if (dash > 0) {
+                resourceFiles.add(file);
+            } else {
+                // the base file before the resource-*.json ones
+                resourceFiles.add(0, file);
+            }
+            count++;
+        }
+        index.put(scope, resources);
+        return count;
+    }
+
+    private static int indexOfShard(String base) {
+        int dash = base.indexOf('-');
+        int dot = base.indexOf('.');
+        return (dash < 0 || (dot >= 0 && dot < dash)) ? dot : dash;
+    }
+
+    private static List<File> listDirectories(File dir) {
+        File[] files = dir.listFiles(File::isDirectory);
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    private static class ReadTask<T> extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final File file;
+        private final transient FileReader<T> reader;
+        T result;
+        ParseException parseError;
+        IOException ioError;
+
+        ReadTask(File file, FileReader<T> reader) {
+            this.file = file;
+            this.reader = reader;
+        }
+
+        @Override
+        protected Void compute() {
+            try {
+                result = reader.read(file);
+            } catch (ParseException e) {
+                parseError = e;
+            } catch (IOException e) {
+                ioError = e;
+            }
+            return null;
+        }
+    }
+
+}
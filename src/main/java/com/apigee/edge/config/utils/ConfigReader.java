@@ -16,31 +16,44 @@
 package com.apigee.edge.config.utils;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
 /**
  * Read config from resources/edge/.../*.json files
  *
+ * The entries are copied from the token stream of the file into the
+ * payload of their {@link ConfigEntity}, as they are written in the file;
+ * the document itself is not built.
+ *
  * @author madhan.sadasivam
  */
 
 public class ConfigReader {
 
+    static final String NDJSON = ".ndjson";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     /**
      * Example Hierarchy
      * envConfig.cache.<env>.caches
@@ -51,34 +64,7 @@ public class ConfigReader {
     public static List getEnvConfig(String env, 
                                      File configFile)
             throws ParseException, IOException {
-
-        Logger logger = LogManager.getLogger(ConfigReader.class);
-
-        JSONParser parser = new JSONParser();
-        ArrayList out = null;    
-        try {
-            BufferedReader bufferedReader = new BufferedReader(
-                new java.io.FileReader(configFile));
-
-            JSONArray  configs      = (JSONArray)parser.parse(bufferedReader);
-
-            if (configs == null) return null;
-
-            out = new ArrayList();
-            for (Object config: configs) {              
-                out.add(((JSONObject)config).toJSONString());
-            }
-        }
-        catch(IOException ie) {
-            logger.info(ie.getMessage());
-            throw ie;
-        }
-        catch(ParseException pe) {
-            logger.info(pe.getMessage());
-            throw pe;
-        }
-
-        return out;
+        return payloads(getEntities("envConfig." + env, configFile, false));
     }
 
     /**
@@ -88,40 +74,9 @@ public class ConfigReader {
      * Returns List of
      * [ {apiProduct1}, {apiProduct2}, {apiProduct3} ]
      */
-
-    // TODO convert parse exception error message more human friendly
     public static List getOrgConfig(File configFile)
             throws ParseException, IOException {
-
-        Logger logger = LogManager.getLogger(ConfigReader.class);
-
-        JSONParser parser = new JSONParser();
-        ArrayList out = null;    
-        try {
-            BufferedReader bufferedReader = new BufferedReader(
-                new java.io.FileReader(configFile));
-
-            JSONArray configs = (JSONArray)parser.parse(bufferedReader);
-            if (configs == null) return null;
-
-            out = new ArrayList();
-            for (Object config: configs) {  
-            	if(config instanceof String)
-            		out.add(config);
-            	else
-                out.add(((JSONObject)config).toJSONString());
-            }
-        }
-        catch(IOException ie) {
-            logger.info(ie.getMessage());
-            throw ie;
-        }
-        catch(ParseException pe) {
-            logger.info(pe.getMessage());
-            throw pe;
-        }
-
-        return out;
+        return payloads(getEntities("orgConfig", configFile, true));
     }
 
     /**
@@ -133,42 +88,14 @@ public class ConfigReader {
      */
     public static Map<String, List<String>> getOrgConfigWithId(File configFile)
             throws ParseException, IOException {
-
-        Logger logger = LogManager.getLogger(ConfigReader.class);
-
-        JSONParser parser = new JSONParser();
-        Map <String, List<String>> out = null;
-        List<String> outStrs = null;
-        try {
-            BufferedReader bufferedReader = new BufferedReader(
-                new java.io.FileReader(configFile));
-
-            Map sConfig     = (Map)parser.parse(bufferedReader);
-            if (sConfig == null) return null;
-
-            // orgConfig.developerApps.<developerId>
-            Iterator it = sConfig.entrySet().iterator();
-            out = new HashMap<String, List<String>> ();
-            while (it.hasNext()) {
-                Map.Entry pair = (Map.Entry)it.next();
-                JSONArray confs = (JSONArray)pair.getValue();
-                outStrs = new ArrayList<String>();
-                for (Object conf: confs) {              
-                    outStrs.add(((JSONObject)conf).toJSONString());
-                }
-                out.put((String)pair.getKey(), outStrs);
-            }
-
-        }
-        catch(IOException ie) {
-            logger.info(ie.getMessage());
-            throw ie;
+        Map<String, List<ConfigEntity>> entities = getEntitiesWithId("orgConfig", configFile);
+        if (entities == null) {
+            return null;
         }
-        catch(ParseException pe) {
-            logger.info(pe.getMessage());
-            throw pe;
+        Map<String, List<String>> out = new LinkedHashMap<String, List<String>>();
+        for (Map.Entry<String, List<ConfigEntity>> entry : entities.entrySet()) {
+            out.put(entry.getKey(), payloads(entry.getValue()));
         }
-
         return out;
     }
 
@@ -198,33 +125,234 @@ public class ConfigReader {
      */
     public static List getAPIConfig(File configFile)
             throws ParseException, IOException {
+        return payloads(getEntities("apiConfig", configFile, false));
+    }
 
-        Logger logger = LogManager.getLogger(ConfigReader.class);
+    /**
+     * Entities of a config file: the elements of its array, or its lines
+     * for a .ndjson file.
+     *
+     * @param scope        where the entities come from, e.g. orgConfig.apiProducts
+     * @param allowStrings whether an entry may be a JSON string (org config
+     *                     such as apiCategories) instead of an object
+     * @return the entities, null if the file is empty
+     */
+    public static List<ConfigEntity> getEntities(String scope, File configFile, boolean allowStrings)
+            throws IOException {
+        if (isNdjson(configFile)) {
+            return readNdjson(scope, configFile, allowStrings);
+        }
+        try (JsonParser parser = JsonFiles.createParser(configFile)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new IOException(configFile.getName() + ": expected a JSON array");
+            }
+            List<ConfigEntity> out = new ArrayList<ConfigEntity>();
+            // reused for every entity
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                out.add(readEntity(configFile, parser, buffer, scope, allowStrings));
+            }
+            checkEnd(configFile, parser);
+            return out;
+        } catch (JsonProcessingException e) {
+            throw JsonFiles.error(configFile, e);
+        }
+    }
 
-        JSONParser parser = new JSONParser();
-        ArrayList out = null;    
-        try {
-            BufferedReader bufferedReader = new BufferedReader(
-                new java.io.FileReader(configFile));
+    /**
+     * Entities of a config file listed by id, {"<id>": [entities]}, e.g. the
+     * apps of each developer.
+     *
+     * @param scope where the entities come from, e.g. orgConfig.developerApps;
+     *              the scope of an entity is followed by its id
+     * @return the entities by id, null if the file is empty
+     */
+    public static Map<String, List<ConfigEntity>> getEntitiesWithId(String scope, File configFile)
+            throws IOException {
+        if (isNdjson(configFile)) {
+            return readNdjsonWithId(scope, configFile);
+        }
+        try (JsonParser parser = JsonFiles.createParser(configFile)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException(configFile.getName() + ": expected {\"<id>\": [...]}");
+            }
+            Map<String, List<ConfigEntity>> out = new LinkedHashMap<String, List<ConfigEntity>>();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String id = parser.getCurrentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException(configFile.getName() + ": expected an array of entities for " + id);
+                }
+                List<ConfigEntity> entities = out.computeIfAbsent(id, k -> new ArrayList<ConfigEntity>());
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    entities.add(readEntity(configFile, parser, buffer, scope + "." + id, false));
+                }
+            }
+            checkEnd(configFile, parser);
+            return out;
+        } catch (JsonProcessingException e) {
+            throw JsonFiles.error(configFile, e);
+        }
+    }
 
-            JSONArray  resourceConfigs = (JSONArray)parser.parse(bufferedReader);
-            if (resourceConfigs == null) return null;
+    private static ConfigEntity readEntity(File configFile, JsonParser parser, ByteArrayOutputStream buffer,
+            String scope, boolean allowStrings) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING && allowStrings) {
+            return ConfigEntity.of(scope, parser.getText());
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException(configFile.getName() + ": expected a JSON object at line "
+                    + parser.getCurrentLocation().getLineNr());
+        }
+        return new ConfigEntity(scope, copy(parser, buffer));
+    }
 
-            out = new ArrayList();
-            for (Object config: resourceConfigs) {              
-                out.add(((JSONObject)config).toJSONString());
-            }
+    private static void checkEnd(File configFile, JsonParser parser) throws IOException {
+        if (parser.nextToken() != null) {
+            throw new IOException("Unexpected content after the JSON document in " + configFile
+                    + " at line " + parser.getCurrentLocation().getLineNr());
         }
-        catch(IOException ie) {
-            logger.info(ie.getMessage());
-            throw ie;
+    }
+
+    private static List<String> payloads(List<ConfigEntity> entities) {
+        if (entities == null) {
+            return null;
         }
-        catch(ParseException pe) {
-            logger.info(pe.getMessage());
-            throw pe;
+        List<String> out = new ArrayList<String>(entities.size());
+        for (ConfigEntity entity : entities) {
+            out.add(entity.getPayloadAsString());
         }
+        return out;
+    }
+
+    /*
+     * Newline delimited JSON (.ndjson): one entity per line instead of a
+     * single array, e.g. kvms.ndjson or developerApps.001.ndjson. The file is
+     * read a line at a time, each line is checked and kept as the payload of
+     * its entity, so the whole file is never held as a document. Blank lines
+     * are skipped.
+     */
+    public static boolean isNdjson(File configFile) {
+        return configFile.getName().endsWith(NDJSON);
+    }
 
+    /**
+     * @param allowStrings whether a line may be a JSON string (org config
+     *                     such as apiCategories) instead of an object
+     */
+    private static List<ConfigEntity> readNdjson(String scope, File configFile, boolean allowStrings)
+            throws IOException {
+        List<ConfigEntity> out = new ArrayList<ConfigEntity>();
+        forEachLine(configFile, (line, parser) -> {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_STRING && allowStrings) {
+                String text = parser.getText();
+                checkLineEnd(parser);
+                out.add(ConfigEntity.of(scope, text));
+            } else if (token == JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                checkLineEnd(parser);
+                out.add(ConfigEntity.of(scope, line));
+            } else {
+                throw new IOException("expected a JSON object");
+            }
+        });
         return out;
     }
 
+    /*
+     * One {"<id>": {entity}} or {"<id>": [entities]} per line, e.g. the
+     * developer and one of its apps
+     */
+    private static Map<String, List<ConfigEntity>> readNdjsonWithId(String scope, File configFile)
+            throws IOException {
+        Map<String, List<ConfigEntity>> out = new LinkedHashMap<String, List<ConfigEntity>>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        forEachLine(configFile, (line, parser) -> {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || parser.nextToken() != JsonToken.FIELD_NAME) {
+                throw new IOException("expected {\"<id>\": {...}}");
+            }
+            String id = parser.getCurrentName();
+            List<ConfigEntity> entities = out.computeIfAbsent(id, k -> new ArrayList<ConfigEntity>());
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    entities.add(new ConfigEntity(scope + "." + id, copy(parser, buffer)));
+                }
+                if (parser.currentToken() != JsonToken.END_ARRAY) {
+                    throw new IOException("expected a JSON object");
+                }
+            } else if (token == JsonToken.START_OBJECT) {
+                entities.add(new ConfigEntity(scope + "." + id, copy(parser, buffer)));
+            } else {
+                throw new IOException("expected a JSON object");
+            }
+            if (parser.nextToken() != JsonToken.END_OBJECT) {
+                throw new IOException("expected a single id per line");
+            }
+            checkLineEnd(parser);
+        });
+        return out;
+    }
+
+    private interface LineHandler {
+        void accept(String line, JsonParser parser) throws IOException;
+    }
+
+    private static void forEachLine(File configFile, LineHandler handler) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(configFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNr = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNr++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (lineNr == 1 && line.charAt(0) == '\uFEFF') {
+                    line = line.substring(1);
+                }
+                try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+                    handler.accept(line, parser);
+                } catch (JsonProcessingException e) {
+                    throw new IOException(configFile.getName() + " line " + lineNr + ": "
+                            + e.getOriginalMessage(), e);
+                } catch (IOException e) {
+                    throw new IOException(configFile.getName() + " line " + lineNr + ": "
+                            + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /*
+     * A line holds a single entity, the line is kept as its payload
+     */
+    private static void checkLineEnd(JsonParser parser) throws IOException {
+        if (parser.nextToken() != null) {
+            throw new IOException("unexpected content after the entity");
+        }
+    }
+
+    /**
+     * @return the structure at the current token, as UTF-8 JSON
+     */
+    private static byte[] copy(JsonParser parser, ByteArrayOutputStream buffer) throws IOException {
+        buffer.reset();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return buffer.toByteArray();
+    }
+
 }
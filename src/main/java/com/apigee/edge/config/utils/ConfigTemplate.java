@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A config entry with ${...} placeholders, split once into literal text and
+ * placeholders so it can be rendered without scanning it again.
+ *
+ * Syntax: ${name}, ${name:-default} when the value may be missing, and $${
+ * for a literal ${. In a JSON entry the values are escaped as JSON string
+ * content; a default is part of the entry, so it is used as it is written.
+ */
+public class ConfigTemplate {
+
+    private static final String START = "${";
+    private static final String DEFAULT = ":-";
+
+    // literals[i] comes before names[i], the last literal after the last name
+    private final String[] literals;
+    private final String[] names;
+    private final String[] defaults;
+    private final int literalLength;
+
+    private ConfigTemplate(String[] literals, String[] names, String[] defaults) {
+        this.literals = literals;
+        this.names = names;
+        this.defaults = defaults;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static ConfigTemplate compile(String text) throws IOException {
+        if (text.indexOf('$') < 0) {
+            return new ConfigTemplate(new String[] { text }, new String[0], new String[0]);
+        }
+        List<String> literals = new ArrayList<String>();
+        List<String> names = new ArrayList<String>();
+        List<String> defaults = new ArrayList<String>();
+        StringBuilder literal = new StringBuilder(text.length());
+        int pos = 0;
+        while (pos < text.length()) {
+            int start = text.indexOf(START, pos);
+            if (start < 0) {
+                literal.append(text, pos, text.length());
+                break;
+            }
+            if (start > pos && text.charAt(start - 1) == '$') {
+                // $${ is a literal ${
+                literal.append(text, pos, start - 1).append(START);
+                pos = start + START.length();
+                continue;
+            }
+            int end = text.indexOf('}', start);
+            if (end < 0) {
+                throw new IOException("Unterminated placeholder " + text.substring(start));
+            }
+            String placeholder = text.substring(start + START.length(), end);
+            int dflt = placeholder.indexOf(DEFAULT);
+            String name = (dflt >= 0) ? placeholder.substring(0, dflt) : placeholder;
+            if (name.trim().isEmpty()) {
+                throw new IOException("Empty placeholder " + text.substring(start, end + 1));
+            }
+            literal.append(text, pos, start);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            names.add(name.trim());
+            defaults.add((dflt >= 0) ? placeholder.substring(dflt + DEFAULT.length()) : null);
+            pos = end + 1;
+        }
+        literals.add(literal.toString());
+        return new ConfigTemplate(literals.toArray(new String[0]), names.toArray(new String[0]),
+                defaults.toArray(new String[0]));
+    }
+
+    /**
+     * @return true if there is nothing to substitute
+     */
+    public boolean isConstant() {
+        return names.length == 0;
+    }
+
+    /**
+     * @param values value of a placeholder name, null if it has none
+     * @param json   whether the entry is JSON, and the values are escaped
+     */
+    public String render(Function<String, String> values, boolean json) throws IOException {
+        if (isConstant()) {
+            return literals[0];
+        }
+        StringBuilder out = new StringBuilder(literalLength + 16 * names.length);
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]);
+            String value = values.apply(names[i]);
+            if (value == null && defaults[i] == null) {
+                throw new IOException("No value for the placeholder ${" + names[i] + "}");
+            }
+            if (value == null) {
+                out.append(defaults[i]);
+            } else if (json) {
+                appendEscaped(out, value);
+            } else {
+                out.append(value);
+            }
+        }
+        return out.append(literals[names.length]).toString();
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                out.append("\\\"");
+                break;
+            case '\\':
+                out.append("\\\\");
+                break;
+            case '\n':
+                out.append("\\n");
+                break;
+            case '\r':
+                out.append("\\r");
+                break;
+            case '\t':
+                out.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    out.append(String.format("\\u%04x", (int) c));
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+    }
+
+}
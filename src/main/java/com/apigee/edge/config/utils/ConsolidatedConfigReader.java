@@ -15,21 +15,30 @@
  */
 package com.apigee.edge.config.utils;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
+import org.json.simple.JSONValue;
 import org.json.simple.parser.ParseException;
 
 /**
@@ -40,6 +49,22 @@ import org.json.simple.parser.ParseException;
 
 public class ConsolidatedConfigReader {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Receives the entities of a streamed config, one at a time.
+     */
+    @FunctionalInterface
+    public interface EntityConsumer {
+        /**
+         * @param id      key the entity is listed under, e.g. the developer of
+         *                orgConfig.developerApps, or null for a plain list
+         * @param entity  the entity, its payload is the string itself for
+         *                string entries
+         */
+        void accept(String id, ConfigEntity entity) throws IOException;
+    }
+
     /**
      * Example Hierarchy
      * envConfig.cache.<env>.caches
@@ -52,16 +77,25 @@ public class ConsolidatedConfigReader {
                                      String scope,
                                      String resource)
             throws ParseException, IOException {
+        return getEnvConfig(null, env, configFile, scope, resource);
+    }
+
+    /**
+     * Same as {@link #getEnvConfig(String, File, String, String)}, with the
+     * file served from the cache
+     */
+    public static List getEnvConfig(ConfigCache cache,
+                                     String env, 
+                                     File configFile, 
+                                     String scope,
+                                     String resource)
+            throws ParseException, IOException {
 
         Logger logger = LogManager.getLogger(ConfigReader.class);
 
-        JSONParser parser = new JSONParser();
         ArrayList out = null;    
         try {
-            BufferedReader bufferedReader = new BufferedReader(
-                new java.io.FileReader(configFile));
-
-            JSONObject edgeConf     = (JSONObject)parser.parse(bufferedReader);
+            JSONObject edgeConf     = read(configFile, cache);
             if (edgeConf == null) return null;
 
             JSONObject scopeConf  = (JSONObject)edgeConf.get(scope);
@@ -101,16 +135,20 @@ public class ConsolidatedConfigReader {
                                  String scope,
                                  String resource)
             throws ParseException, IOException {
+        return getOrgConfig(null, configFile, scope, resource);
+    }
+
+    public static List getOrgConfig(ConfigCache cache,
+                                 File configFile,
+                                 String scope,
+                                 String resource)
+            throws ParseException, IOException {
 
         Logger logger = LogManager.getLogger(ConfigReader.class);
 
-        JSONParser parser = new JSONParser();
         ArrayList out = null;    
         try {
-            BufferedReader bufferedReader = new BufferedReader(
-                new java.io.FileReader(configFile));
-
-            JSONObject edgeConf     = (JSONObject)parser.parse(bufferedReader);
+            JSONObject edgeConf     = read(configFile, cache);
             if (edgeConf == null) return null;
 
             JSONObject scopeConf  = (JSONObject)edgeConf.get(scope);
@@ -150,17 +188,21 @@ public class ConsolidatedConfigReader {
                                                              String scope,
                                                              String resource)
             throws ParseException, IOException {
+        return getOrgConfigWithId(null, configFile, scope, resource);
+    }
+
+    public static Map<String, List<String>> getOrgConfigWithId(ConfigCache cache,
+                                                             File configFile,
+                                                             String scope,
+                                                             String resource)
+            throws ParseException, IOException {
 
         Logger logger = LogManager.getLogger(ConfigReader.class);
 
-        JSONParser parser = new JSONParser();
         Map <String, List<String>> out = null;
         List<String> outStrs = null;
         try {
-            BufferedReader bufferedReader = new BufferedReader(
-                new java.io.FileReader(configFile));
-
-            JSONObject edgeConf     = (JSONObject)parser.parse(bufferedReader);
+            JSONObject edgeConf     = read(configFile, cache);
             if (edgeConf == null) return null;
 
             // orgConfig
@@ -202,22 +244,24 @@ public class ConsolidatedConfigReader {
      */
     public static Set<String> getAPIList(File configFile)
             throws ParseException, IOException {
+        return getAPIList(null, configFile);
+    }
+
+    public static Set<String> getAPIList(ConfigCache cache, File configFile)
+            throws ParseException, IOException {
 
         Logger logger = LogManager.getLogger(ConfigReader.class);
 
-        JSONParser parser = new JSONParser();
         ArrayList<String> out = null;    
         try {
-            BufferedReader bufferedReader = new BufferedReader(
-                new java.io.FileReader(configFile));
-
-            JSONObject edgeConf     = (JSONObject)parser.parse(bufferedReader);
+            JSONObject edgeConf     = read(configFile, cache);
             if (edgeConf == null) return null;
 
             JSONObject scopeConf  = (JSONObject)edgeConf.get("apiConfig");
             if (scopeConf == null) return null;
 
-            return scopeConf.keySet();
+            // the cached document is shared, hand out a copy
+            return new LinkedHashSet<String>(scopeConf.keySet());
 
             // while( keys.hasNext() ) {
             //     out.add((String)keys.next());
@@ -234,6 +278,28 @@ public class ConsolidatedConfigReader {
     }
 
 
+    /**
+     * APIs under apiConfig whose config was added or modified since the
+     * previous version of the file
+     */
+    public static Set<String> getChangedAPIList(ConfigCache cache, File configFile, File previousFile)
+            throws ParseException, IOException {
+        JSONObject current = read(configFile, cache);
+        JSONObject previous = (previousFile != null) ? read(previousFile, cache) : null;
+        JSONObject currentConf = (current != null) ? (JSONObject) current.get("apiConfig") : null;
+        JSONObject previousConf = (previous != null) ? (JSONObject) previous.get("apiConfig") : null;
+
+        Set<String> out = new LinkedHashSet<String>();
+        if (currentConf != null) {
+            for (Object api : currentConf.keySet()) {
+                if (previousConf == null || !Objects.equals(currentConf.get(api), previousConf.get(api))) {
+                    out.add((String) api);
+                }
+            }
+        }
+        return out;
+    }
+
     /**
      * API Config
      * [ {apiProduct1}, {apiProduct2}, {apiProduct3} ]
@@ -242,16 +308,20 @@ public class ConsolidatedConfigReader {
                                      String api,
                                      String resource)
             throws ParseException, IOException {
+        return getAPIConfig(null, configFile, api, resource);
+    }
+
+    public static List getAPIConfig(ConfigCache cache,
+                                     File configFile,
+                                     String api,
+                                     String resource)
+            throws ParseException, IOException {
 
         Logger logger = LogManager.getLogger(ConfigReader.class);
 
-        JSONParser parser = new JSONParser();
         ArrayList out = null;    
         try {
-            BufferedReader bufferedReader = new BufferedReader(
-                new java.io.FileReader(configFile));
-
-            JSONObject edgeConf     = (JSONObject)parser.parse(bufferedReader);
+            JSONObject edgeConf     = read(configFile, cache);
             if (edgeConf == null) return null;
 
             JSONObject scopeConf  = (JSONObject)edgeConf.get("apiConfig");
@@ -280,4 +350,211 @@ public class ConsolidatedConfigReader {
         return out;
     }
 
+    /**
+     * Entities at the path of the document, e.g. orgConfig, apiProducts or
+     * envConfig, test, targetServers. Each one is written from the document
+     * straight into the payload of its entity.
+     *
+     * @return the entities, or null if the path is not in the file
+     */
+    public static List<ConfigEntity> getEntities(ConfigCache cache, File configFile, String... path)
+            throws ParseException, IOException {
+        Object configs = find(read(configFile, cache), path);
+        if (!(configs instanceof JSONArray)) {
+            return null;
+        }
+        String scope = String.join(".", path);
+        List<ConfigEntity> out = new ArrayList<ConfigEntity>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        for (Object config : (JSONArray) configs) {
+            out.add(toEntity(scope, config, buffer));
+        }
+        return out;
+    }
+
+    /**
+     * Entities of the object of arrays at the path by id, e.g. the apps of
+     * each developer of orgConfig.developerApps.
+     *
+     * @return the entities by id, or null if the path is not in the file
+     */
+    public static Map<String, List<ConfigEntity>> getEntitiesWithId(ConfigCache cache, File configFile,
+            String... path) throws ParseException, IOException {
+        Object configs = find(read(configFile, cache), path);
+        if (!(configs instanceof Map)) {
+            return null;
+        }
+        String scope = String.join(".", path);
+        Map<String, List<ConfigEntity>> out = new HashMap<String, List<ConfigEntity>>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        for (Object o : ((Map) configs).entrySet()) {
+            Map.Entry pair = (Map.Entry) o;
+            if (pair.getValue() instanceof JSONArray) {
+                List<ConfigEntity> entities = new ArrayList<ConfigEntity>();
+                for (Object config : (JSONArray) pair.getValue()) {
+                    entities.add(toEntity(scope + "." + pair.getKey(), config, buffer));
+                }
+                out.put((String) pair.getKey(), entities);
+            }
+        }
+        return out;
+    }
+
+    private static Object find(JSONObject document, String[] path) {
+        Object value = document;
+        for (String field : path) {
+            if (!(value instanceof Map)) {
+                return null;
+            }
+            value = ((Map) value).get(field);
+        }
+        return value;
+    }
+
+    private static ConfigEntity toEntity(String scope, Object config, ByteArrayOutputStream buffer)
+            throws IOException {
+        if (config instanceof String) {
+            return ConfigEntity.of(scope, (String) config);
+        }
+        buffer.reset();
+        Writer out = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+        JSONValue.writeJSONString(config, out);
+        out.flush();
+        return new ConfigEntity(scope, buffer.toByteArray());
+    }
+
+    /**
+     * @return the parsed file, from the cache when there is one
+     */
+    private static JSONObject read(File configFile, ConfigCache cache)
+            throws ParseException, IOException {
+        return (cache != null) ? cache.get(configFile) : ConfigCache.parse(configFile);
+    }
+
+    /*
+     * Streaming mode
+     *
+     * The file is read as a token stream: the parser walks down to the
+     * requested path and only the entities found there are copied out, one
+     * at a time, everything else is skipped without being built. Memory use
+     * is bounded by the largest entity instead of the size of the file.
+     */
+
+    /**
+     * Streams the entities found at the path, e.g. orgConfig, apiProducts
+     * or envConfig, test, targetServers. An array at the path gives its
+     * elements, an object of arrays (orgConfig.developerApps) gives the
+     * elements of each array with the key as id.
+     *
+     * @return false if the path is not in the file
+     */
+    public static boolean streamConfig(File configFile, EntityConsumer consumer, String... path)
+            throws IOException {
+        String scope = String.join(".", path);
+        try (JsonParser parser = JSON_FACTORY.createParser(configFile)) {
+            // reused for every entity
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+            JsonToken token = walk(parser, path);
+            if (token == JsonToken.START_ARRAY) {
+                streamArray(parser, buffer, scope, null, consumer);
+                return true;
+            }
+            if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String id = parser.getCurrentName();
+                    if (parser.nextToken() == JsonToken.START_ARRAY) {
+                        streamArray(parser, buffer, scope + "." + id, id, consumer);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return the entities at the path, or null if the path is not in the file
+     */
+    public static List<ConfigEntity> streamEntities(File configFile, String... path)
+            throws IOException {
+        final List<ConfigEntity> out = new ArrayList<ConfigEntity>();
+        return streamConfig(configFile, (id, entity) -> out.add(entity), path) ? out : null;
+    }
+
+    /**
+     * @return the entities at the path by id, or null if the path is not in the file
+     */
+    public static Map<String, List<ConfigEntity>> streamEntityMap(File configFile, String... path)
+            throws IOException {
+        final Map<String, List<ConfigEntity>> out = new HashMap<String, List<ConfigEntity>>();
+        boolean found = streamConfig(configFile,
+                (id, entity) -> out.computeIfAbsent(id, k -> new ArrayList<ConfigEntity>()).add(entity), path);
+        return found ? out : null;
+    }
+
+    /**
+     * @return the keys of the object at the path, e.g. the APIs of apiConfig,
+     *         or null if the path is not in the file
+     */
+    public static Set<String> streamKeys(File configFile, String... path)
+            throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(configFile)) {
+            if (walk(parser, path) != JsonToken.START_OBJECT) {
+                return null;
+            }
+            Set<String> out = new LinkedHashSet<String>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                out.add(parser.getCurrentName());
+                parser.nextToken();
+                parser.skipChildren();
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Moves the parser to the value at the path, skipping every other field.
+     *
+     * @return the first token of the value, or null if it is not found
+     */
+    private static JsonToken walk(JsonParser parser, String[] path) throws IOException {
+        JsonToken token = parser.nextToken();
+        for (String field : path) {
+            if (token != JsonToken.START_OBJECT) {
+                return null;
+            }
+            boolean found = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                token = parser.nextToken();
+                if (field.equals(parser.getCurrentName())) {
+                    found = true;
+                    break;
+                }
+                parser.skipChildren();
+            }
+            if (!found) {
+                return null;
+            }
+        }
+        return token;
+    }
+
+    private static void streamArray(JsonParser parser, ByteArrayOutputStream buffer, String scope,
+            String id, EntityConsumer consumer) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.VALUE_STRING) {
+                consumer.accept(id, ConfigEntity.of(scope, parser.getText()));
+                continue;
+            }
+            buffer.reset();
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+                generator.copyCurrentStructure(parser);
+            }
+            consumer.accept(id, new ConfigEntity(scope, buffer.toByteArray()));
+        }
+    }
+
 }
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Config files that differ between the working tree and a git ref
+ * (apigee.config.since).
+ *
+ * Only the files under the config dir, or the config file itself, are
+ * compared. The version at the ref of every changed file is extracted to a
+ * temporary file, so it can be read with the usual config readers and the
+ * entities that did not change can be told apart from the ones that did.
+ */
+public class GitChangeSet {
+
+    private static final Logger logger = LogManager.getLogger(GitChangeSet.class);
+
+    private final String ref;
+    private final File workTree;
+    // path in the repository -> version at the ref, null if the file did not exist
+    private final Map<String, File> changes = new HashMap<String, File>();
+
+    /**
+     * @return the changes of the config dir or file since the ref, computed
+     *         once per build
+     */
+    public static GitChangeSet forSession(MavenSession session, File path, String ref) throws IOException {
+        File target = path.getAbsoluteFile();
+        try {
+            return SessionScope.get(session, GitChangeSet.class.getName() + ":" + ref + ":" + target.getPath(),
+                    () -> {
+                        try {
+                            return new GitChangeSet(target, ref);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @param path the config dir or file, inside a git working tree
+     * @param ref  anything git rev-parse accepts, e.g. origin/main or HEAD~1
+     */
+    public GitChangeSet(File path, String ref) throws IOException {
+        this.ref = ref;
+        File target = path.getCanonicalFile();
+        FileRepositoryBuilder builder = new FileRepositoryBuilder()
+                .readEnvironment()
+                .findGitDir(target.isDirectory() ? target : target.getParentFile());
+        if (builder.getGitDir() == null) {
+            throw new IOException(path + " is not in a git repository");
+        }
+        Repository repository = builder.build();
+        try {
+            this.workTree = repository.getWorkTree().getCanonicalFile();
+            ObjectId tree = repository.resolve(ref + "^{tree}");
+            if (tree == null) {
+                throw new IOException("Unknown git ref " + ref);
+            }
+            String prefix = relativePath(target);
+
+            long start = System.currentTimeMillis();
+            TreeWalk walk = new TreeWalk(repository);
+            try {
+                walk.setRecursive(true);
+                walk.addTree(tree);
+                walk.addTree(new FileTreeIterator(repository));
+                walk.setFilter(prefix.isEmpty() ? TreeFilter.ANY_DIFF
+                        : AndTreeFilter.create(PathFilter.create(prefix), TreeFilter.ANY_DIFF));
+                while (walk.next()) {
+                    changes.put(walk.getPathString(), walk.getFileMode(0).getObjectType() == Constants.OBJ_BLOB
+                            ? extract(repository, walk.getObjectId(0), walk.getNameString())
+                            : null);
+                }
+            } finally {
+                walk.release();
+            }
+            logger.info(changes.size() + " config files changed since " + ref
+                    + " (" + (System.currentTimeMillis() - start) + " ms)");
+        } finally {
+            repository.close();
+        }
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    /**
+     * @return true if the file was added, modified or deleted since the ref
+     */
+    public boolean isChanged(File file) throws IOException {
+        return changes.containsKey(relativePath(file.getCanonicalFile()));
+    }
+
+    /**
+     * @return true if a file under the directory changed since the ref
+     */
+    public boolean isChangedUnder(File dir) throws IOException {
+        String prefix = relativePath(dir.getCanonicalFile()) + "/";
+        for (String path : changes.keySet()) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the files that changed since the ref, in the same order
+     */
+    public List<File> getChanged(List<File> files) throws IOException {
+        List<File> changed = new ArrayList<File>(files.size());
+        for (File file : files) {
+            if (isChanged(file)) {
+                changed.add(file);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return a copy of the file as it was at the ref, null if it did not
+     *         exist then; the file itself if it did not change
+     */
+    public File getPrevious(File file) throws IOException {
+        String path = relativePath(file.getCanonicalFile());
+        return changes.containsKey(path) ? changes.get(path) : file;
+    }
+
+    private String relativePath(File file) throws IOException {
+        String root = workTree.getPath();
+        String path = file.getPath();
+        if (path.equals(root)) {
+            return "";
+        }
+        if (!path.startsWith(root + File.separator)) {
+            throw new IOException(file + " is not in the git working tree " + root);
+        }
+        return path.substring(root.length() + 1).replace(File.separatorChar, '/');
+    }
+
+    private static File extract(Repository repository, ObjectId blob, String name) throws IOException {
+        File previous = File.createTempFile("apigee-config-", "-" + name);
+        previous.deleteOnExit();
+        Files.write(previous.toPath(), repository.open(blob).getBytes());
+        return previous;
+    }
+
+}
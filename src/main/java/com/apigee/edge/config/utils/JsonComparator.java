@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Tells whether a remote entity already has the content of its config
+ * entry, so that update can skip writing it.
+ *
+ * Both sides are compared in their canonical form (see
+ * {@link ConfigEntity#getTree()}), where numbers are plain decimals and the
+ * fields are sorted. Before that:
+ * <ul>
+ * <li>the fields the server manages (createdAt, lastModifiedAt, ...) are
+ * dropped from the remote entity, unless the config sets them;</li>
+ * <li>so are the fields the server sets to a default when the config leaves
+ * them out (e.g. isEnabled of a target server), if they have that default;</li>
+ * <li>empty values ("", [], {}) and nulls count as absent, the API returns
+ * some fields the config leaves out that way.</li>
+ * </ul>
+ * Arrays are compared regardless of their order unless the comparator is
+ * told the order matters, as for the columns of a report.
+ */
+public class JsonComparator {
+
+    private static final Logger logger = LogManager.getLogger(JsonComparator.class);
+
+    /** the fields every entity of the management API carries */
+    public static final Set<String> SERVER_FIELDS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "createdAt", "createdBy", "lastModifiedAt", "lastModifiedBy")));
+
+    private final Set<String> serverFields;
+    private final Map<String, Object> serverDefaults;
+    private final boolean ignoreArrayOrder;
+
+    /**
+     * @param extraServerFields server managed fields of the resource type,
+     *                          besides {@link #SERVER_FIELDS}
+     */
+    public JsonComparator(String... extraServerFields) {
+        this(true, extraServerFields);
+    }
+
+    /**
+     * @param ignoreArrayOrder false when the API keeps the order of arrays
+     */
+    public JsonComparator(boolean ignoreArrayOrder, String... extraServerFields) {
+        Set<String> fields = new HashSet<String>(SERVER_FIELDS);
+        fields.addAll(Arrays.asList(extraServerFields));
+        this.serverFields = Collections.unmodifiableSet(fields);
+        this.serverDefaults = Collections.emptyMap();
+        this.ignoreArrayOrder = ignoreArrayOrder;
+    }
+
+    private JsonComparator(JsonComparator comparator, Map<String, Object> serverDefaults) {
+        this.serverFields = comparator.serverFields;
+        this.serverDefaults = Collections.unmodifiableMap(serverDefaults);
+        this.ignoreArrayOrder = comparator.ignoreArrayOrder;
+    }
+
+    /**
+     * @param field the field the server sets when the config leaves it out
+     * @param value its value in the canonical form: a String, Boolean or
+     *              BigDecimal
+     * @return a comparator that also ignores the field when it has that value
+     */
+    public JsonComparator withDefault(String field, Object value) {
+        Map<String, Object> defaults = new TreeMap<String, Object>(serverDefaults);
+        defaults.put(field, value);
+        return new JsonComparator(this, defaults);
+    }
+
+    public Set<String> getServerFields() {
+        return serverFields;
+    }
+
+    /**
+     * @param remote the remote entity, null if it does not exist
+     * @return true if the remote entity has the content of the entry
+     */
+    public boolean isUnchanged(ConfigEntity entity, ConfigEntity remote) throws IOException {
+        if (remote == null) {
+            return false;
+        }
+        return isUnchanged(entity.getTree(), remote.getTree());
+    }
+
+    public boolean isUnchanged(String entity, String remote) throws IOException {
+        if (remote == null) {
+            return false;
+        }
+        return isUnchanged(ConfigEntity.of("config", entity), ConfigEntity.of("remote", remote));
+    }
+
+    /**
+     * Compares canonical trees, see {@link ConfigEntity#getTree()}.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean isUnchanged(Object desired, Object actual) throws IOException {
+        if (desired instanceof Map && actual instanceof Map) {
+            Map<String, Object> desiredFields = (Map<String, Object>) desired;
+            Map<String, Object> actualFields = new TreeMap<String, Object>((Map<String, Object>) actual);
+            actualFields.entrySet().removeIf(field -> !desiredFields.containsKey(field.getKey())
+                    && (serverFields.contains(field.getKey())
+                            || isDefault(field.getKey(), field.getValue())));
+            actual = actualFields;
+        }
+        String difference = difference(normalize(desired), normalize(actual), "remote");
+        if (difference == null) {
+            return true;
+        }
+        logger.debug(difference);
+        return false;
+    }
+
+    private boolean isDefault(String field, Object value) {
+        return serverDefaults.containsKey(field) && Objects.equals(serverDefaults.get(field), value);
+    }
+
+    /**
+     * @return the first difference of the normalized trees, null if there is
+     *         none
+     */
+    @SuppressWarnings("unchecked")
+    private String difference(Object desired, Object actual, String path) {
+        if (desired instanceof Map && actual instanceof Map) {
+            Map<String, Object> desiredFields = (Map<String, Object>) desired;
+            Map<String, Object> actualFields = (Map<String, Object>) actual;
+            if (!desiredFields.keySet().equals(actualFields.keySet())) {
+                return "Different fields in " + path + ", expected " + desiredFields.keySet()
+                        + " got " + actualFields.keySet();
+            }
+            for (Map.Entry<String, Object> field : desiredFields.entrySet()) {
+                String difference = difference(field.getValue(), actualFields.get(field.getKey()),
+                        path + "." + field.getKey());
+                if (difference != null) {
+                    return difference;
+                }
+            }
+            return null;
+        }
+        if (desired instanceof List && actual instanceof List) {
+            List<Object> desiredElements = (List<Object>) desired;
+            List<Object> actualElements = (List<Object>) actual;
+            if (desiredElements.size() != actualElements.size()) {
+                return "Different length of " + path + ", expected " + desiredElements.size()
+                        + " got " + actualElements.size();
+            }
+            if (!ignoreArrayOrder) {
+                for (int i = 0; i < desiredElements.size(); i++) {
+                    String difference = difference(desiredElements.get(i), actualElements.get(i),
+                            path + "[" + i + "]");
+                    if (difference != null) {
+                        return difference;
+                    }
+                }
+                return null;
+            }
+            // each element has to match a distinct one, whatever its position
+            List<Object> unmatched = new ArrayList<Object>(actualElements);
+            for (int i = 0; i < desiredElements.size(); i++) {
+                if (!removeMatch(unmatched, desiredElements.get(i), path + "[" + i + "]")) {
+                    return "No match for " + path + "[" + i + "] in the remote array";
+                }
+            }
+            return null;
+        }
+        if (!Objects.equals(desired, actual)) {
+            return "Different value of " + path + ", expected " + desired + " got " + actual;
+        }
+        return null;
+    }
+
+    private boolean removeMatch(List<Object> candidates, Object element, String path) {
+        for (int i = 0; i < candidates.size(); i++) {
+            if (difference(element, candidates.get(i), path) == null) {
+                candidates.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the empty values.
+     */
+    @SuppressWarnings("unchecked")
+    static Object normalize(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> normalized = new TreeMap<String, Object>();
+            for (Map.Entry<String, Object> field : ((Map<String, Object>) value).entrySet()) {
+                Object fieldValue = normalize(field.getValue());
+                if (fieldValue != null) {
+                    normalized.put(field.getKey(), fieldValue);
+                }
+            }
+            return normalized.isEmpty() ? null : normalized;
+        }
+        if (value instanceof List) {
+            List<Object> normalized = new ArrayList<Object>();
+            for (Object element : (List<Object>) value) {
+                normalized.add(normalize(element));
+            }
+            return normalized.isEmpty() ? null : normalized;
+        }
+        if ("".equals(value)) {
+            return null;
+        }
+        return value;
+    }
+
+}
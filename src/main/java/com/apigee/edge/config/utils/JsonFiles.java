@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads JSON config files.
+ *
+ * The bytes of the file are handed to the jackson byte parser, which
+ * decodes the UTF-8 itself (whatever the platform charset), instead of going
+ * through a Reader. Files above {@link #MAP_THRESHOLD} bytes are memory
+ * mapped rather than copied into the heap. The file is closed before the
+ * method returns.
+ *
+ * The documents are built with the json-simple types the readers work on
+ * (JSONObject, JSONArray, String, Long, Double, Boolean), so they are the
+ * same as with the json-simple parser.
+ */
+public class JsonFiles {
+
+    /** files up to this size are read, larger ones are mapped */
+    static final int MAP_THRESHOLD = 64 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * @return the document, null if the file is empty
+     */
+    public static Object parse(File configFile) throws IOException {
+        try (JsonParser parser = createParser(configFile)) {
+            if (parser.nextToken() == null) {
+                return null;
+            }
+            Object document = readValue(parser);
+            if (parser.nextToken() != null) {
+                throw new IOException("Unexpected content after the JSON document in " + configFile
+                        + " at line " + parser.getCurrentLocation().getLineNr());
+            }
+            return document;
+        } catch (JsonProcessingException e) {
+            throw error(configFile, e);
+        }
+    }
+
+    /**
+     * @return a parser over the content of the file, which is read or
+     *         mapped up front so the file is already closed
+     */
+    static JsonParser createParser(File configFile) throws IOException {
+        return JSON_FACTORY.createParser(new ByteBufferInputStream(read(configFile)));
+    }
+
+    /**
+     * @return the syntax error with the file and where it is
+     */
+    static IOException error(File configFile, JsonProcessingException e) {
+        return new IOException(configFile.getName() + ": " + e.getOriginalMessage()
+                + " at line " + e.getLocation().getLineNr()
+                + ", column " + e.getLocation().getColumnNr(), e);
+    }
+
+    /**
+     * @return the content of the file, mapped if it is large
+     */
+    static ByteBuffer read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read until the end
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+        case START_OBJECT:
+            JSONObject object = new JSONObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                object.put(field, readValue(parser));
+            }
+            return object;
+        case START_ARRAY:
+            JSONArray array = new JSONArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                array.add(readValue(parser));
+            }
+            return array;
+        case VALUE_STRING:
+            return parser.getText();
+        case VALUE_NUMBER_INT:
+            return (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER)
+                    ? parser.getBigIntegerValue() : (Object) parser.getLongValue();
+        case VALUE_NUMBER_FLOAT:
+            return parser.getDoubleValue();
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Reads a buffer without copying it.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
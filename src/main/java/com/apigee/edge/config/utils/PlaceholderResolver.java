@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Substitutes the ${...} placeholders of the config entries
+ * (apigee.config.placeholders).
+ *
+ * Values come from, in order of precedence, the -D properties of the build,
+ * the values file (apigee.config.values), the project properties and the
+ * system properties; ${env.NAME} is the environment variable NAME.
+ *
+ * The entries of a config file with placeholders are compiled once into a
+ * {@link ConfigTemplate}, kept by file and position of the entry, and reused
+ * when another goal of the build reads the same file. Entries without a '$'
+ * are returned as they are. Values are escaped only in JSON entries, not in
+ * the string entries of a config such as apiCategories.
+ */
+public class PlaceholderResolver {
+
+    private static final Logger logger = LogManager.getLogger(PlaceholderResolver.class);
+
+    private static final String ENV = "env.";
+
+    private final Map<String, String> values;
+    private final ConcurrentMap<String, Compiled> templates = new ConcurrentHashMap<String, Compiled>();
+
+    /*
+     * Template of an entry, with the hash of the payload it was compiled from
+     * in case the file changed since
+     */
+    private static final class Compiled {
+        final int hash;
+        final ConfigTemplate template;
+
+        Compiled(int hash, ConfigTemplate template) {
+            this.hash = hash;
+            this.template = template;
+        }
+    }
+
+    /**
+     * @param sources property sets, the first one has precedence
+     */
+    public PlaceholderResolver(List<Properties> sources) {
+        Map<String, String> merged = new HashMap<String, String>();
+        for (int i = sources.size() - 1; i >= 0; i--) {
+            Properties properties = sources.get(i);
+            if (properties != null) {
+                for (String name : properties.stringPropertyNames()) {
+                    merged.put(name, properties.getProperty(name));
+                }
+            }
+        }
+        this.values = merged;
+    }
+
+    /**
+     * Reads a values file in the properties format.
+     */
+    public static Properties loadValues(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        }
+        logger.info("Loaded " + properties.size() + " placeholder values from " + file);
+        return properties;
+    }
+
+    public String getValue(String name) {
+        if (name.startsWith(ENV)) {
+            return System.getenv(name.substring(ENV.length()));
+        }
+        return values.get(name);
+    }
+
+    public String render(String entry) throws IOException {
+        if (entry.indexOf('$') < 0) {
+            return entry;
+        }
+        return ConfigTemplate.compile(entry).render(this::getValue, isJson(entry.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return the entity with its placeholders substituted, the entity itself
+     *         when it has none
+     */
+    public ConfigEntity render(ConfigEntity entity) throws IOException {
+        if (!hasPlaceholders(entity.getPayload())) {
+            return entity;
+        }
+        return ConfigEntity.of(entity.getScope(), render(entity.getPayloadAsString()));
+    }
+
+    /**
+     * @param file     the file the entities were read from
+     * @param entities the entities of one config of the file
+     */
+    public List<ConfigEntity> render(File file, List<ConfigEntity> entities) throws IOException {
+        if (entities == null) {
+            return null;
+        }
+        List<ConfigEntity> out = new ArrayList<ConfigEntity>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            out.add(render(file, i, entities.get(i)));
+        }
+        return out;
+    }
+
+    public Map<String, List<ConfigEntity>> render(File file, Map<String, List<ConfigEntity>> entities)
+            throws IOException {
+        if (entities == null) {
+            return null;
+        }
+        Map<String, List<ConfigEntity>> out = new LinkedHashMap<String, List<ConfigEntity>>();
+        for (Map.Entry<String, List<ConfigEntity>> entry : entities.entrySet()) {
+            out.put(entry.getKey(), render(file, entry.getValue()));
+        }
+        return out;
+    }
+
+    private ConfigEntity render(File file, int index, ConfigEntity entity) throws IOException {
+        byte[] payload = entity.getPayload();
+        if (!hasPlaceholders(payload)) {
+            return entity;
+        }
+        // the scope tells the configs of edge.json apart, and the ids of a map
+        String key = file.getPath() + "#" + entity.getScope() + "[" + index + "]";
+        int hash = Arrays.hashCode(payload);
+        Compiled compiled = templates.get(key);
+        if (compiled == null || compiled.hash != hash) {
+            ConfigTemplate template = ConfigTemplate.compile(entity.getPayloadAsString());
+            if (template.isConstant()) {
+                // only $${ escapes, nothing worth keeping
+                return ConfigEntity.of(entity.getScope(), template.render(this::getValue, isJson(payload)));
+            }
+            compiled = new Compiled(hash, template);
+            templates.put(key, compiled);
+        }
+        return ConfigEntity.of(entity.getScope(), compiled.template.render(this::getValue, isJson(payload)));
+    }
+
+    // an object or array, not the text of a string entry
+    private static boolean isJson(byte[] payload) {
+        for (byte b : payload) {
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return b == '{' || b == '[';
+            }
+        }
+        return false;
+    }
+
+    // '$' is a single byte in UTF-8, never part of another character
+    private static boolean hasPlaceholders(byte[] payload) {
+        for (byte b : payload) {
+            if (b == '$') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
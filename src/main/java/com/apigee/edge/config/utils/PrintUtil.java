@@ -16,110 +16,190 @@
 package com.apigee.edge.config.utils;
 
 import java.io.ByteArrayOutputStream;
-import java.util.Iterator;
-import java.util.Set;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.api.client.http.HttpContent;
 import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpMethods;
 import com.google.api.client.http.HttpRequest;
-import com.google.api.client.http.HttpResponse;
-
 
+/**
+ * Formats requests and responses for the log.
+ *
+ * The formatting is meant to be called from a log4j2 supplier, e.g.
+ * logger.info(() -> PrintUtil.formatRequest(request, bodyLimit)), so that
+ * nothing is built when the level is off. How much of a request body is
+ * shown is set with apigee.config.logVerbosity, see {@link #bodyLimit}.
+ */
 public class PrintUtil {
 
-    public static String formatRequest(HttpRequest request) {
-
-        String prettyRequest = "\n\n\nRequest prepared for the server \n **************************\n";
-
-        // Print all headers except auth
-
-        prettyRequest = prettyRequest + request.getRequestMethod() + "  " + request.getUrl();
-
-        HttpHeaders headers = request.getHeaders();
-
-        Set<String> tempheadersmap = headers.keySet();
+    private static final Logger logger = LogManager.getLogger(PrintUtil.class);
 
-        for (Iterator<String> iter = tempheadersmap.iterator(); iter.hasNext(); ) {
+    /** apigee.config.logVerbosity values */
+    public static final String HEADERS = "headers";
+    public static final String BODY_TRUNCATED = "body-truncated:";
+    public static final String FULL = "full";
 
+    /**
+     * @return max number of request body bytes to log for the verbosity:
+     *         0 for headers, N for body-truncated:N, -1 for full (the default)
+     */
+    public static int bodyLimit(String verbosity) {
+        if (verbosity == null || verbosity.trim().isEmpty() || verbosity.trim().equalsIgnoreCase(FULL)) {
+            return -1;
+        }
+        String value = verbosity.trim().toLowerCase();
+        if (value.equals(HEADERS)) {
+            return 0;
+        }
+        if (value.startsWith(BODY_TRUNCATED)) {
             try {
-                String headerkey = iter.next();
-                if (!headerkey.trim().equalsIgnoreCase("Authorization")) {
-                    String headervalue = ""+headers.get(headerkey);
-                    prettyRequest = prettyRequest + "\n" + headerkey + ": " + headervalue;
-                }else {
-                    String headervalue = ""+headers.get(headerkey);
-                    String arr[] = headervalue.split(" ", 2);
-                    String prefix = arr[0];   // Basic, Bearer
-                    prettyRequest = prettyRequest + "\n" + 
-                                    "authorization" + ": " + prefix + " [Not shown in log]";
+                int limit = Integer.parseInt(value.substring(BODY_TRUNCATED.length()).trim());
+                if (limit >= 0) {
+                    return limit;
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+            } catch (NumberFormatException e) {
+                // reported below
             }
-
         }
+        throw new IllegalArgumentException("Invalid apigee.config.logVerbosity " + verbosity
+                + ", expected " + HEADERS + ", " + BODY_TRUNCATED + "<bytes> or " + FULL);
+    }
+
+    public static String formatRequest(HttpRequest request) {
+        return formatRequest(request, -1);
+    }
+
+    /**
+     * @param bodyLimit max number of body bytes shown, 0 for none, -1 for all
+     */
+    public static String formatRequest(HttpRequest request, int bodyLimit) {
+
+        StringBuilder prettyRequest = new StringBuilder(256)
+                .append("\n\n\nRequest prepared for the server \n **************************\n")
+                .append(request.getRequestMethod()).append("  ").append(request.getUrl());
+
+        // Print all headers except auth
+        appendHeaders(prettyRequest, request.getHeaders());
 
         try {
         if (request.getRequestMethod().compareTo(HttpMethods.POST) == 0  ){
 
-            if (request.getContent()!=null && request.getContent().getType() !=null)
+            HttpContent content = request.getContent();
+            if (content != null && content.getType() != null)
             {
-                prettyRequest = prettyRequest + "\n" + "content-type" + ": " + request.getContent().getType();
+                prettyRequest.append("\ncontent-type: ").append(content.getType());
 
+                if (bodyLimit == 0) {
+                    // headers only
+                }
                 //https://github.com/apigee/apigee-config-maven-plugin/issues/63 Not print KVM Request as it could have sensitive data
-                if (request.getUrl().toString().contains("/keyvaluemaps")) {
-                    prettyRequest = prettyRequest + "\n [Request body may contain sensitive data, not shown] \n";
+                else if (request.getUrl().toString().contains("/keyvaluemaps")) {
+                    prettyRequest.append("\n [Request body may contain sensitive data, not shown] \n");
                 }
-                else if (!request.getContent().getType().contains("octet"))
+                // file uploads are streamed from disk, they are not read into the log
+                else if (!content.getType().contains("octet")
+                		&& !content.getType().contains("multipart"))
                 {
-	                ByteArrayOutputStream out = new ByteArrayOutputStream();
-	                request.getContent().writeTo(out);
-	                prettyRequest = prettyRequest + "\n [Request body]\n" + out.toString();
-                } 
+                    prettyRequest.append("\n [Request body]\n");
+                    appendBody(prettyRequest, content, bodyLimit);
+                }
                 else {
-                    prettyRequest = prettyRequest + "\n [Request body contains data, not shown] \n";
+                    prettyRequest.append("\n [Request body contains data, not shown] \n");
                 }
             }
 
         }
         }catch (Exception e){
-            e.printStackTrace();
+            logger.warn("Unable to format the request body: " + e.getMessage(), e);
         }
 
-        return  prettyRequest;
+        return prettyRequest.toString();
     }
 
 
-    public static String formatResponse(HttpResponse response, String body) {
+    private static void appendHeaders(StringBuilder out, HttpHeaders headers) {
+        for (Map.Entry<String, Object> header : headers.entrySet()) {
+            String headerkey = header.getKey();
+            if (!headerkey.trim().equalsIgnoreCase("Authorization")) {
+                out.append('\n').append(headerkey).append(": ").append(header.getValue());
+            } else {
+                String headervalue = String.valueOf(header.getValue());
+                String prefix = headervalue.split(" ", 2)[0];   // Basic, Bearer
+                out.append("\nauthorization: ").append(prefix).append(" [Not shown in log]");
+            }
+        }
+    }
 
-        String prettyString = "\n\n\nResponse returned by the server \n **************************\n";
+    /**
+     * Writes at most limit bytes of the content; the serialization of the
+     * rest is cut short.
+     */
+    private static void appendBody(StringBuilder out, HttpContent content, int limit) throws IOException {
+        LimitedOutputStream body = new LimitedOutputStream(limit);
+        try {
+            content.writeTo(body);
+        } catch (LimitReachedException e) {
+            // the rest of the body is not needed
+        }
+        out.append(new String(body.toByteArray(), StandardCharsets.UTF_8));
+        if (body.truncated) {
+            long length = content.getLength();
+            out.append("\n [Request body truncated to ").append(limit).append(" bytes");
+            if (length >= 0) {
+                out.append(" of ").append(length);
+            }
+            out.append("] \n");
+        }
+    }
 
-        // Print all headers except auth
+    private static class LimitReachedException extends IOException {
+        private static final long serialVersionUID = 1L;
 
-        prettyString = prettyString + response.getStatusCode() + "  " + response.getStatusMessage();
+        LimitReachedException() {
+            super(null, null);
+        }
 
-        HttpHeaders headers = response.getHeaders();
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
 
-        Set<String> tempheadersmap = headers.keySet();
+    private static class LimitedOutputStream extends OutputStream {
+        private final ByteArrayOutputStream bytes;
+        private final int limit;
+        boolean truncated;
 
-        for (Iterator<String> iter = tempheadersmap.iterator(); iter.hasNext(); ) {
+        LimitedOutputStream(int limit) {
+            this.bytes = new ByteArrayOutputStream(limit > 0 ? Math.min(limit, 8192) : 1024);
+            this.limit = limit;
+        }
 
-            try {
-                String headerkey = iter.next();
-                if (!headerkey.trim().equalsIgnoreCase("Authorization")) {
-                    String headervalue = ""+headers.get(headerkey);
-                    prettyString = prettyString + "\n" + headerkey + ": " + headervalue;
-                }
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
 
-            } catch (Exception e) {
-                e.printStackTrace();
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (limit >= 0 && bytes.size() + len > limit) {
+                bytes.write(b, off, limit - bytes.size());
+                truncated = true;
+                throw new LimitReachedException();
             }
-
+            bytes.write(b, off, len);
         }
 
-        // print response body
-        prettyString = prettyString + "\n" + body;
-
-        return  prettyString;
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
     }
+
 }
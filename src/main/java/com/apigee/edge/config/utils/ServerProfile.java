@@ -27,6 +27,8 @@ import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
+import com.apigee.edge.config.rest.AsyncRestUtil;
+import com.apigee.edge.config.rest.HttpClientPool;
 import com.apigee.edge.config.rest.RestUtil;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
@@ -70,6 +72,28 @@ public class ServerProfile {
 	
 	private HttpClient apacheHttpClient;
 	
+	//For connection pooling
+	private HttpClientPool httpClientPool;
+	private int maxConnectionsPerRoute;
+	private int connectionIdleTimeout; // seconds
+	private String transport;
+	
+	private volatile RestUtil restUtil;
+	
+	//For concurrent calls
+	private int concurrency;
+	private double maxRps;
+	
+	//For retries
+	private int retryMaxAttempts;
+	private long retryBaseDelay; // ms
+	private long retryMaxDelay; // ms
+	private int retryBudget = -1;
+	
+	//For request logging
+	private String logVerbosity;
+	private volatile AsyncRestUtil asyncRestUtil;
+	
 	public Boolean getKvmOverride() {
 		return kvmOverride;
 	}
@@ -354,4 +378,135 @@ public class ServerProfile {
 		this.apacheHttpClient = apacheHttpClient;
 	}
 
+	/**
+	 * @return the session owned pool the REST client takes its connections from
+	 */
+	public HttpClientPool getHttpClientPool() {
+		return httpClientPool;
+	}
+
+	public void setHttpClientPool(HttpClientPool httpClientPool) {
+		this.httpClientPool = httpClientPool;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public int getConnectionIdleTimeout() {
+		return connectionIdleTimeout;
+	}
+
+	public void setConnectionIdleTimeout(int connectionIdleTimeout) {
+		this.connectionIdleTimeout = connectionIdleTimeout;
+	}
+
+	/**
+	 * @return the REST client shared by the callers of this profile
+	 */
+	public RestUtil getRestUtil() {
+		return restUtil;
+	}
+
+	public void setRestUtil(RestUtil restUtil) {
+		this.restUtil = restUtil;
+	}
+
+	/**
+	 * @return max number of management API calls in flight at once
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * @return the asynchronous REST client shared by the callers of this profile
+	 */
+	public AsyncRestUtil getAsyncRestUtil() {
+		return asyncRestUtil;
+	}
+
+	public void setAsyncRestUtil(AsyncRestUtil asyncRestUtil) {
+		this.asyncRestUtil = asyncRestUtil;
+	}
+
+	/**
+	 * @return max requests per second sent to the management API, 0 for no ceiling
+	 */
+	public double getMaxRps() {
+		return maxRps;
+	}
+
+	public void setMaxRps(double maxRps) {
+		this.maxRps = maxRps;
+	}
+
+	/**
+	 * @return attempts per idempotent call, including the first one
+	 */
+	public int getRetryMaxAttempts() {
+		return retryMaxAttempts;
+	}
+
+	public void setRetryMaxAttempts(int retryMaxAttempts) {
+		this.retryMaxAttempts = retryMaxAttempts;
+	}
+
+	public long getRetryBaseDelay() {
+		return retryBaseDelay;
+	}
+
+	public void setRetryBaseDelay(long retryBaseDelay) {
+		this.retryBaseDelay = retryBaseDelay;
+	}
+
+	public long getRetryMaxDelay() {
+		return retryMaxDelay;
+	}
+
+	public void setRetryMaxDelay(long retryMaxDelay) {
+		this.retryMaxDelay = retryMaxDelay;
+	}
+
+	/**
+	 * @return total number of retries allowed in the build, -1 for the default
+	 */
+	public int getRetryBudget() {
+		return retryBudget;
+	}
+
+	public void setRetryBudget(int retryBudget) {
+		this.retryBudget = retryBudget;
+	}
+
+	/**
+	 * @return name of the HTTP transport (apache, nethttp, http2 or a custom one)
+	 */
+	public String getTransport() {
+		return transport;
+	}
+
+	public void setTransport(String transport) {
+		this.transport = transport;
+	}
+
+	/**
+	 * @return how much of the requests is logged: headers, body-truncated:N or full
+	 */
+	public String getLogVerbosity() {
+		return logVerbosity;
+	}
+
+	public void setLogVerbosity(String logVerbosity) {
+		this.logVerbosity = logVerbosity;
+	}
+
 }
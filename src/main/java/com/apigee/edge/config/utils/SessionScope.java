@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Objects that live as long as the Maven session, so that every goal of the
+ * plugin executed in the same build can share them.
+ *
+ * Values are stored in the repository session data of the build. When no
+ * session is available (e.g. the mojo is instantiated outside of Maven) a
+ * process wide map is used instead.
+ *
+ * Values holding resources (connections, threads) are closed when the
+ * session ends, so they do not outlive the build in a long-lived Maven JVM.
+ */
+public class SessionScope {
+
+    private static final Logger logger = LogManager.getLogger(SessionScope.class);
+
+    private static final String CLOSEABLES_KEY = SessionScope.class.getName() + ":closeables";
+
+    private static final Map<String, Object> fallback = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * Returns the value bound to the key in the session, creating it with
+     * the factory on first use.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(MavenSession session, String key, Supplier<T> factory) {
+        RepositorySystemSession repoSession = (session != null) ? session.getRepositorySession() : null;
+        if (repoSession == null || repoSession.getData() == null) {
+            return (T) fallback.computeIfAbsent(key, k -> factory.get());
+        }
+
+        SessionData data = repoSession.getData();
+        Object value = data.get(key);
+        if (value == null) {
+            synchronized (data) {
+                value = data.get(key);
+                if (value == null) {
+                    value = factory.get();
+                    data.set(key, value);
+                }
+            }
+        }
+        return (T) value;
+    }
+
+    /**
+     * Like {@link #get(MavenSession, String, Supplier)}, the value being
+     * closed when the session ends.
+     */
+    public static <T extends Closeable> T getCloseable(MavenSession session, String key, Supplier<T> factory) {
+        if (session == null || session.getRequest() == null) {
+            return get(session, key, factory);
+        }
+        return get(session, key, () -> {
+            T value = factory.get();
+            closeables(session).add(value);
+            return value;
+        });
+    }
+
+    /**
+     * @return the values to close at the end of the session, the listener
+     *         closing them being installed on first use
+     */
+    private static List<Closeable> closeables(MavenSession session) {
+        return get(session, CLOSEABLES_KEY, () -> {
+            List<Closeable> closeables = new CopyOnWriteArrayList<Closeable>();
+            MavenExecutionRequest request = session.getRequest();
+            request.setExecutionListener(closingListener(request.getExecutionListener(), closeables));
+            return closeables;
+        });
+    }
+
+    /**
+     * @return a listener forwarding the events to the build's listener, and
+     *         closing the values once the session has ended
+     */
+    private static ExecutionListener closingListener(ExecutionListener delegate, List<Closeable> closeables) {
+        return (ExecutionListener) Proxy.newProxyInstance(SessionScope.class.getClassLoader(),
+                new Class<?>[] { ExecutionListener.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                        return proxy == args[0];
+                    } else if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    } else if (method.getName().equals("toString") && method.getParameterCount() == 0) {
+                        return "closing listener of " + delegate;
+                    }
+                    try {
+                        return (delegate != null) ? method.invoke(delegate, args) : null;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (method.getName().equals("sessionEnded")) {
+                            close(closeables);
+                        }
+                    }
+                });
+    }
+
+    private static void close(List<Closeable> closeables) {
+        for (Closeable closeable : closeables) {
+            try {
+                closeable.close();
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Error closing " + closeable + " " + e.getMessage());
+            }
+        }
+        closeables.clear();
+    }
+
+}
@@ -0,0 +1,338 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.net.ssl.SSLContext;
+
+import com.apigee.edge.config.rest.XTrustProvider;
+import com.apigee.edge.config.utils.ServerProfile;
+import com.google.api.client.http.FileContent;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.util.StreamingContent;
+
+/**
+ * google-http-client transport backed by a java.net.http client, which
+ * negotiates HTTP/2 and multiplexes concurrent requests over one connection
+ * (it falls back to HTTP/1.1 when the server does not support HTTP/2).
+ *
+ * Unlike the other transports, host names are verified: the JDK client does
+ * not allow turning that off per client.
+ */
+class Http2Transport extends HttpTransport {
+
+	// set by the client itself, refused when given explicitly
+	private static final Set<String> RESTRICTED_HEADERS = new HashSet<String>(Arrays.asList(
+			"connection", "content-length", "expect", "host", "upgrade"));
+
+	// larger bodies are streamed instead of buffered
+	private static final long BUFFERED_BODY_LIMIT = 64 * 1024;
+
+	// write the streamed bodies into the pipes the client reads them from
+	private static final ExecutorService bodyWriters = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "apigee-http2-body");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final HttpClient client;
+
+	Http2Transport(ServerProfile profile) {
+		HttpClient.Builder builder = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.connectTimeout(Duration.ofSeconds(20))
+				.sslContext(trustingContext());
+		if (profile.getHasProxy()) {
+			builder.proxy(ProxySelector.of(new InetSocketAddress(profile.getProxyServer(), profile.getProxyPort())));
+			if (profile.getProxyUsername() != null && profile.getProxyPassword() != null) {
+				final String user = profile.getProxyUsername();
+				final char[] password = profile.getProxyPassword().toCharArray();
+				builder.authenticator(new Authenticator() {
+					@Override
+					protected PasswordAuthentication getPasswordAuthentication() {
+						return (getRequestorType() == RequestorType.PROXY) ?
+								new PasswordAuthentication(user, password) : null;
+					}
+				});
+			}
+		}
+		this.client = builder.build();
+	}
+
+	/**
+	 * Same trust setup as the rest of the plugin
+	 */
+	private static SSLContext trustingContext() {
+		XTrustProvider.install();
+		try {
+			SSLContext context = SSLContext.getInstance("TLS");
+			context.init(null, null, null);
+			return context;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to set up TLS " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public boolean supportsMethod(String method) {
+		return true;
+	}
+
+	@Override
+	protected LowLevelHttpRequest buildRequest(String method, String url) {
+		return new Http2Request(method, url);
+	}
+
+	private class Http2Request extends LowLevelHttpRequest {
+
+		private final HttpRequest.Builder builder;
+		private final String method;
+
+		Http2Request(String method, String url) {
+			this.method = method;
+			this.builder = HttpRequest.newBuilder(URI.create(url));
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if (!RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+				builder.header(name, value);
+			}
+		}
+
+		@Override
+		public void setTimeout(int connectTimeout, int readTimeout) {
+			if (readTimeout > 0) {
+				builder.timeout(Duration.ofMillis(readTimeout));
+			}
+		}
+
+		@Override
+		public LowLevelHttpResponse execute() throws IOException {
+			HttpRequest.BodyPublisher body = bodyPublisher(this);
+			if (getContentType() != null) {
+				builder.setHeader("Content-Type", getContentType());
+			}
+			if (getContentEncoding() != null) {
+				builder.setHeader("Content-Encoding", getContentEncoding());
+			}
+			builder.method(method, body);
+			try {
+				return new Http2Response(client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for " + method + " " + builder.build().uri());
+			}
+		}
+	}
+
+	/**
+	 * Files are sent straight from disk and large bodies are streamed, so
+	 * uploads never need to fit in memory; small bodies are buffered.
+	 */
+	private HttpRequest.BodyPublisher bodyPublisher(LowLevelHttpRequest request) throws IOException {
+		StreamingContent content = request.getStreamingContent();
+		if (content == null) {
+			return HttpRequest.BodyPublishers.noBody();
+		}
+		if (content instanceof FileContent) {
+			return HttpRequest.BodyPublishers.ofFile(((FileContent) content).getFile().toPath());
+		}
+		long length = request.getContentLength();
+		if (length >= 0 && length <= BUFFERED_BODY_LIMIT) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream((int) length);
+			content.writeTo(out);
+			return HttpRequest.BodyPublishers.ofByteArray(out.toByteArray());
+		}
+		HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.ofInputStream(() -> {
+			try {
+				PipedBody body = new PipedBody();
+				bodyWriters.execute(() -> body.write(content));
+				return body;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		return (length >= 0) ? HttpRequest.BodyPublishers.fromPublisher(publisher, length) : publisher;
+	}
+
+	/**
+	 * Pipe a body is written into by another thread. A failure of the writer
+	 * is rethrown to the reader instead of ending the body early, so that a
+	 * truncated body is never sent as if complete.
+	 */
+	private static class PipedBody extends FilterInputStream {
+
+		private final PipedOutputStream out;
+		private volatile IOException failure;
+
+		PipedBody() throws IOException {
+			super(new PipedInputStream((int) BUFFERED_BODY_LIMIT));
+			this.out = new PipedOutputStream((PipedInputStream) in);
+		}
+
+		void write(StreamingContent content) {
+			try {
+				content.writeTo(out);
+			} catch (IOException e) {
+				failure = e;
+			} catch (RuntimeException e) {
+				failure = new IOException(e);
+			} finally {
+				try {
+					out.close();
+				} catch (IOException e) {
+					// already closed
+				}
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read;
+			try {
+				read = super.read();
+			} catch (IOException e) {
+				throw (failure != null) ? failed() : e;
+			}
+			if (read < 0 && failure != null) {
+				throw failed();
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read;
+			try {
+				read = super.read(b, off, len);
+			} catch (IOException e) {
+				throw (failure != null) ? failed() : e;
+			}
+			if (read < 0 && failure != null) {
+				throw failed();
+			}
+			return read;
+		}
+
+		private IOException failed() {
+			return new IOException("Unable to write the request body: " + failure.getMessage(), failure);
+		}
+	}
+
+	private static class Http2Response extends LowLevelHttpResponse {
+
+		private final HttpResponse<InputStream> response;
+		private final List<String> names = new ArrayList<String>();
+		private final List<String> values = new ArrayList<String>();
+
+		Http2Response(HttpResponse<InputStream> response) {
+			this.response = response;
+			for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+				for (String value : header.getValue()) {
+					names.add(header.getKey());
+					values.add(value);
+				}
+			}
+		}
+
+		@Override
+		public InputStream getContent() {
+			return response.body();
+		}
+
+		@Override
+		public String getContentEncoding() {
+			return response.headers().firstValue("Content-Encoding").orElse(null);
+		}
+
+		@Override
+		public long getContentLength() {
+			return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+		}
+
+		@Override
+		public String getContentType() {
+			return response.headers().firstValue("Content-Type").orElse(null);
+		}
+
+		@Override
+		public String getStatusLine() {
+			String version = (response.version() == HttpClient.Version.HTTP_2) ? "HTTP/2" : "HTTP/1.1";
+			return version + " " + response.statusCode();
+		}
+
+		@Override
+		public int getStatusCode() {
+			return response.statusCode();
+		}
+
+		@Override
+		public String getReasonPhrase() {
+			return null;
+		}
+
+		@Override
+		public int getHeaderCount() {
+			return names.size();
+		}
+
+		@Override
+		public String getHeaderName(int index) {
+			return names.get(index);
+		}
+
+		@Override
+		public String getHeaderValue(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		public void disconnect() throws IOException {
+			response.body().close();
+		}
+	}
+
+}
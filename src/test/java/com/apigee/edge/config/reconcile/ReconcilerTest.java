@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.reconcile;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.apigee.edge.config.utils.ConfigEntity;
+import com.apigee.edge.config.utils.JsonComparator;
+import com.apigee.edge.config.utils.ServerProfile;
+
+/**
+ * Plans against an in-memory remote state, the bulk listing of which may be
+ * cut short.
+ */
+public class ReconcilerTest {
+
+    private final ServerProfile profile = new ServerProfile();
+    private final FakeAdapter adapter = new FakeAdapter();
+
+    @After
+    public void closeExecutor() {
+        if (profile.getAsyncRestUtil() != null) {
+            profile.getAsyncRestUtil().close();
+        }
+    }
+
+    @Test
+    public void createsMissingEntities() throws IOException {
+        Plan plan = plan(Reconciler.Option.update, "{\"name\":\"a\"}");
+        assertEquals("CREATE a", actions(plan));
+    }
+
+    @Test
+    public void updatesChangedEntities() throws IOException {
+        adapter.remote("{\"name\":\"a\",\"value\":1}");
+        Plan plan = plan(Reconciler.Option.update, "{\"name\":\"a\",\"value\":2}");
+        assertEquals("UPDATE a", actions(plan));
+    }
+
+    @Test
+    public void skipsUnchangedEntities() throws IOException {
+        adapter.remote("{\"name\":\"a\",\"value\":1,\"createdAt\":5}");
+        Plan plan = plan(Reconciler.Option.sync, "{\"value\":1,\"name\":\"a\"}");
+        assertEquals("NONE a", actions(plan));
+        assertEquals("is unchanged", plan.getActions().get(0).getReason());
+    }
+
+    @Test
+    public void createSkipsExistingEntities() throws IOException {
+        adapter.remote("{\"name\":\"a\",\"value\":1}");
+        Plan plan = plan(Reconciler.Option.create, "{\"name\":\"a\",\"value\":2}", "{\"name\":\"b\"}");
+        assertEquals("NONE a, CREATE b", actions(plan));
+    }
+
+    @Test
+    public void deletesExistingEntities() throws IOException {
+        adapter.remote("{\"name\":\"a\"}");
+        Plan plan = plan(Reconciler.Option.delete, "{\"name\":\"a\"}", "{\"name\":\"b\"}");
+        assertEquals("DELETE a, NONE b", actions(plan));
+    }
+
+    @Test
+    public void prunesEntitiesNotInTheConfig() throws IOException {
+        adapter.remote("{\"name\":\"a\"}");
+        adapter.remote("{\"name\":\"old\"}");
+        Plan plan = new Reconciler(profile, adapter).setPrune(true)
+                .plan(entities("{\"name\":\"a\"}"), Reconciler.Option.sync);
+        assertEquals("NONE a, PRUNE old", actions(plan));
+    }
+
+    @Test
+    public void prunesOnlyInSyncMode() throws IOException {
+        adapter.remote("{\"name\":\"old\"}");
+        Plan plan = new Reconciler(profile, adapter).setPrune(true)
+                .plan(entities("{\"name\":\"a\"}"), Reconciler.Option.update);
+        assertEquals("CREATE a", actions(plan));
+    }
+
+    @Test
+    public void doesNotPruneWhenTheListingIsIncomplete() throws IOException {
+        adapter.remote("{\"name\":\"a\",\"value\":1}");
+        adapter.remote("{\"name\":\"old\"}");
+        adapter.listed = 1;
+        Plan plan = new Reconciler(profile, adapter).setPrune(true)
+                .plan(entities("{\"name\":\"a\",\"value\":1}"), Reconciler.Option.sync);
+        assertEquals("NONE a", actions(plan));
+    }
+
+    @Test
+    public void fetchesEntitiesMissingFromAnIncompleteListing() throws IOException {
+        adapter.remote("{\"name\":\"a\"}");
+        adapter.remote("{\"name\":\"b\",\"value\":1}");
+        adapter.remote("{\"name\":\"c\",\"value\":1}");
+        adapter.listed = 1;
+        Plan plan = plan(Reconciler.Option.update, "{\"name\":\"b\",\"value\":1}", "{\"name\":\"c\",\"value\":2}",
+                "{\"name\":\"d\"}");
+        assertEquals("NONE b, UPDATE c, CREATE d", actions(plan));
+        // fetched concurrently
+        Collections.sort(adapter.fetched);
+        assertEquals(Arrays.asList("b", "c", "d"), adapter.fetched);
+    }
+
+    private Plan plan(Reconciler.Option option, String... entries) throws IOException {
+        return new Reconciler(profile, adapter).plan(entities(entries), option);
+    }
+
+    private static List<ConfigEntity> entities(String... entries) {
+        List<ConfigEntity> entities = new ArrayList<ConfigEntity>();
+        for (String entry : entries) {
+            entities.add(ConfigEntity.of("test", entry));
+        }
+        return entities;
+    }
+
+    private static String actions(Plan plan) {
+        StringBuilder out = new StringBuilder();
+        for (Plan.Action action : plan.getActions()) {
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(action.getType()).append(' ').append(action.getName());
+        }
+        return out.toString();
+    }
+
+    /*
+     * The remote entities in memory; the bulk fetch lists the first ones
+     * only when listed is set
+     */
+    private static class FakeAdapter implements ResourceAdapter {
+        final Map<String, ConfigEntity> remote = new LinkedHashMap<String, ConfigEntity>();
+        final List<String> fetched = new ArrayList<String>();
+        int listed = -1;
+
+        void remote(String json) {
+            ConfigEntity entity = ConfigEntity.of("remote", json);
+            remote.put(entity.getName(), entity);
+        }
+
+        public String getType() {
+            return "Test";
+        }
+
+        public String getName(ConfigEntity entity) {
+            return entity.getName();
+        }
+
+        public JsonComparator getComparator() {
+            return new JsonComparator();
+        }
+
+        public RemoteState fetchAll() {
+            RemoteState state = new RemoteState(this);
+            for (ConfigEntity entity : remote.values()) {
+                if (listed >= 0 && state.size() >= listed) {
+                    state.setComplete(false);
+                    break;
+                }
+                state.add(entity.getName(), entity);
+            }
+            return state;
+        }
+
+        public synchronized ConfigEntity fetch(String name) {
+            fetched.add(name);
+            return remote.get(name);
+        }
+
+        public void create(String name, ConfigEntity entity) {
+        }
+
+        public void update(String name, ConfigEntity entity) {
+        }
+
+        public void delete(String name) {
+        }
+    }
+
+}
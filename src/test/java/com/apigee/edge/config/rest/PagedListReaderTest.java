@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.apigee.edge.config.utils.ServerProfile;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+
+/**
+ * Reads lists served page by page from memory.
+ */
+public class PagedListReaderTest {
+
+	/*
+	 * Serves the page of each query, a missing page is not found; a null
+	 * page fails
+	 */
+	private static class Pages extends PagedListReader {
+		final Map<String, String> pages = new LinkedHashMap<String, String>();
+		final List<String> queries = new ArrayList<String>();
+
+		Pages() {
+			super(new ServerProfile(), "apiproducts", "apiProduct", "name");
+			setPageSize(2);
+		}
+
+		Pages page(String query, String json) {
+			pages.put("apiproducts?expand=true&count=2" + query, json);
+			return this;
+		}
+
+		@Override
+		protected HttpResponse getPage(String query) throws IOException {
+			queries.add(query);
+			if (!pages.containsKey(query)) {
+				return null;
+			}
+			String json = pages.get(query);
+			if (json == null) {
+				throw new IOException("page failed");
+			}
+			MockHttpTransport transport = new MockHttpTransport.Builder()
+					.setLowLevelHttpResponse(new MockLowLevelHttpResponse()
+							.setContentType("application/json").setContent(json))
+					.build();
+			return transport.createRequestFactory()
+					.buildGetRequest(new GenericUrl("http://localhost/" + query)).execute();
+		}
+
+		List<String> readNames(boolean complete) throws IOException {
+			List<String> names = new ArrayList<String>();
+			assertEquals(complete, readAll(json -> names.add(readField(json, "name"))));
+			return names;
+		}
+	}
+
+	private static String products(String... names) {
+		StringBuilder json = new StringBuilder("[");
+		for (String name : names) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append("{\"name\":\"").append(name).append("\"}");
+		}
+		return json.append(']').toString();
+	}
+
+	private static String page(String... names) {
+		return "{\"apiProduct\":" + products(names) + "}";
+	}
+
+	@Test
+	public void endsWithShortPage() throws IOException {
+		Pages pages = new Pages().page("", page("a"));
+		assertEquals(Arrays.asList("a"), pages.readNames(true));
+		assertEquals(1, pages.queries.size());
+	}
+
+	@Test
+	public void skipsStartKeyElement() throws IOException {
+		Pages pages = new Pages()
+				.page("", page("a", "b"))
+				.page("&startKey=b", page("b", "c"))
+				.page("&startKey=c", page("c"));
+		assertEquals(Arrays.asList("a", "b", "c"), pages.readNames(true));
+		assertEquals(3, pages.queries.size());
+	}
+
+	@Test
+	public void followsPageToken() throws IOException {
+		Pages pages = new Pages()
+				.page("", "{\"apiProduct\":" + products("a", "b") + ",\"nextPageToken\":\"t 1\"}")
+				.page("&pageToken=t+1", "{\"apiProduct\":" + products("c", "d") + ",\"nextPageToken\":\"\"}");
+		assertEquals(Arrays.asList("a", "b", "c", "d"), pages.readNames(true));
+	}
+
+	@Test
+	public void missingListIsEmpty() throws IOException {
+		Pages pages = new Pages();
+		assertEquals(Arrays.asList(), pages.readNames(true));
+	}
+
+	@Test
+	public void missingLaterPageIsIncomplete() throws IOException {
+		Pages pages = new Pages().page("", page("a", "b"));
+		assertEquals(Arrays.asList("a", "b"), pages.readNames(false));
+		assertEquals(Arrays.asList("apiproducts?expand=true&count=2",
+				"apiproducts?expand=true&count=2&startKey=b"), pages.queries);
+	}
+
+	@Test
+	public void failedLaterPageIsIncomplete() throws IOException {
+		Pages pages = new Pages()
+				.page("", page("a", "b"))
+				.page("&startKey=b", null);
+		assertEquals(Arrays.asList("a", "b"), pages.readNames(false));
+	}
+
+	@Test
+	public void fullPageWithNothingNewIsIncomplete() throws IOException {
+		Pages pages = new Pages()
+				.page("", page("a", "b"))
+				.page("&startKey=b", page("b", "b"));
+		assertEquals(Arrays.asList("a", "b"), pages.readNames(false));
+	}
+
+	@Test
+	public void failedFirstPageFails() {
+		Pages pages = new Pages().page("", null);
+		try {
+			pages.readAll(json -> {
+			});
+			fail();
+		} catch (IOException e) {
+			assertEquals("page failed", e.getMessage());
+		}
+		assertEquals(1, pages.queries.size());
+	}
+
+}
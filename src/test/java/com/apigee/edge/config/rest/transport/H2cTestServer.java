@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest.transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Local server for the transport tests. Every request is answered with
+ * "protocol=P received=N": P is "h2" for the requests received over HTTP/2
+ * (after an h2c upgrade) and "http/1.1" otherwise, N the number of body
+ * bytes received. Only the part of HTTP/2 the JDK client needs to upgrade
+ * and send its requests is implemented.
+ */
+class H2cTestServer implements Closeable {
+
+	private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CONTENT_TYPE = "text/plain".getBytes(StandardCharsets.US_ASCII);
+
+	// frame types and flags, RFC 7540 section 6
+	private static final int DATA = 0x0;
+	private static final int HEADERS = 0x1;
+	private static final int SETTINGS = 0x4;
+	private static final int PING = 0x6;
+	private static final int GOAWAY = 0x7;
+	private static final int WINDOW_UPDATE = 0x8;
+	private static final int END_STREAM = 0x1;
+	private static final int ACK = 0x1;
+	private static final int END_HEADERS = 0x4;
+
+	private final ServerSocket server;
+
+	H2cTestServer() throws IOException {
+		server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		Thread acceptor = new Thread(this::accept, "h2c-test-server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	String getUrl() {
+		return "http://127.0.0.1:" + server.getLocalPort() + "/";
+	}
+
+	public void close() throws IOException {
+		server.close();
+	}
+
+	private void accept() {
+		while (!server.isClosed()) {
+			try {
+				final Socket socket = server.accept();
+				Thread connection = new Thread(() -> serve(socket), "h2c-test-connection");
+				connection.setDaemon(true);
+				connection.start();
+			} catch (IOException e) {
+				return;
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		try (Socket s = socket) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			OutputStream out = new BufferedOutputStream(s.getOutputStream());
+			Map<String, String> headers = new HashMap<String, String>();
+			if (readLine(in) == null)
+				return;
+			for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+				int colon = line.indexOf(':');
+				headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+			}
+			long received = readBody(in, headers);
+			if (!"h2c".equalsIgnoreCase(headers.get("upgrade"))) {
+				byte[] body = body("http/1.1", received);
+				out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " + body.length
+						+ "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+				out.write(body);
+				out.flush();
+				return;
+			}
+			out.write("HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n"
+					.getBytes(StandardCharsets.US_ASCII));
+			writeFrame(out, SETTINGS, 0, 0, new byte[0]);
+			out.flush();
+			byte[] preface = new byte[PREFACE.length];
+			in.readFully(preface);
+			if (!Arrays.equals(preface, PREFACE))
+				throw new IOException("HTTP/2 connection preface expected");
+			// the upgraded request is stream 1
+			respond(out, 1, received);
+			out.flush();
+			serveFrames(in, out);
+		} catch (IOException e) {
+			// the client closed the connection
+		}
+	}
+
+	private void serveFrames(DataInputStream in, OutputStream out) throws IOException {
+		Map<Integer, Long> received = new HashMap<Integer, Long>();
+		while (true) {
+			int length = (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+			int type = in.readUnsignedByte();
+			int flags = in.readUnsignedByte();
+			int stream = in.readInt() & 0x7fffffff;
+			byte[] payload = new byte[length];
+			in.readFully(payload);
+			switch (type) {
+			case HEADERS:
+				received.put(stream, 0L);
+				if ((flags & END_STREAM) != 0)
+					respond(out, stream, received.remove(stream));
+				break;
+			case DATA:
+				if (length > 0) {
+					writeFrame(out, WINDOW_UPDATE, 0, 0, windowIncrement(length));
+					if ((flags & END_STREAM) == 0)
+						writeFrame(out, WINDOW_UPDATE, 0, stream, windowIncrement(length));
+				}
+				Long total = received.get(stream);
+				received.put(stream, (total != null ? total : 0L) + length);
+				if ((flags & END_STREAM) != 0)
+					respond(out, stream, received.remove(stream));
+				break;
+			case SETTINGS:
+				if ((flags & ACK) == 0)
+					writeFrame(out, SETTINGS, ACK, 0, new byte[0]);
+				break;
+			case PING:
+				if ((flags & ACK) == 0)
+					writeFrame(out, PING, ACK, 0, payload);
+				break;
+			case GOAWAY:
+				return;
+			default:
+				break;
+			}
+			out.flush();
+		}
+	}
+
+	private static void respond(OutputStream out, int stream, long received) throws IOException {
+		ByteArrayOutputStream headers = new ByteArrayOutputStream();
+		headers.write(0x88); // :status 200, HPACK static table entry 8
+		headers.write(0x0f); // content-type (static entry 31), literal without indexing
+		headers.write(31 - 15);
+		headers.write(CONTENT_TYPE.length);
+		headers.write(CONTENT_TYPE);
+		writeFrame(out, HEADERS, END_HEADERS, stream, headers.toByteArray());
+		writeFrame(out, DATA, END_STREAM, stream, body("h2", received));
+	}
+
+	private static void writeFrame(OutputStream out, int type, int flags, int stream, byte[] payload)
+			throws IOException {
+		out.write(payload.length >>> 16);
+		out.write(payload.length >>> 8);
+		out.write(payload.length);
+		out.write(type);
+		out.write(flags);
+		out.write(stream >>> 24);
+		out.write(stream >>> 16);
+		out.write(stream >>> 8);
+		out.write(stream);
+		out.write(payload);
+	}
+
+	private static byte[] windowIncrement(int increment) {
+		return new byte[] { (byte) (increment >>> 24), (byte) (increment >>> 16), (byte) (increment >>> 8),
+				(byte) increment };
+	}
+
+	private static byte[] body(String protocol, long received) {
+		return ("protocol=" + protocol + " received=" + received).getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static long readBody(DataInputStream in, Map<String, String> headers) throws IOException {
+		if (headers.containsKey("content-length")) {
+			long length = Long.parseLong(headers.get("content-length"));
+			in.readFully(new byte[(int) length]);
+			return length;
+		}
+		if (!"chunked".equalsIgnoreCase(headers.get("transfer-encoding")))
+			return 0;
+		long total = 0;
+		for (int size = chunkSize(in); size > 0; size = chunkSize(in)) {
+			in.readFully(new byte[size]);
+			readLine(in);
+			total += size;
+		}
+		for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+			// trailers
+		}
+		return total;
+	}
+
+	private static int chunkSize(InputStream in) throws IOException {
+		String line = readLine(in);
+		if (line == null)
+			throw new EOFException("the client closed the connection in a chunked body");
+		int extension = line.indexOf(';');
+		return Integer.parseInt((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != -1 && c != '\n') {
+			if (c != '\r')
+				line.append((char) c);
+		}
+		return (c == -1 && line.length() == 0) ? null : line.toString();
+	}
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.rest.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.apigee.edge.config.rest.HttpClientPool;
+import com.apigee.edge.config.utils.ServerProfile;
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpContent;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.InputStreamContent;
+
+/**
+ * Runs each built-in transport against a local server and checks the
+ * protocol the requests were received with.
+ */
+public class TransportProviderTest {
+
+	private static H2cTestServer server;
+
+	private HttpClientPool pool;
+
+	@BeforeClass
+	public static void startServer() throws IOException {
+		server = new H2cTestServer();
+	}
+
+	@AfterClass
+	public static void stopServer() throws IOException {
+		server.close();
+	}
+
+	@Before
+	public void createPool() {
+		pool = new HttpClientPool();
+	}
+
+	@After
+	public void closePool() {
+		pool.close();
+	}
+
+	@Test
+	public void apacheUsesHttp11() throws IOException {
+		HttpTransport transport = transport("apache");
+		assertEquals("protocol=http/1.1 received=0", send(transport, null));
+		assertEquals("protocol=http/1.1 received=5", send(transport, text("hello")));
+	}
+
+	@Test
+	public void netHttpUsesHttp11() throws IOException {
+		HttpTransport transport = transport("nethttp");
+		assertEquals("protocol=http/1.1 received=0", send(transport, null));
+		assertEquals("protocol=http/1.1 received=5", send(transport, text("hello")));
+	}
+
+	@Test
+	public void http2NegotiatesHttp2() throws IOException {
+		assumeTrue(TransportProvider.forName("http2").isAvailable());
+		HttpTransport transport = transport("http2");
+		assertEquals("protocol=h2 received=0", send(transport, null));
+		// the later calls go over the upgraded connection
+		assertEquals("protocol=h2 received=5", send(transport, text("hello")));
+		assertEquals("protocol=h2 received=0", send(transport, null));
+	}
+
+	@Test
+	public void http2StreamsLargeBodies() throws IOException {
+		assumeTrue(TransportProvider.forName("http2").isAvailable());
+		HttpTransport transport = transport("http2");
+		assertEquals("protocol=h2 received=204800", send(transport, stream(new byte[200 * 1024])));
+	}
+
+	@Test
+	public void http2FailsOnTruncatedBody() throws IOException {
+		assumeTrue(TransportProvider.forName("http2").isAvailable());
+		HttpTransport transport = transport("http2");
+		final IOException failure = new IOException("disk gone");
+		InputStream failing = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw failure;
+			}
+		};
+		try {
+			send(transport, stream(new SequenceInputStream(new ByteArrayInputStream(new byte[100 * 1024]), failing)));
+			fail("a truncated body was sent");
+		} catch (IOException e) {
+			assertSame(failure, rootCause(e));
+		}
+	}
+
+	private HttpTransport transport(String name) {
+		ServerProfile profile = new ServerProfile();
+		profile.setHostUrl(server.getUrl());
+		return TransportProvider.forName(name).createTransport(profile, pool);
+	}
+
+	private static HttpContent text(String text) {
+		return new ByteArrayContent("text/plain", text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static HttpContent stream(byte[] bytes) {
+		return stream(new ByteArrayInputStream(bytes));
+	}
+
+	// unknown length, so the body is streamed
+	private static HttpContent stream(InputStream in) {
+		return new InputStreamContent("application/octet-stream", in);
+	}
+
+	private static Throwable rootCause(Throwable e) {
+		while (e.getCause() != null && e.getCause() != e) {
+			e = e.getCause();
+		}
+		return e;
+	}
+
+	private static String send(HttpTransport transport, HttpContent content) throws IOException {
+		GenericUrl url = new GenericUrl(server.getUrl());
+		HttpRequest request = (content == null) ? transport.createRequestFactory().buildGetRequest(url)
+				: transport.createRequestFactory().buildPostRequest(url, content);
+		HttpResponse response = request.execute();
+		try {
+			return response.parseAsString();
+		} finally {
+			response.disconnect();
+		}
+	}
+
+}
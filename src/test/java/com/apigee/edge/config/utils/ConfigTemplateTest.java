@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConfigTemplateTest {
+
+    private final Map<String, String> values = new HashMap<String, String>();
+
+    private String render(String text, boolean json) throws IOException {
+        return ConfigTemplate.compile(text).render(values::get, json);
+    }
+
+    @Test
+    public void substitutesValues() throws IOException {
+        values.put("host", "example.com");
+        values.put("port", "443");
+        assertEquals("{\"host\":\"example.com\",\"port\":443}",
+                render("{\"host\":\"${host}\",\"port\":${ port }}", true));
+    }
+
+    @Test
+    public void keepsTextWithoutPlaceholders() throws IOException {
+        ConfigTemplate template = ConfigTemplate.compile("{\"name\":\"a$b\"}");
+        assertTrue(template.isConstant());
+        assertEquals("{\"name\":\"a$b\"}", template.render(values::get, true));
+    }
+
+    @Test
+    public void escapedPlaceholderIsLiteral() throws IOException {
+        values.put("name", "x");
+        ConfigTemplate template = ConfigTemplate.compile("{\"a\":\"$${name}\"}");
+        assertTrue(template.isConstant());
+        assertEquals("{\"a\":\"${name}\"}", template.render(values::get, true));
+        assertEquals("{\"a\":\"${name}-x\"}", render("{\"a\":\"$${name}-${name}\"}", true));
+    }
+
+    @Test
+    public void usesDefaultWhenValueIsMissing() throws IOException {
+        values.put("set", "value");
+        assertEquals("{\"a\":\"value\",\"b\":\"fallback\",\"c\":\"\"}",
+                render("{\"a\":\"${set:-other}\",\"b\":\"${unset:-fallback}\",\"c\":\"${unset:-}\"}", true));
+    }
+
+    @Test
+    public void keepsDefaultAsWritten() throws IOException {
+        // the default is already escaped in the file
+        assertEquals("{\"a\":\"say \\\"hi\\\"\"}", render("{\"a\":\"${unset:-say \\\"hi\\\"}\"}", true));
+    }
+
+    @Test
+    public void escapesValuesOfJsonEntries() throws IOException {
+        values.put("text", "a \"quoted\"\\path\nline\ttab\u0001");
+        assertEquals("{\"a\":\"a \\\"quoted\\\"\\\\path\\nline\\ttab\\u0001\"}",
+                render("{\"a\":\"${text}\"}", true));
+    }
+
+    @Test
+    public void keepsValuesOfStringEntries() throws IOException {
+        values.put("text", "a \"quoted\" name");
+        assertEquals("Category a \"quoted\" name", render("Category ${text}", false));
+    }
+
+    @Test
+    public void failsWhenValueIsMissing() throws IOException {
+        ConfigTemplate template = ConfigTemplate.compile("{\"a\":\"${unset}\"}");
+        assertFalse(template.isConstant());
+        try {
+            template.render(values::get, true);
+            fail();
+        } catch (IOException e) {
+            assertEquals("No value for the placeholder ${unset}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void failsOnUnterminatedPlaceholder() {
+        try {
+            ConfigTemplate.compile("{\"a\":\"${name\"");
+            fail();
+        } catch (IOException e) {
+            assertEquals("Unterminated placeholder ${name\"", e.getMessage());
+        }
+    }
+
+    @Test
+    public void failsOnEmptyPlaceholder() {
+        try {
+            ConfigTemplate.compile("{\"a\":\"${ }\"}");
+            fail();
+        } catch (IOException e) {
+            assertEquals("Empty placeholder ${ }", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2016 Apigee Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.apigee.edge.config.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class JsonComparatorTest {
+
+    private final JsonComparator comparator = new JsonComparator();
+
+    @Test
+    public void missingRemoteIsChanged() throws IOException {
+        assertFalse(comparator.isUnchanged("{\"name\":\"a\"}", null));
+    }
+
+    @Test
+    public void ignoresFieldOrderAndNumberForm() throws IOException {
+        assertTrue(comparator.isUnchanged("{\"name\":\"a\",\"port\":443}", "{\"port\":443.0,\"name\":\"a\"}"));
+        assertFalse(comparator.isUnchanged("{\"name\":\"a\",\"port\":443}", "{\"name\":\"a\",\"port\":8443}"));
+    }
+
+    @Test
+    public void dropsServerFieldsTheConfigLeavesOut() throws IOException {
+        assertTrue(comparator.isUnchanged("{\"name\":\"a\"}",
+                "{\"name\":\"a\",\"createdAt\":1,\"createdBy\":\"x\",\"lastModifiedAt\":2,\"lastModifiedBy\":\"y\"}"));
+        // unless the config sets them
+        assertFalse(comparator.isUnchanged("{\"name\":\"a\",\"createdBy\":\"x\"}",
+                "{\"name\":\"a\",\"createdBy\":\"y\"}"));
+        assertTrue(new JsonComparator("createTime").isUnchanged("{\"name\":\"a\"}",
+                "{\"name\":\"a\",\"createTime\":\"now\"}"));
+        assertFalse(comparator.isUnchanged("{\"name\":\"a\"}", "{\"name\":\"a\",\"createTime\":\"now\"}"));
+    }
+
+    @Test
+    public void dropsServerDefaultsOnlyWithTheirDefaultValue() throws IOException {
+        JsonComparator targets = new JsonComparator().withDefault("isEnabled", Boolean.TRUE)
+                .withDefault("protocol", "HTTP");
+        assertTrue(targets.isUnchanged("{\"name\":\"a\"}", "{\"name\":\"a\",\"isEnabled\":true,\"protocol\":\"HTTP\"}"));
+        assertFalse(targets.isUnchanged("{\"name\":\"a\"}", "{\"name\":\"a\",\"isEnabled\":false}"));
+        assertFalse(targets.isUnchanged("{\"name\":\"a\"}", "{\"name\":\"a\",\"protocol\":\"GRPC\"}"));
+        assertFalse(targets.isUnchanged("{\"name\":\"a\",\"isEnabled\":false}", "{\"name\":\"a\",\"isEnabled\":true}"));
+        assertFalse(comparator.isUnchanged("{\"name\":\"a\"}", "{\"name\":\"a\",\"isEnabled\":true}"));
+    }
+
+    @Test
+    public void emptyValuesCountAsAbsent() throws IOException {
+        assertTrue(comparator.isUnchanged("{\"name\":\"a\"}",
+                "{\"name\":\"a\",\"description\":\"\",\"scopes\":[],\"attributes\":{},\"note\":null}"));
+        assertTrue(comparator.isUnchanged("{\"name\":\"a\",\"scopes\":[],\"description\":\"\"}", "{\"name\":\"a\"}"));
+        assertFalse(comparator.isUnchanged("{\"name\":\"a\"}", "{\"name\":\"a\",\"description\":\"d\"}"));
+    }
+
+    @Test
+    public void ignoresArrayOrderByDefault() throws IOException {
+        assertTrue(comparator.isUnchanged("{\"scopes\":[\"a\",\"b\",\"c\"]}", "{\"scopes\":[\"c\",\"a\",\"b\"]}"));
+        assertTrue(comparator.isUnchanged("{\"attributes\":[{\"name\":\"x\",\"value\":\"1\"},{\"name\":\"y\",\"value\":\"2\"}]}",
+                "{\"attributes\":[{\"value\":\"2\",\"name\":\"y\"},{\"value\":\"1\",\"name\":\"x\"}]}"));
+        assertFalse(comparator.isUnchanged("{\"scopes\":[\"a\",\"b\"]}", "{\"scopes\":[\"a\",\"b\",\"c\"]}"));
+    }
+
+    @Test
+    public void keepsArrayOrderWhenTold() throws IOException {
+        JsonComparator ordered = new JsonComparator(false);
+        assertTrue(ordered.isUnchanged("{\"columns\":[\"a\",\"b\"]}", "{\"columns\":[\"a\",\"b\"]}"));
+        assertFalse(ordered.isUnchanged("{\"columns\":[\"a\",\"b\"]}", "{\"columns\":[\"b\",\"a\"]}"));
+    }
+
+    @Test
+    public void matchesArraysAsMultisets() throws IOException {
+        // each element matches a distinct one
+        assertFalse(comparator.isUnchanged("{\"scopes\":[\"a\",\"a\",\"b\"]}", "{\"scopes\":[\"a\",\"b\",\"b\"]}"));
+        assertTrue(comparator.isUnchanged("{\"scopes\":[\"a\",\"b\",\"a\"]}", "{\"scopes\":[\"a\",\"a\",\"b\"]}"));
+    }
+
+}